@@ -0,0 +1,47 @@
+package com.example.camerabooking.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Identity of this app instance among the others sharing a {@link StreamRegistry}:
+ * an id, and the signaling URL other instances use to reach it.
+ */
+@Component
+public class ClusterNode {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterNode.class);
+
+    private final String id;
+    private final String signalingUrl;
+
+    public ClusterNode(@Value("${cluster.node-id:}") String id,
+                       @Value("${cluster.node-url:}") String signalingUrl,
+                       @Value("${server.port:8080}") int port) {
+        this.id = id.isBlank() ? UUID.randomUUID().toString() : id;
+        this.signalingUrl = signalingUrl.isBlank() ? "ws://" + localAddress() + ":" + port + "/ws" : signalingUrl;
+        logger.info("Cluster node {} reachable at {}", this.id, this.signalingUrl);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSignalingUrl() {
+        return signalingUrl;
+    }
+
+    private static String localAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.camerabooking.cluster;
+
+import com.example.camerabooking.model.StreamRegistration;
+import com.example.camerabooking.repository.StreamRegistrationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Registry kept in the shared database, for several instances behind one load
+ * balancer. A database outage only stops cross-instance routing; streams on
+ * this instance keep working, so failures are logged rather than thrown.
+ *
+ * Each instance refreshes its own rows on a heartbeat. Rows not refreshed
+ * within {@code cluster.registration-ttl} belong to an instance that died
+ * without unregistering: lookups ignore them and the heartbeat deletes them.
+ * The ttl should span several heartbeats plus any clock skew between hosts.
+ */
+public class DatabaseStreamRegistry implements StreamRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseStreamRegistry.class);
+
+    private final StreamRegistrationRepository repository;
+    private final String nodeId;
+    private final Duration ttl;
+
+    public DatabaseStreamRegistry(StreamRegistrationRepository repository, String nodeId, Duration ttl) {
+        this.repository = repository;
+        this.nodeId = nodeId;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void register(StreamLocation location) {
+        try {
+            repository.save(new StreamRegistration(location.streamId(), location.bookingId(), location.nodeId(),
+                    location.signalingUrl(), location.mediaServerId(), LocalDateTime.now()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not register stream {}: {}", location.streamId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void unregister(String streamId) {
+        try {
+            repository.deleteById(streamId);
+        } catch (DataAccessException e) {
+            logger.warn("Could not unregister stream {}: {}", streamId, e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<StreamLocation> find(String streamId) {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+            return repository.findById(streamId)
+                    .filter(registration -> !registration.getRegisteredAt().isBefore(cutoff))
+                    .map(registration -> new StreamLocation(registration.getStreamId(),
+                            registration.getBookingId(), registration.getNodeId(), registration.getSignalingUrl(),
+                            registration.getMediaServerId()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not look up stream {}: {}", streamId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void unregisterNode(String nodeId) {
+        try {
+            int removed = repository.deleteByNodeId(nodeId);
+            logger.info("Unregistered {} streams of node {}", removed, nodeId);
+        } catch (DataAccessException e) {
+            logger.warn("Could not unregister streams of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval:30s}")
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            repository.refreshNode(nodeId, now);
+            int purged = repository.deleteRegisteredBefore(now.minus(ttl));
+            if (purged > 0) {
+                logger.info("Purged {} stream registrations not refreshed within {}", purged, ttl);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not refresh stream registrations of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+}
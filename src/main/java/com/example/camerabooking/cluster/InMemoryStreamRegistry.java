@@ -0,0 +1,42 @@
+package com.example.camerabooking.cluster;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry for a single instance. Several instances in one JVM, e.g. in tests,
+ * can share one by passing the same map.
+ */
+public class InMemoryStreamRegistry implements StreamRegistry {
+
+    private final ConcurrentMap<String, StreamLocation> locations;
+
+    public InMemoryStreamRegistry() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    public InMemoryStreamRegistry(ConcurrentMap<String, StreamLocation> locations) {
+        this.locations = locations;
+    }
+
+    @Override
+    public void register(StreamLocation location) {
+        locations.put(location.streamId(), location);
+    }
+
+    @Override
+    public void unregister(String streamId) {
+        locations.remove(streamId);
+    }
+
+    @Override
+    public Optional<StreamLocation> find(String streamId) {
+        return Optional.ofNullable(locations.get(streamId));
+    }
+
+    @Override
+    public void unregisterNode(String nodeId) {
+        locations.values().removeIf(location -> location.nodeId().equals(nodeId));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.camerabooking.cluster;
+
+/**
+ * Where a live stream is served: the app instance holding its broadcaster and
+ * the media server its pipeline runs on.
+ */
+public record StreamLocation(String streamId,
+                             String bookingId,
+                             String nodeId,
+                             String signalingUrl,
+                             String mediaServerId) {
+}
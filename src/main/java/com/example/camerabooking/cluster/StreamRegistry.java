@@ -0,0 +1,19 @@
+package com.example.camerabooking.cluster;
+
+import java.util.Optional;
+
+/**
+ * Maps stream ids to the app instance that owns them, so signaling that lands
+ * on another instance can be sent to the owner. Chosen with {@code cluster.registry}.
+ */
+public interface StreamRegistry {
+
+    void register(StreamLocation location);
+
+    void unregister(String streamId);
+
+    Optional<StreamLocation> find(String streamId);
+
+    /** Forget every stream owned by the node, e.g. when it shuts down. */
+    void unregisterNode(String nodeId);
+}
@@ -0,0 +1,41 @@
+package com.example.camerabooking.config;
+
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.cluster.DatabaseStreamRegistry;
+import com.example.camerabooking.cluster.InMemoryStreamRegistry;
+import com.example.camerabooking.cluster.StreamRegistry;
+import com.example.camerabooking.repository.StreamRegistrationRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+
+import java.time.Duration;
+
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * Where stream ownership is recorded: {@code memory} for a single instance,
+     * {@code database} when several instances share the load.
+     */
+    @Bean
+    public StreamRegistry streamRegistry(@Value("${cluster.registry:memory}") String registry,
+                                         @Value("${cluster.registration-ttl:2m}") Duration registrationTtl,
+                                         StreamRegistrationRepository repository,
+                                         ClusterNode node) {
+        return switch (registry) {
+            case "memory" -> new InMemoryStreamRegistry();
+            case "database" -> new DatabaseStreamRegistry(repository, node.getId(), registrationTtl);
+            default -> throw new IllegalArgumentException("Unknown cluster.registry: " + registry);
+        };
+    }
+
+    /** Opens signaling connections to the instance that owns a stream. */
+    @Bean
+    public WebSocketClient signalingForwardClient() {
+        return new StandardWebSocketClient();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.camerabooking.config;
+
+import com.example.camerabooking.media.KurentoClientFactory;
+
+import org.kurento.client.KurentoClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class KurentoConfig {
+
+    @Bean
+    public KurentoClientFactory kurentoClientFactory() {
+        return KurentoClient::create;
+    }
+}
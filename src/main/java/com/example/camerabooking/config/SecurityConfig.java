@@ -1,5 +1,9 @@
 package com.example.camerabooking.config;
 
+import com.example.camerabooking.security.JwtAuthenticationFilter;
+import com.example.camerabooking.security.JwtService;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -7,14 +11,19 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 @Configuration
@@ -24,13 +33,16 @@ public class SecurityConfig {
     private static final Logger LOGGER = Logger.getLogger(SecurityConfig.class.getName());
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService) throws Exception {
         LOGGER.info("🔐 Configuring Spring Security...");
 
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/media-servers/**").hasRole("ADMIN")
+                // Owners and admins only; RecordingController checks ownership per booking
+                .requestMatchers("/recordings/**").authenticated()
                 .requestMatchers(
                     "/bookings/**",
                     "/api/users/**",
@@ -46,7 +58,8 @@ public class SecurityConfig {
                 ).permitAll()
                 .anyRequest().authenticated()
             )
-            .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+            .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -56,9 +69,22 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Hashes new passwords with the configured algorithm and cost. Stored hashes
+     * carry an {id} prefix; legacy unprefixed hashes are read as BCrypt and
+     * rehashed on the next successful login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.encoder:bcrypt}") String encoderId,
+                                           @Value("${security.password.bcrypt-strength:10}") int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(encoderId, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        LOGGER.info("🔑 Hashing new passwords with " + encoderId);
+        return encoder;
     }
 
     @Bean
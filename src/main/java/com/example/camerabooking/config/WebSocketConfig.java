@@ -2,16 +2,58 @@ package com.example.camerabooking.config;
 
 import com.example.camerabooking.websocket.StreamWebSocketHandler;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final StreamWebSocketHandler streamWebSocketHandler;
+
+    public WebSocketConfig(@Lazy StreamWebSocketHandler streamWebSocketHandler) {
+        this.streamWebSocketHandler = streamWebSocketHandler;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(new StreamWebSocketHandler(), "/ws").setAllowedOrigins("*");
+        registry.addHandler(streamWebSocketHandler, "/ws").setAllowedOrigins("*");
+    }
+
+    /**
+     * Workers for blocking Kurento calls made while handling signaling messages.
+     * Sessions never occupy more than one worker at a time.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService signalingExecutor(@Value("${signaling.worker-threads:32}") int workerThreads) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "signaling-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes queued outbound frames to clients. Each session is flushed by at
+     * most one worker at a time.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService outboundExecutor(@Value("${signaling.outbound.threads:8}") int threads) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "signaling-send-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,33 @@
 package com.example.camerabooking.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.example.camerabooking.dto.BookingExportFilter;
+import com.example.camerabooking.dto.BulkBookingRow;
+import com.example.camerabooking.dto.ExportFormat;
+import com.example.camerabooking.exception.SlotUnavailableException;
 import com.example.camerabooking.model.Booking;
 import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
 import com.example.camerabooking.service.BookingService;
+import com.example.camerabooking.service.BulkBookingService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -17,16 +36,55 @@ import java.util.List;
 @Slf4j
 public class BookingController {
 
+    private static final String DEFAULT_PAGE_SIZE = "50";
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private final BookingService bookingService;
+    private final BulkBookingService bulkBookingService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Get all bookings
+     * Get bookings one page at a time, ordered by creation time.
+     * Pass the returned nextCursor to fetch the following page.
      */
     @GetMapping
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        log.info("Fetching all bookings");
-        List<Booking> bookings = bookingService.getAllBookings();
-        return ResponseEntity.ok(bookings);
+    public ResponseEntity<?> getAllBookings(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        log.info("Fetching bookings page");
+        try {
+            return ResponseEntity.ok(bookingService.getBookings(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid booking cursor: {}", cursor);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Stream bookings matching the optional filters as NDJSON (default) or CSV
+     */
+    @GetMapping("/export")
+    public void exportBookings(@RequestParam(required = false) BookingStatus status,
+                               @RequestParam(required = false) EventType eventType,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+                               @RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid export format: {}", format);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid export format: " + format);
+            return;
+        }
+        log.info("Exporting bookings as {}", exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"bookings." + exportFormat.getExtension() + "\"");
+        bookingService.exportBookings(new BookingExportFilter(status, eventType, from, to), exportFormat,
+                response.getOutputStream());
     }
 
     /**
@@ -44,10 +102,57 @@ public class BookingController {
      * Create a new booking
      */
     @PostMapping
-    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking) {
+    public ResponseEntity<?> createBooking(@RequestBody Booking booking) {
         log.info("Creating a new booking: {}", booking);
-        Booking newBooking = bookingService.createBooking(booking);
-        return ResponseEntity.ok(newBooking);
+        try {
+            Booking newBooking = bookingService.createBooking(booking);
+            return ResponseEntity.ok(newBooking);
+        } catch (SlotUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Create many bookings from a JSON array, reporting the outcome of each row
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createBookingsInBulk(@RequestBody List<BulkBookingRow> rows) {
+        if (rows.size() > bulkBookingService.getMaxRows()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("At most " + bulkBookingService.getMaxRows() + " bookings per upload");
+        }
+        return ResponseEntity.ok(bulkBookingService.createBookings(rows));
+    }
+
+    /**
+     * Create many bookings from newline-delimited JSON, one booking per line
+     */
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    public ResponseEntity<?> createBookingsInBulkFromNdjson(InputStream body) throws IOException {
+        List<BulkBookingRow> rows = new ArrayList<>();
+        try (MappingIterator<BulkBookingRow> lines = objectMapper.readerFor(BulkBookingRow.class).readValues(body)) {
+            while (lines.hasNextValue()) {
+                if (rows.size() == bulkBookingService.getMaxRows()) {
+                    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                            .body("At most " + bulkBookingService.getMaxRows() + " bookings per upload");
+                }
+                rows.add(lines.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Malformed NDJSON bulk upload: {}", e.getOriginalMessage());
+            return ResponseEntity.badRequest().body("Malformed booking on line " + e.getLocation().getLineNr());
+        }
+        return ResponseEntity.ok(bulkBookingService.createBookings(rows));
+    }
+
+    /**
+     * Get dates from today that still have a free slot for an event type
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<List<LocalDate>> getAvailability(@RequestParam EventType eventType,
+                                                           @RequestParam(defaultValue = "90") int days) {
+        log.info("Fetching free {} dates for the next {} days", eventType, days);
+        return ResponseEntity.ok(bookingService.getFreeDates(eventType, days));
     }
 
     /**
@@ -60,6 +165,8 @@ public class BookingController {
             BookingStatus bookingStatus = BookingStatus.valueOf(status.toUpperCase());
             Booking updatedBooking = bookingService.updateBookingStatus(id, bookingStatus);
             return ResponseEntity.ok(updatedBooking);
+        } catch (SlotUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("Invalid booking status: {}", status);
             return ResponseEntity.badRequest().body("Invalid booking status: " + status);
@@ -77,22 +184,34 @@ public class BookingController {
     }
 
     /**
-     * Get all bookings for a specific user
+     * Get bookings for a specific user, one page at a time
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Booking>> getBookingsByUser(@PathVariable Long userId) {
+    public ResponseEntity<?> getBookingsByUser(@PathVariable Long userId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
         log.info("Fetching bookings for user ID: {}", userId);
-        List<Booking> userBookings = bookingService.getBookingsByUser(userId);
-        return ResponseEntity.ok(userBookings);
+        try {
+            return ResponseEntity.ok(bookingService.getBookingsByUser(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid booking cursor: {}", cursor);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
-     * Get all bookings by status (e.g., APPROVED, PENDING)
+     * Get bookings by status (e.g., APPROVED, PENDING), one page at a time
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Booking>> getBookingsByStatus(@PathVariable BookingStatus status) {
+    public ResponseEntity<?> getBookingsByStatus(@PathVariable BookingStatus status,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
         log.info("Fetching bookings with status: {}", status);
-        List<Booking> statusBookings = bookingService.getBookingsByStatus(status);
-        return ResponseEntity.ok(statusBookings);
+        try {
+            return ResponseEntity.ok(bookingService.getBookingsByStatus(status, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid booking cursor: {}", cursor);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.example.camerabooking.controller;
+
+import com.example.camerabooking.dto.MediaServerStatus;
+import com.example.camerabooking.media.KurentoPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/** Media server pool status and draining for maintenance. Admin only. */
+@RestController
+@RequestMapping("/media-servers")
+@RequiredArgsConstructor
+public class MediaServerController {
+
+    private final KurentoPool kurentoPool;
+
+    @GetMapping
+    public ResponseEntity<List<MediaServerStatus>> getStatus() {
+        return ResponseEntity.ok(kurentoPool.status());
+    }
+
+    @PostMapping("/{id}/drain")
+    public ResponseEntity<MediaServerStatus> drain(@PathVariable String id) {
+        return ResponseEntity.of(kurentoPool.drain(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<MediaServerStatus> resume(@PathVariable String id) {
+        return ResponseEntity.of(kurentoPool.resume(id));
+    }
+}
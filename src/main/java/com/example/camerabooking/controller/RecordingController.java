@@ -0,0 +1,142 @@
+package com.example.camerabooking.controller;
+
+import com.example.camerabooking.dto.RecordingSummary;
+import com.example.camerabooking.model.Recording;
+import com.example.camerabooking.repository.BookingRepository;
+import com.example.camerabooking.repository.RecordingRepository;
+import com.example.camerabooking.security.JwtService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finished stream recordings of a booking, and their files. Only the
+ * booking's customer and admins can see them; anyone else gets a 404, so
+ * recording and booking ids cannot be probed.
+ *
+ * With Tomcat's sendfile the connector writes files from the page cache to
+ * the socket itself, without copying them through the JVM. Otherwise the
+ * content is copied with {@link FileChannel#transferTo} into the servlet
+ * output stream, which goes through a small heap buffer a chunk at a time;
+ * memory use stays flat, but it is not zero-copy. A single byte range is
+ * honoured (206); several ranges get the whole file.
+ */
+@RestController
+@RequestMapping("/recordings")
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final RecordingRepository recordingRepository;
+    private final BookingRepository bookingRepository;
+
+    @GetMapping
+    public ResponseEntity<List<RecordingSummary>> getRecordings(@RequestParam String bookingId,
+                                                                Authentication authentication) {
+        if (!mayAccess(authentication, bookingId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(recordingRepository.findByBookingIdOrderByStartedAt(bookingId).stream()
+                .map(RecordingSummary::of)
+                .toList());
+    }
+
+    private boolean mayAccess(Authentication authentication, String bookingId) {
+        if (authentication == null || !(authentication.getDetails() instanceof JwtService.VerifiedToken token)) {
+            return false;
+        }
+        if ("ADMIN".equals(token.role())) {
+            return true;
+        }
+        try {
+            return bookingRepository.isOwnedBy(Long.valueOf(bookingId), token.userId());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @GetMapping("/{id}/content")
+    public void download(@PathVariable Long id, Authentication authentication,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Recording> recording = recordingRepository.findById(id)
+                .filter(found -> mayAccess(authentication, found.getBookingId()));
+        if (recording.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = Path.of(recording.get().getPath());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            long count = end - start + 1;
+            response.setContentType("video/webm");
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + file.getFileName() + "\"");
+            response.setContentLengthLong(count);
+            if (count <= 0) {
+                return;
+            }
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+            // Not a socket channel, so transferTo copies through a heap buffer here
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (count > 0) {
+                long sent = channel.transferTo(position, count, out);
+                if (sent <= 0) {
+                    break; // the file shrank under us
+                }
+                position += sent;
+                count -= sent;
+            }
+        } catch (NoSuchFileException e) {
+            log.warn("Recording {} is indexed but its file {} is gone", id, file);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
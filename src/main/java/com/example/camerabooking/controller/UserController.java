@@ -1,9 +1,11 @@
 package com.example.camerabooking.controller;
 
 import com.example.camerabooking.model.User;
+import com.example.camerabooking.security.JwtService;
 import com.example.camerabooking.service.UserService;
 import org.apache.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,6 +19,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JwtService jwtService;
+
     @PostMapping("/register")
     public ResponseEntity<User> registerUser(@RequestBody User user) {
         return ResponseEntity.ok(userService.registerUser(user));
@@ -64,6 +69,8 @@ public class UserController {
             response.put("email", authenticatedUser.getEmail());
             response.put("name", authenticatedUser.getName());
             response.put("role", authenticatedUser.getRole().name());
+            response.put("token", jwtService.issueToken(authenticatedUser));
+            response.put("tokenType", "Bearer");
             return ResponseEntity.ok(response);
         }
 
@@ -72,6 +79,14 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.SC_UNAUTHORIZED).body(errorResponse);
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            jwtService.revoke(authorization.substring("Bearer ".length()));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/send-otp")
     public ResponseEntity<Map<String, String>> sendOtp(@RequestParam String email) {
         try {
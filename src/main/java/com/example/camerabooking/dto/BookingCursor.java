@@ -0,0 +1,44 @@
+package com.example.camerabooking.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in the {@code (created_at, id)} ordering of bookings.
+ * Clients only ever see it as an opaque URL-safe token.
+ */
+public record BookingCursor(Date createdAt, long id) {
+
+    // Sorts before every real row, so the first page uses the same query as the rest
+    public static final BookingCursor START = new BookingCursor(new Date(0L), 0L);
+
+    public static BookingCursor of(BookingSummary last) {
+        return new BookingCursor(last.getCreatedAt(), last.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}; a null or blank token means the first page.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static BookingCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long createdAt = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new BookingCursor(new Date(createdAt), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
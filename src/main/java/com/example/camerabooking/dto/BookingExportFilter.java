@@ -0,0 +1,24 @@
+package com.example.camerabooking.dto;
+
+import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Optional filters for the booking export; null fields match everything.
+ * {@code from} and {@code to} are inclusive bounds on the booking date.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingExportFilter {
+
+    private BookingStatus status;
+    private EventType eventType;
+    private Date from;
+    private Date to;
+}
@@ -0,0 +1,20 @@
+package com.example.camerabooking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated booking listing.
+ * {@code nextCursor} is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingPage {
+
+    private List<BookingSummary> items;
+    private String nextCursor;
+}
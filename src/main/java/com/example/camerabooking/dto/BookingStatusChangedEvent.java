@@ -0,0 +1,12 @@
+package com.example.camerabooking.dto;
+
+import com.example.camerabooking.model.BookingStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Published after a booking's status has been saved. {@code status} is null
+ * when the booking was deleted.
+ */
+public record BookingStatusChangedEvent(Long bookingId, LocalDate bookingDate, BookingStatus status) {
+}
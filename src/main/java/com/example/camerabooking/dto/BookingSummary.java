@@ -0,0 +1,27 @@
+package com.example.camerabooking.dto;
+
+import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Lightweight read model of a booking used by the listing endpoints.
+ * Only carries the owning user's id, so listing never loads {@code User} rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummary {
+
+    private Long id;
+    private Long userId;
+    private EventType eventType;
+    private Date bookingDate;
+    private String address;
+    private BookingStatus status;
+    private Date createdAt;
+}
@@ -0,0 +1,21 @@
+package com.example.camerabooking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk upload with one result per submitted row, in submission order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkBookingReport {
+
+    private int received;
+    private int created;
+    private int rejected;
+    private List<BulkBookingResult> results;
+}
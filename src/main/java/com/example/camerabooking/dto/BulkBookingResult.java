@@ -0,0 +1,26 @@
+package com.example.camerabooking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one row of a bulk upload: the new booking id, or the reason it was rejected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkBookingResult {
+
+    private int index;
+    private Long bookingId;
+    private String error;
+
+    public static BulkBookingResult created(int index, long bookingId) {
+        return new BulkBookingResult(index, bookingId, null);
+    }
+
+    public static BulkBookingResult rejected(int index, String error) {
+        return new BulkBookingResult(index, null, error);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.camerabooking.dto;
+
+import com.example.camerabooking.model.EventType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * One booking in a bulk upload. Refers to its user by id only.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkBookingRow {
+
+    @NotNull(message = "userId is required")
+    private Long userId;
+
+    @NotNull(message = "eventType is required")
+    private EventType eventType;
+
+    @NotNull(message = "bookingDate is required")
+    private Date bookingDate;
+
+    @NotBlank(message = "address is required")
+    @Size(max = 255, message = "address must be at most 255 characters")
+    private String address;
+}
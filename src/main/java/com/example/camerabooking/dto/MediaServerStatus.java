@@ -0,0 +1,10 @@
+package com.example.camerabooking.dto;
+
+public record MediaServerStatus(String id,
+                                String url,
+                                boolean connected,
+                                boolean healthy,
+                                boolean draining,
+                                int pipelines,
+                                int endpoints) {
+}
@@ -0,0 +1,22 @@
+package com.example.camerabooking.dto;
+
+import com.example.camerabooking.model.Recording;
+
+import java.time.LocalDateTime;
+
+/** A finished recording segment as clients see it; where it lives on disk stays on the server. */
+public record RecordingSummary(Long id,
+                               String bookingId,
+                               String streamId,
+                               int segment,
+                               long sizeBytes,
+                               long durationMillis,
+                               LocalDateTime startedAt,
+                               LocalDateTime endedAt) {
+
+    public static RecordingSummary of(Recording recording) {
+        return new RecordingSummary(recording.getId(), recording.getBookingId(), recording.getStreamId(),
+                recording.getSegment(), recording.getSizeBytes(), recording.getDurationMillis(),
+                recording.getStartedAt(), recording.getEndedAt());
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.camerabooking.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the password hashing pool is saturated; clients should back off and retry.
+ */
+@ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS, reason = "Too many login attempts in progress, please retry shortly")
+public class HashingCapacityExceededException extends RuntimeException {
+
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.camerabooking.exception;
+
+/**
+ * Thrown when an outgoing email cannot be accepted right now, either because
+ * the recipient has hit their send limit or because the mail queue is full.
+ */
+public class MailRejectedException extends RuntimeException {
+
+    public MailRejectedException(String message) {
+        super(message);
+    }
+}
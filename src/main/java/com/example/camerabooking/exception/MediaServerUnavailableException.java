@@ -0,0 +1,8 @@
+package com.example.camerabooking.exception;
+
+public class MediaServerUnavailableException extends RuntimeException {
+
+    public MediaServerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.camerabooking.exception;
+
+import com.example.camerabooking.model.EventType;
+
+import java.time.LocalDate;
+
+/**
+ * Thrown when every photographer for an event type is already booked on the requested date.
+ */
+public class SlotUnavailableException extends RuntimeException {
+
+    public SlotUnavailableException(LocalDate date, EventType eventType) {
+        super("No " + eventType + " slot available on " + date);
+    }
+}
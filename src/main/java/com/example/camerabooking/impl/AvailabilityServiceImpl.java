@@ -0,0 +1,114 @@
+package com.example.camerabooking.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.model.EventType;
+import com.example.camerabooking.repository.BookingRepository;
+import com.example.camerabooking.service.AvailabilityService;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory calendar of booked slots per event type. Each (event type, date)
+ * holds the number of active bookings, which may not exceed the number of
+ * photographers configured for that event type.
+ *
+ * Reservations go through {@link ConcurrentHashMap#compute}, which locks only
+ * the bin holding that date, so concurrent creates for the same slot are
+ * serialized while other dates proceed in parallel.
+ */
+@Service
+@Slf4j
+public class AvailabilityServiceImpl implements AvailabilityService {
+
+    private static final int MAX_QUERY_DAYS = 366;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${availability.capacity.default:1}")
+    private int defaultCapacity;
+
+    private final Map<EventType, Integer> capacity = new EnumMap<>(EventType.class);
+    private final Map<EventType, ConcurrentHashMap<LocalDate, Integer>> booked = new EnumMap<>(EventType.class);
+
+    @PostConstruct
+    void warmUp() {
+        for (EventType eventType : EventType.values()) {
+            String key = "availability.capacity." + eventType.name().toLowerCase(Locale.ROOT);
+            capacity.put(eventType, environment.getProperty(key, Integer.class, defaultCapacity));
+            booked.put(eventType, new ConcurrentHashMap<>());
+        }
+
+        // Past dates can no longer be booked, so only upcoming slots are indexed
+        LocalDate today = LocalDate.now();
+        int slots = 0;
+        for (Object[] row : bookingRepository.countActiveByDateAndEventType(Date.valueOf(today))) {
+            LocalDate date = toLocalDate((java.util.Date) row[0]);
+            booked.get((EventType) row[1]).put(date, ((Number) row[2]).intValue());
+            slots++;
+        }
+        log.info("Availability calendar warmed with {} booked slots from {}; capacity {}", slots, today, capacity);
+    }
+
+    @Override
+    public List<LocalDate> getFreeDates(EventType eventType, int days) {
+        int limit = capacity.get(eventType);
+        Map<LocalDate, Integer> slots = booked.get(eventType);
+        LocalDate date = LocalDate.now();
+        List<LocalDate> free = new ArrayList<>();
+        for (int i = 0; i < Math.min(days, MAX_QUERY_DAYS); i++, date = date.plusDays(1)) {
+            if (slots.getOrDefault(date, 0) < limit) {
+                free.add(date);
+            }
+        }
+        return free;
+    }
+
+    @Override
+    public boolean tryReserve(Booking booking) {
+        int limit = capacity.get(booking.getEventType());
+        boolean[] reserved = new boolean[1];
+        booked.get(booking.getEventType()).compute(toLocalDate(booking.getBookingDate()), (date, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= limit) {
+                return count;
+            }
+            reserved[0] = true;
+            return current + 1;
+        });
+        return reserved[0];
+    }
+
+    @Override
+    public void release(Booking booking) {
+        booked.get(booking.getEventType()).computeIfPresent(toLocalDate(booking.getBookingDate()),
+                (date, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // JPA hands back java.sql.Date; JSON-bound bookings carry a plain java.util.Date
+    private static LocalDate toLocalDate(java.util.Date date) {
+        if (date instanceof Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
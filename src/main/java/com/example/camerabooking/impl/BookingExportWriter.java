@@ -0,0 +1,117 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.dto.BookingSummary;
+import com.example.camerabooking.dto.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Writes booking rows one at a time to an export stream, either as
+ * newline-delimited JSON or as CSV. Nothing is buffered beyond the writer's
+ * own output buffer, so memory use does not grow with the export size.
+ */
+abstract class BookingExportWriter implements Flushable {
+
+    static BookingExportWriter create(ExportFormat format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(out, objectMapper);
+            case CSV -> new CsvWriter(out);
+        };
+    }
+
+    abstract void write(BookingSummary row) throws IOException;
+
+    /** Flush buffered output; does not close the underlying response stream. */
+    @Override
+    public abstract void flush() throws IOException;
+
+    private static final class NdjsonWriter extends BookingExportWriter {
+
+        private final ObjectMapper objectMapper;
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.objectMapper = objectMapper;
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // One JSON document per line
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        void write(BookingSummary row) throws IOException {
+            objectMapper.writeValue(generator, row);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvWriter extends BookingExportWriter {
+
+        private static final String HEADER = "id,userId,eventType,bookingDate,address,status,createdAt";
+
+        private final Writer writer;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            writer.write(HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        void write(BookingSummary row) throws IOException {
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getUserId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getEventType()));
+            writer.write(',');
+            writer.write(format(dateFormat, row.getBookingDate()));
+            writer.write(',');
+            writer.write(escape(row.getAddress()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getStatus()));
+            writer.write(',');
+            writer.write(format(timestampFormat, row.getCreatedAt()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String format(SimpleDateFormat format, Date date) {
+            return date == null ? "" : format.format(date);
+        }
+
+        // RFC 4180 quoting: wrap in quotes and double any embedded quote
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
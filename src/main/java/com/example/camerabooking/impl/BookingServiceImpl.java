@@ -1,19 +1,37 @@
 package com.example.camerabooking.impl;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.camerabooking.dto.BookingCursor;
+import com.example.camerabooking.dto.BookingExportFilter;
+import com.example.camerabooking.dto.BookingPage;
+import com.example.camerabooking.dto.BookingStatusChangedEvent;
+import com.example.camerabooking.dto.BookingSummary;
+import com.example.camerabooking.dto.ExportFormat;
+import com.example.camerabooking.exception.SlotUnavailableException;
 import com.example.camerabooking.model.Booking;
 import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
 import com.example.camerabooking.repository.BookingRepository;
+import com.example.camerabooking.service.AvailabilityService;
 import com.example.camerabooking.service.BookingService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -23,10 +41,23 @@ public class BookingServiceImpl implements BookingService {
 	@Autowired
     private  BookingRepository bookingRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Override
-    public List<Booking> getAllBookings() {
-        log.info("Fetching all bookings");
-        return bookingRepository.findAll();
+    public BookingPage getBookings(String cursor, int limit) {
+        log.info("Fetching bookings page after cursor {}", cursor);
+        BookingCursor after = BookingCursor.decode(cursor);
+        int size = clampPageSize(limit);
+        return toPage(bookingRepository.findPageAfter(after.createdAt(), after.id(), PageRequest.of(0, size + 1)), size);
     }
 
     @Override
@@ -38,7 +69,21 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public Booking createBooking(Booking booking) {
         log.info("Creating new booking: {}", booking);
-        return bookingRepository.save(booking);
+        if (booking.getStatus() == null) {
+            booking.setStatus(BookingStatus.PENDING);
+        }
+        if (!holdsSlot(booking.getStatus())) {
+            return statusChanged(bookingRepository.save(booking));
+        }
+        reserveSlot(booking);
+        Booking saved;
+        try {
+            saved = bookingRepository.save(booking);
+        } catch (RuntimeException e) {
+            availabilityService.release(booking);
+            throw e;
+        }
+        return statusChanged(saved);
     }
 
     @Override
@@ -46,9 +91,26 @@ public class BookingServiceImpl implements BookingService {
         Optional<Booking> optionalBooking = bookingRepository.findById(id);
         if (optionalBooking.isPresent()) {
             Booking booking = optionalBooking.get();
+            boolean heldSlot = holdsSlot(booking.getStatus());
+            boolean needsSlot = holdsSlot(status);
+            if (needsSlot && !heldSlot) {
+                reserveSlot(booking);
+            }
             booking.setStatus(status);
             log.info("Updating booking ID {} to status {}", id, status);
-            return bookingRepository.save(booking);
+            Booking saved;
+            try {
+                saved = bookingRepository.save(booking);
+            } catch (RuntimeException e) {
+                if (needsSlot && !heldSlot) {
+                    availabilityService.release(booking);
+                }
+                throw e;
+            }
+            if (heldSlot && !needsSlot) {
+                availabilityService.release(saved);
+            }
+            return statusChanged(saved);
         } else {
             log.warn("Booking ID {} not found", id);
             return null;
@@ -58,19 +120,90 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public void deleteBooking(Long id) {
         log.warn("Deleting booking with ID: {}", id);
+        Optional<Booking> booking = bookingRepository.findById(id);
         bookingRepository.deleteById(id);
+        booking.filter(b -> holdsSlot(b.getStatus())).ifPresent(availabilityService::release);
+        booking.ifPresent(b -> eventPublisher.publishEvent(new BookingStatusChangedEvent(id, toLocalDate(b), null)));
+    }
+
+    @Override
+    public List<LocalDate> getFreeDates(EventType eventType, int days) {
+        return availabilityService.getFreeDates(eventType, days);
+    }
+
+    // Rejected bookings free their slot; pending and approved ones keep it
+    private static boolean holdsSlot(BookingStatus status) {
+        return status != BookingStatus.REJECTED;
+    }
+
+    // Listeners such as the streamable-bookings cache run before the caller gets the booking back
+    private Booking statusChanged(Booking booking) {
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(booking.getId(), toLocalDate(booking), booking.getStatus()));
+        return booking;
+    }
+
+    private static LocalDate toLocalDate(Booking booking) {
+        return new java.sql.Date(booking.getBookingDate().getTime()).toLocalDate();
+    }
+
+    private void reserveSlot(Booking booking) {
+        if (!availabilityService.tryReserve(booking)) {
+            log.warn("No {} slot left on {}", booking.getEventType(), booking.getBookingDate());
+            throw new SlotUnavailableException(toLocalDate(booking), booking.getEventType());
+        }
     }
 
     @Override
-    public List<Booking> getBookingsByUser(Long userId) {
+    public BookingPage getBookingsByUser(Long userId, String cursor, int limit) {
         log.info("Fetching bookings for user ID: {}", userId);
-        return bookingRepository.findByUserId(userId);
+        BookingCursor after = BookingCursor.decode(cursor);
+        int size = clampPageSize(limit);
+        return toPage(bookingRepository.findPageByUserAfter(userId, after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1)), size);
     }
 
     @Override
-    public List<Booking> getBookingsByStatus(BookingStatus status) {
+    public BookingPage getBookingsByStatus(BookingStatus status, String cursor, int limit) {
         log.info("Fetching bookings with status: {}", status);
-        return bookingRepository.findByStatus(status);
+        BookingCursor after = BookingCursor.decode(cursor);
+        int size = clampPageSize(limit);
+        return toPage(bookingRepository.findPageByStatusAfter(status, after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1)), size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBookings(BookingExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        log.info("Exporting bookings as {} with filter {}", format, filter);
+        BookingExportWriter writer = BookingExportWriter.create(format, out, objectMapper);
+        long count = 0;
+        try (Stream<BookingSummary> rows = bookingRepository.streamForExport(
+                filter.getStatus(), filter.getEventType(), filter.getFrom(), filter.getTo())) {
+            Iterator<BookingSummary> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                // Push each fetch batch to the client before pulling the next one
+                if (++count % BookingRepository.EXPORT_FETCH_SIZE == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        log.info("Exported {} bookings", count);
+        return count;
+    }
+
+    private static int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // Queries fetch one extra row; its presence tells us whether there is a next page
+    private static BookingPage toPage(List<BookingSummary> rows, int size) {
+        if (rows.size() <= size) {
+            return new BookingPage(rows, null);
+        }
+        List<BookingSummary> items = rows.subList(0, size);
+        return new BookingPage(items, BookingCursor.of(items.get(size - 1)).encode());
     }
 
 	
@@ -0,0 +1,145 @@
+package com.example.camerabooking.impl;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.camerabooking.dto.BulkBookingReport;
+import com.example.camerabooking.dto.BulkBookingResult;
+import com.example.camerabooking.dto.BulkBookingRow;
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.repository.BookingBatchRepository;
+import com.example.camerabooking.repository.UserRepository;
+import com.example.camerabooking.service.AvailabilityService;
+import com.example.camerabooking.service.BulkBookingService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@Slf4j
+public class BulkBookingServiceImpl implements BulkBookingService {
+
+    // Keeps the IN list of the user lookup well below driver and optimizer limits
+    private static final int USER_LOOKUP_CHUNK = 1000;
+
+    @Autowired
+    private BookingBatchRepository bookingBatchRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${booking.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${booking.bulk.max-rows:10000}")
+    private int maxRows;
+
+    @Override
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    @Override
+    public BulkBookingReport createBookings(List<BulkBookingRow> rows) {
+        log.info("Bulk upload of {} bookings", rows.size());
+        BulkBookingResult[] results = new BulkBookingResult[rows.size()];
+
+        // Bean validation is CPU-only and independent per row
+        IntStream.range(0, rows.size()).parallel().forEach(i -> {
+            if (rows.get(i) == null) {
+                results[i] = BulkBookingResult.rejected(i, "Row is empty");
+                return;
+            }
+            Set<ConstraintViolation<BulkBookingRow>> violations = validator.validate(rows.get(i));
+            if (!violations.isEmpty()) {
+                results[i] = BulkBookingResult.rejected(i, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+        });
+
+        Set<Long> knownUsers = findExistingUsers(rows, results);
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            BulkBookingRow row = rows.get(i);
+            if (!knownUsers.contains(row.getUserId())) {
+                results[i] = BulkBookingResult.rejected(i, "User not found: " + row.getUserId());
+            } else if (!availabilityService.tryReserve(toBooking(row))) {
+                results[i] = BulkBookingResult.rejected(i, "No " + row.getEventType() + " slot available on that date");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        Date createdAt = new Date();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Integer> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            insertBatch(rows, batch, createdAt, results);
+        }
+
+        int created = (int) Arrays.stream(results).filter(r -> r.getBookingId() != null).count();
+        log.info("Bulk upload finished: {} created, {} rejected", created, rows.size() - created);
+        return new BulkBookingReport(rows.size(), created, rows.size() - created, Arrays.asList(results));
+    }
+
+    private Set<Long> findExistingUsers(List<BulkBookingRow> rows, BulkBookingResult[] results) {
+        List<Long> userIds = IntStream.range(0, rows.size())
+                .filter(i -> results[i] == null)
+                .mapToObj(i -> rows.get(i).getUserId())
+                .distinct()
+                .toList();
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < userIds.size(); from += USER_LOOKUP_CHUNK) {
+            existing.addAll(userRepository.findExistingIds(
+                    userIds.subList(from, Math.min(from + USER_LOOKUP_CHUNK, userIds.size()))));
+        }
+        return existing;
+    }
+
+    private void insertBatch(List<BulkBookingRow> rows, List<Integer> batch, Date createdAt, BulkBookingResult[] results) {
+        List<BulkBookingRow> batchRows = batch.stream().map(rows::get).toList();
+        try {
+            List<Long> ids = bookingBatchRepository.insertAll(batchRows, createdAt);
+            for (int j = 0; j < batch.size(); j++) {
+                results[batch.get(j)] = BulkBookingResult.created(batch.get(j), ids.get(j));
+            }
+        } catch (RuntimeException e) {
+            // The batch rolled back as a whole, so none of its rows holds a booking
+            log.error("Bulk insert of {} bookings failed: {}", batch.size(), e.getMessage());
+            for (int j = 0; j < batch.size(); j++) {
+                availabilityService.release(toBooking(batchRows.get(j)));
+                results[batch.get(j)] = BulkBookingResult.rejected(batch.get(j), "Insert failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Transient booking carrying just what the availability calendar needs
+    private static Booking toBooking(BulkBookingRow row) {
+        Booking booking = new Booking();
+        booking.setEventType(row.getEventType());
+        booking.setBookingDate(row.getBookingDate());
+        return booking;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.repository.UserRepository;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every registered email, so "is this email taken?" can
+ * answer a definite no without a query.
+ *
+ * Emails are only ever added; deleted or changed addresses linger as false
+ * positives until the next scheduled rebuild from a streaming scan of
+ * {@code users}. Until the first build completes every lookup is a "maybe".
+ */
+@Component
+@Slf4j
+public class EmailBloomFilter {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer rebuildTimer;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+
+    private volatile BloomFilter<CharSequence> current;
+    // Filter being rebuilt; registrations during the scan are added to it as well
+    private volatile BloomFilter<CharSequence> building;
+    private volatile long capacity;
+
+    public EmailBloomFilter(UserRepository userRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${users.email-filter.min-capacity:10000}") long minCapacity) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.rebuildTimer = Timer.builder("users.email_filter.rebuild").register(meterRegistry);
+        Gauge.builder("users.email_filter.capacity", this, f -> f.capacity).register(meterRegistry);
+        Gauge.builder("users.email_filter.elements", this,
+                f -> f.current == null ? 0 : f.current.approximateElementCount()).register(meterRegistry);
+        Gauge.builder("users.email_filter.false_positive_rate", this,
+                f -> f.current == null ? 1.0 : f.current.expectedFpp()).register(meterRegistry);
+    }
+
+    /** False means the email is definitely not registered; true means it may be. */
+    public boolean mightContain(String email) {
+        BloomFilter<CharSequence> filter = current;
+        return filter == null || filter.mightContain(normalize(email));
+    }
+
+    public void add(String email) {
+        String key = normalize(email);
+        BloomFilter<CharSequence> next = building;
+        if (next != null) {
+            next.put(key);
+        }
+        BloomFilter<CharSequence> filter = current;
+        if (filter != null) {
+            filter.put(key);
+        }
+    }
+
+    @Scheduled(initialDelayString = "0", fixedDelayString = "${users.email-filter.rebuild-interval:6h}")
+    public synchronized void rebuild() {
+        rebuildTimer.record(() -> {
+            // Leave headroom so the error rate holds until the next rebuild
+            long size = Math.max(minCapacity, userRepository.count() * 2);
+            BloomFilter<CharSequence> next = BloomFilter.create(
+                    Funnels.stringFunnel(StandardCharsets.UTF_8), size, falsePositiveRate);
+            building = next;
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<String> emails = userRepository.streamAllEmails()) {
+                        emails.forEach(email -> next.put(normalize(email)));
+                    }
+                });
+                current = next;
+                capacity = size;
+            } finally {
+                building = null;
+            }
+            log.info("Rebuilt email filter for ~{} emails (capacity {})", next.approximateElementCount(), size);
+        });
+    }
+
+    // The users.email column compares case-insensitively, so the filter must too
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.model.StreamEvent;
+import com.example.camerabooking.model.StreamEventType;
+import com.example.camerabooking.repository.StreamEventBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Write-behind log of stream starts and stops per booking.
+ *
+ * Recording only queues the event, so the signaling path never waits on the
+ * database. A scheduled flush drains the queue in JDBC batches; a batch that
+ * fails goes back to the head of the queue and is retried on the next flush.
+ * Once the queue is full, new events are dropped and counted rather than
+ * blocking the caller.
+ */
+@Component
+@Slf4j
+public class StreamEventLog {
+
+    private final StreamEventBatchRepository repository;
+    private final ClusterNode node;
+    private final int batchSize;
+    private final BlockingDeque<StreamEvent> pending;
+    private final Counter written;
+    private final Counter dropped;
+
+    public StreamEventLog(StreamEventBatchRepository repository,
+                          ClusterNode node,
+                          MeterRegistry meterRegistry,
+                          @Value("${streams.events.batch-size:200}") int batchSize,
+                          @Value("${streams.events.queue-capacity:10000}") int queueCapacity) {
+        this.repository = repository;
+        this.node = node;
+        this.batchSize = batchSize;
+        this.pending = new LinkedBlockingDeque<>(queueCapacity);
+        this.written = meterRegistry.counter("streams.events.written");
+        this.dropped = meterRegistry.counter("streams.events.dropped");
+        Gauge.builder("streams.events.pending", pending, BlockingDeque::size).register(meterRegistry);
+    }
+
+    public void started(String bookingId, String streamId) {
+        record(bookingId, streamId, StreamEventType.STARTED);
+    }
+
+    public void stopped(String bookingId, String streamId) {
+        record(bookingId, streamId, StreamEventType.STOPPED);
+    }
+
+    private void record(String bookingId, String streamId, StreamEventType type) {
+        StreamEvent event = new StreamEvent(null, bookingId, streamId, type, node.getId(), LocalDateTime.now());
+        if (!pending.offerLast(event)) {
+            dropped.increment();
+            log.warn("Stream event queue full, dropped {} of stream {}", type, streamId);
+        }
+    }
+
+    // Scheduled flushes never overlap; the shutdown flush runs after the scheduler has stopped
+    @Scheduled(fixedDelayString = "${streams.events.flush-interval:2s}")
+    public void flush() {
+        List<StreamEvent> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            try {
+                repository.insertAll(batch);
+                written.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.error("Failed to write {} stream events: {}", batch.size(), e.getMessage());
+                requeue(batch);
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    // Back to the head in their original order; whatever no longer fits is lost
+    private void requeue(List<StreamEvent> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!pending.offerFirst(batch.get(i))) {
+                dropped.increment(i + 1);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
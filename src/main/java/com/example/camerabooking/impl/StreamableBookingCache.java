@@ -0,0 +1,84 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.dto.BookingStatusChangedEvent;
+import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.repository.BookingRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of the bookings that may go live right now: APPROVED and booked for
+ * today. Lookups read a volatile snapshot and never touch the database.
+ *
+ * Status changes made through this instance are applied as they happen from
+ * {@link BookingStatusChangedEvent}; the whole set is reloaded on a fixed
+ * interval, which also picks up changes made on other instances, and when
+ * the day rolls over. Reloads and events are serialized, so an event that
+ * lands during a reload is applied to the new set rather than lost.
+ */
+@Component
+@Slf4j
+public class StreamableBookingCache {
+
+    private final BookingRepository bookingRepository;
+    private volatile Snapshot snapshot = new Snapshot(LocalDate.MIN, Set.of());
+
+    private record Snapshot(LocalDate day, Set<Long> ids) {
+    }
+
+    public StreamableBookingCache(BookingRepository bookingRepository, MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        Gauge.builder("streams.bookings.streamable", this, cache -> cache.snapshot.ids().size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void warmUp() {
+        reload();
+    }
+
+    /** Whether the booking id (as sent in signaling) is approved and scheduled for today. */
+    public boolean isStreamable(String bookingId) {
+        Long id;
+        try {
+            id = Long.valueOf(bookingId);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        Snapshot current = snapshot;
+        if (!current.day().equals(LocalDate.now())) {
+            reload();
+            current = snapshot;
+        }
+        return current.ids().contains(id);
+    }
+
+    @Scheduled(initialDelayString = "${streams.bookings.refresh-interval:5m}",
+            fixedDelayString = "${streams.bookings.refresh-interval:5m}")
+    public synchronized void reload() {
+        LocalDate today = LocalDate.now();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ids.addAll(bookingRepository.findIdsByStatusAndDate(BookingStatus.APPROVED, Date.valueOf(today)));
+        snapshot = new Snapshot(today, ids);
+        log.debug("Loaded {} streamable bookings for {}", ids.size(), today);
+    }
+
+    @EventListener
+    public synchronized void onStatusChanged(BookingStatusChangedEvent event) {
+        Snapshot current = snapshot;
+        if (event.status() == BookingStatus.APPROVED && current.day().equals(event.bookingDate())) {
+            current.ids().add(event.bookingId());
+        } else {
+            current.ids().remove(event.bookingId());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-based read-through cache of users keyed by id, with a
+ * secondary email -> id index.
+ *
+ * Callers always get their own copy of a cached user, so nothing outside
+ * this class can change a cached entry. Every write to a user must be
+ * followed by {@link #evict} so password hashes and OTP state are never
+ * served stale.
+ *
+ * Loads by id go through Caffeine, which blocks an invalidation until the
+ * load of that key has finished. Loads by email cannot, since the id is only
+ * known afterwards; they note the eviction count before querying and only
+ * cache the row if no eviction happened since, checked and stored atomically
+ * against {@link #evict}. A row read before a concurrent write is therefore
+ * returned to its caller but never cached.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<Long, User> byId;
+    private final Cache<String, Long> idByEmail;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserCache(@Value("${users.cache.max-size:10000}") long maxSize,
+                     @Value("${users.cache.ttl:5m}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.idByEmail = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "users.idByEmail");
+    }
+
+    public Optional<User> getById(Long id, Function<Long, Optional<User>> loader) {
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null))).map(UserCache::copyOf);
+    }
+
+    public Optional<User> getByEmail(String email, Function<String, Optional<User>> loader) {
+        String key = normalize(email);
+        Long id = idByEmail.getIfPresent(key);
+        if (id != null) {
+            User cached = byId.getIfPresent(id);
+            // The index may outlive the user entry or point at a user whose email has since changed
+            if (cached != null && key.equals(normalize(cached.getEmail()))) {
+                return Optional.of(copyOf(cached));
+            }
+        }
+        long evictionsBefore = evictions.get();
+        Optional<User> loaded = loader.apply(email);
+        loaded.ifPresent(user -> cacheIfUnchanged(user, evictionsBefore));
+        return loaded.map(UserCache::copyOf);
+    }
+
+    private void cacheIfUnchanged(User user, long evictionsBefore) {
+        User copy = copyOf(user);
+        // Same bin lock as evict(), so an eviction lands either before this check or after the entry exists
+        User cached = byId.asMap().compute(copy.getId(),
+                (id, current) -> evictions.get() == evictionsBefore ? copy : current);
+        if (cached == copy) {
+            idByEmail.put(normalize(copy.getEmail()), copy.getId());
+        }
+    }
+
+    /** Drop a user and its email mapping; pass every email the user may have been cached under. */
+    public void evict(Long id, String... emails) {
+        // Like invalidate(), this waits out a load of the same id still in flight
+        byId.asMap().compute(id, (key, current) -> {
+            evictions.incrementAndGet();
+            return null;
+        });
+        for (String email : emails) {
+            if (email != null) {
+                idByEmail.invalidate(normalize(email));
+            }
+        }
+    }
+
+    // Email lookups are case-insensitive in the database, so the index is too
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setRole(user.getRole());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setMobileNumber(user.getMobileNumber());
+        copy.setOtpCode(user.getOtpCode());
+        copy.setOtpExpiry(user.getOtpExpiry());
+        return copy;
+    }
+}
@@ -1,45 +1,67 @@
 package com.example.camerabooking.impl;
 
+import com.example.camerabooking.exception.MailRejectedException;
+import com.example.camerabooking.mail.MailDispatcher;
 import com.example.camerabooking.model.User;
+import com.example.camerabooking.otp.OtpStore;
 import com.example.camerabooking.repository.UserRepository;
+import com.example.camerabooking.security.PasswordHashingExecutor;
 import com.example.camerabooking.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
+@Slf4j
 public class UserServiceImpl implements UserService {
 
+    private static final Duration OTP_VALIDITY = Duration.ofMinutes(10);
+    private static final SecureRandom OTP_RANDOM = new SecureRandom();
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHasher;
+
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
+    @Autowired
+    private UserCache userCache;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private OtpStore otpStore;
 
     @Override
     public User registerUser(User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        user.setPassword(passwordHasher.encode(user.getPassword()));
+        User saved = userRepository.save(user);
+        userCache.evict(saved.getId(), saved.getEmail());
+        emailBloomFilter.add(saved.getEmail());
+        return saved;
     }
 
     @Override
     public boolean existsByEmail(String email) {
-        return userRepository.existsByEmail(email);
+        if (!emailBloomFilter.mightContain(email)) {
+            return false;
+        }
+        return userCache.getByEmail(email, userRepository::findByEmail).isPresent();
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return userCache.getByEmail(email, userRepository::findByEmail);
     }
 
     @Override
@@ -49,41 +71,64 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return userCache.getById(id, userRepository::findById);
     }
 
     @Override
     public void updateUserById(Long id, User user) {
         Optional<User> existingUser = userRepository.findById(id);
         existingUser.ifPresent(u -> {
+            String previousEmail = u.getEmail();
             u.setName(user.getName());
             u.setEmail(user.getEmail());
             u.setRole(user.getRole());
             if (user.getPassword() != null && !user.getPassword().isEmpty()) {
-                u.setPassword(passwordEncoder.encode(user.getPassword()));
+                u.setPassword(passwordHasher.encode(user.getPassword()));
             }
-            userRepository.save(u);
+            User saved = userRepository.save(u);
+            emailBloomFilter.add(saved.getEmail());
+            userCache.evict(id, previousEmail, saved.getEmail());
         });
     }
 
     @Override
     public void deleteUserById(Long id) {
         userRepository.deleteById(id);
+        userCache.evict(id);
     }
 
     @Override
     public User authenticateUser(User user) {
-        Optional<User> existingUser = userRepository.findByEmail(user.getEmail());
+        Optional<User> existingUser = userCache.getByEmail(user.getEmail(), userRepository::findByEmail);
         if (existingUser.isPresent() &&
-            passwordEncoder.matches(user.getPassword(), existingUser.get().getPassword())) {
-            return existingUser.get();
+            passwordHasher.matches(user.getPassword(), existingUser.get().getPassword())) {
+            User authenticated = existingUser.get();
+            if (passwordHasher.upgradeEncoding(authenticated.getPassword())) {
+                rehashInBackground(authenticated, user.getPassword());
+            }
+            return authenticated;
         }
         return null;
     }
 
+    // Move an old or cheaper hash to the current algorithm and cost, off the login path
+    private void rehashInBackground(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        passwordHasher.encodeInBackground(rawPassword).whenComplete((newHash, error) -> {
+            if (error != null) {
+                log.debug("Skipped password rehash for user {}: {}", user.getId(), error.getMessage());
+                return;
+            }
+            if (userRepository.rehashPassword(user.getId(), oldHash, newHash) > 0) {
+                userCache.evict(user.getId(), user.getEmail());
+                log.info("Rehashed password for user {}", user.getId());
+            }
+        });
+    }
+
     @Override
     public void sendResetPasswordEmail(String email) {
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userCache.getByEmail(email, userRepository::findByEmail);
 
         if (userOpt.isEmpty()) {
             throw new RuntimeException("Email not found. Please register or check your email.");
@@ -92,10 +137,8 @@ public class UserServiceImpl implements UserService {
         User user = userOpt.get();
 
         // Generate 6-digit OTP
-        String otp = String.valueOf(new Random().nextInt(900000) + 100000);
-        user.setOtpCode(otp);
-        user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-        userRepository.save(user);
+        String otp = String.valueOf(OTP_RANDOM.nextInt(900000) + 100000);
+        OtpStore.Issued issued = otpStore.issue(email, otp, OTP_VALIDITY);
 
         // Create and send a friendlier, more readable email
         SimpleMailMessage message = new SimpleMailMessage();
@@ -122,20 +165,19 @@ public class UserServiceImpl implements UserService {
         // Optional: Set from address if needed
         // message.setFrom("your_email@gmail.com");
 
-        mailSender.send(message);
+        // Delivery happens on the mail workers; the request returns once the OTP is stored
+        try {
+            mailDispatcher.enqueue(message);
+        } catch (MailRejectedException e) {
+            // No mail goes out, so the code the user may already have must stay valid
+            otpStore.revert(issued);
+            throw e;
+        }
     }
 
     @Override
     public boolean verifyOtp(String email, String otp) {
-        Optional<User> userOpt = userRepository.findByEmail(email);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            return user.getOtpCode() != null &&
-                   user.getOtpCode().equals(otp) &&
-                   user.getOtpExpiry() != null &&
-                   user.getOtpExpiry().isAfter(LocalDateTime.now());
-        }
-        return false;
+        return otpStore.verify(email, otp);
     }
 
     @Override
@@ -143,10 +185,12 @@ public class UserServiceImpl implements UserService {
         Optional<User> userOpt = userRepository.findByEmail(email);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            user.setPassword(passwordEncoder.encode(newPassword));
+            user.setPassword(passwordHasher.encode(newPassword));
             user.setOtpCode(null); // Clear OTP after use
             user.setOtpExpiry(null);
-            userRepository.save(user);
+            User saved = userRepository.save(user);
+            userCache.evict(saved.getId(), email, saved.getEmail());
+            otpStore.invalidate(email);
         }
     }
 
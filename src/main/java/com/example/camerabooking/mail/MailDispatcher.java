@@ -0,0 +1,211 @@
+package com.example.camerabooking.mail;
+
+import com.example.camerabooking.exception.MailRejectedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends mail off the request thread.
+ *
+ * Messages go into a bounded queue drained by a small worker pool. Each
+ * worker keeps its own SMTP connection open between messages, so the
+ * handshake and STARTTLS are paid once per worker rather than once per
+ * email. Failed sends are retried with exponential backoff, and every
+ * recipient is limited to a fixed number of messages per window.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private final JavaMailSender mailSender;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+    private final Cache<String, AtomicInteger> sentPerRecipient;
+    private final int perRecipientLimit;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    // One open SMTP connection per worker thread
+    private final ThreadLocal<Transport> transport = new ThreadLocal<>();
+    private final Set<Transport> openTransports = ConcurrentHashMap.newKeySet();
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter rejected;
+    private final Counter connections;
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          MeterRegistry meterRegistry,
+                          @Value("${mail.dispatch.workers:2}") int workerCount,
+                          @Value("${mail.dispatch.queue-capacity:500}") int queueCapacity,
+                          @Value("${mail.dispatch.max-attempts:4}") int maxAttempts,
+                          @Value("${mail.dispatch.initial-backoff:2s}") Duration initialBackoff,
+                          @Value("${mail.dispatch.per-recipient-limit:3}") int perRecipientLimit,
+                          @Value("${mail.dispatch.per-recipient-window:10m}") Duration perRecipientWindow) {
+        this.mailSender = mailSender;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.perRecipientLimit = perRecipientLimit;
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "mail-dispatch-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The window starts at a recipient's first message; incrementing does not extend it
+        this.sentPerRecipient = Caffeine.newBuilder().expireAfterWrite(perRecipientWindow).build();
+
+        this.sent = meterRegistry.counter("mail.dispatch.sent");
+        this.failed = meterRegistry.counter("mail.dispatch.failed");
+        this.retried = meterRegistry.counter("mail.dispatch.retried");
+        this.rejected = meterRegistry.counter("mail.dispatch.rejected");
+        this.connections = meterRegistry.counter("mail.dispatch.connections");
+        Gauge.builder("mail.dispatch.queue.size", workers, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Queue a message for delivery and return immediately.
+     *
+     * @throws MailRejectedException if a recipient is over their limit or the queue is full
+     */
+    public void enqueue(SimpleMailMessage message) {
+        if (message.getTo() != null) {
+            for (String recipient : message.getTo()) {
+                AtomicInteger count = sentPerRecipient.get(recipient.toLowerCase(Locale.ROOT), key -> new AtomicInteger());
+                if (count.incrementAndGet() > perRecipientLimit) {
+                    rejected.increment();
+                    throw new MailRejectedException("Too many emails requested. Please try again later.");
+                }
+            }
+        }
+        try {
+            workers.execute(() -> deliver(message, 1));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new MailRejectedException("Mail service is busy. Please try again shortly.");
+        }
+    }
+
+    private void deliver(SimpleMailMessage message, int attempt) {
+        try {
+            send(message);
+            sent.increment();
+        } catch (MailException | MessagingException e) {
+            closeTransport();
+            if (attempt >= maxAttempts) {
+                failed.increment();
+                logger.error("Giving up on mail to {} after {} attempts: {}",
+                        String.join(",", message.getTo()), attempt, e.getMessage());
+                return;
+            }
+            long delay = initialBackoff.toMillis() << (attempt - 1);
+            retried.increment();
+            logger.warn("Mail to {} failed (attempt {}), retrying in {} ms: {}",
+                    String.join(",", message.getTo()), attempt, delay, e.getMessage());
+            retryScheduler.schedule(() -> {
+                try {
+                    workers.execute(() -> deliver(message, attempt + 1));
+                } catch (RejectedExecutionException rejectedRetry) {
+                    failed.increment();
+                    logger.error("Mail queue full, dropping retry for {}", String.join(",", message.getTo()));
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(SimpleMailMessage message) throws MessagingException {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            mailSender.send(message);
+            return;
+        }
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mimeMessage));
+        mimeMessage.saveChanges();
+        Transport connection = connectedTransport(sender);
+        connection.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+    }
+
+    private Transport connectedTransport(JavaMailSenderImpl sender) throws MessagingException {
+        Transport connection = transport.get();
+        // isConnected() probes with NOOP, so servers that dropped an idle connection are caught here
+        if (connection != null && connection.isConnected()) {
+            return connection;
+        }
+        closeTransport();
+        String protocol = sender.getProtocol();
+        if (protocol == null) {
+            protocol = sender.getSession().getProperty("mail.transport.protocol");
+        }
+        connection = sender.getSession().getTransport(protocol == null ? "smtp" : protocol);
+        connection.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        connections.increment();
+        transport.set(connection);
+        openTransports.add(connection);
+        return connection;
+    }
+
+    private void closeTransport() {
+        Transport connection = transport.get();
+        if (connection == null) {
+            return;
+        }
+        transport.remove();
+        openTransports.remove(connection);
+        try {
+            connection.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        for (Transport connection : openTransports) {
+            try {
+                connection.close();
+            } catch (MessagingException e) {
+                logger.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.camerabooking.media;
+
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoConnectionListener;
+
+/**
+ * Opens a connection to one media server. The default is
+ * {@link KurentoClient#create(String, KurentoConnectionListener)}; tests plug in a fake.
+ */
+@FunctionalInterface
+public interface KurentoClientFactory {
+
+    KurentoClient connect(String url, KurentoConnectionListener listener);
+}
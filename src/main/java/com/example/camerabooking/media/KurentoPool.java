@@ -0,0 +1,209 @@
+package com.example.camerabooking.media;
+
+import com.example.camerabooking.dto.MediaServerStatus;
+import com.example.camerabooking.exception.MediaServerUnavailableException;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.kurento.client.MediaPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pool of Kurento media servers. New pipelines go to the least-loaded
+ * available server, or to the server a consistent hash of the placement key
+ * (the booking id) maps to, skipping servers that are down, draining or at
+ * their endpoint cap. If the chosen server fails, the next candidate is tried.
+ *
+ * Servers are checked on a dedicated thread so a hanging connection attempt
+ * never delays the application's other scheduled jobs.
+ */
+@Component
+public class KurentoPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(KurentoPool.class);
+
+    private static final HashFunction RING_HASH = Hashing.murmur3_32_fixed();
+
+    public enum Placement {
+        LEAST_LOADED, CONSISTENT_HASH;
+
+        static Placement parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    public record PlacedPipeline(MediaServerNode server, MediaPipeline pipeline) {
+    }
+
+    private final Map<String, MediaServerNode> nodes = new LinkedHashMap<>();
+    private final NavigableMap<Integer, MediaServerNode> ring = new TreeMap<>();
+    private final List<Consumer<MediaServerNode>> mediaLostListeners = new CopyOnWriteArrayList<>();
+    private final Placement placement;
+    private final Duration healthCheckInterval;
+    private ScheduledExecutorService healthChecker;
+
+    public KurentoPool(KurentoClientFactory clientFactory,
+                       MeterRegistry meterRegistry,
+                       @Value("${kurento.urls}") String[] urls,
+                       @Value("${kurento.placement:least-loaded}") String placement,
+                       @Value("${kurento.health-check-interval:10s}") Duration healthCheckInterval,
+                       @Value("${kurento.hash-replicas:100}") int hashReplicas,
+                       @Value("${kurento.max-endpoints-per-server:0}") int maxEndpointsPerServer) {
+        this.placement = Placement.parse(placement);
+        this.healthCheckInterval = healthCheckInterval;
+
+        for (int i = 0; i < urls.length; i++) {
+            String id = "kms-" + i;
+            MediaServerNode node = new MediaServerNode(id, urls[i].trim(), clientFactory, this::mediaLost, maxEndpointsPerServer);
+            nodes.put(id, node);
+            for (int replica = 0; replica < hashReplicas; replica++) {
+                ring.put(hash(id + "#" + replica), node);
+            }
+            Gauge.builder("kurento.server.pipelines", node, n -> n.status().pipelines())
+                    .tag("server", id).register(meterRegistry);
+            Gauge.builder("kurento.server.endpoints", node, n -> n.status().endpoints())
+                    .tag("server", id).register(meterRegistry);
+            Gauge.builder("kurento.server.available", node, n -> n.isAvailable() ? 1 : 0)
+                    .tag("server", id).register(meterRegistry);
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("kurento.urls must list at least one media server");
+        }
+    }
+
+    @PostConstruct
+    void startHealthChecks() {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kurento-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        nodes.values().forEach(MediaServerNode::closeClient);
+    }
+
+    /**
+     * Create a pipeline on the best available server for this key.
+     *
+     * @throws MediaServerUnavailableException if no server could create one
+     */
+    public PlacedPipeline createPipeline(String placementKey) {
+        List<MediaServerNode> candidates = candidates(placementKey);
+        if (candidates.isEmpty()) {
+            throw new MediaServerUnavailableException("No media server is available");
+        }
+        for (MediaServerNode node : candidates) {
+            try {
+                return new PlacedPipeline(node, node.createMediaPipeline());
+            } catch (RuntimeException e) {
+                logger.warn("Could not create pipeline on media server {}, trying next: {}", node.getId(), e.getMessage());
+            }
+        }
+        throw new MediaServerUnavailableException("All media servers failed to create a pipeline");
+    }
+
+    /** Called when a server's pipelines are gone (disconnect, failed health check or server restart). */
+    public void addMediaLostListener(Consumer<MediaServerNode> listener) {
+        mediaLostListeners.add(listener);
+    }
+
+    public List<MediaServerStatus> status() {
+        return nodes.values().stream().map(MediaServerNode::status).toList();
+    }
+
+    /** Stop placing new pipelines on a server; existing streams keep running. */
+    public Optional<MediaServerStatus> drain(String id) {
+        return Optional.ofNullable(nodes.get(id)).map(node -> {
+            node.drain();
+            return node.status();
+        });
+    }
+
+    public Optional<MediaServerStatus> resume(String id) {
+        return Optional.ofNullable(nodes.get(id)).map(node -> {
+            node.resume();
+            return node.status();
+        });
+    }
+
+    Placement placement() {
+        return placement;
+    }
+
+    Collection<MediaServerNode> nodes() {
+        return nodes.values();
+    }
+
+    void checkHealth() {
+        for (MediaServerNode node : nodes.values()) {
+            node.checkHealth();
+        }
+    }
+
+    // Available servers in the order they should be tried
+    List<MediaServerNode> candidates(String placementKey) {
+        if (placement == Placement.CONSISTENT_HASH && placementKey != null) {
+            Set<MediaServerNode> ordered = new LinkedHashSet<>();
+            int start = hash(placementKey);
+            ring.tailMap(start, true).values().forEach(ordered::add);
+            ring.headMap(start, false).values().forEach(ordered::add);
+            return ordered.stream().filter(node -> node.isAvailable() && node.hasEndpointCapacity()).toList();
+        }
+        List<MediaServerNode> available = new ArrayList<>();
+        for (MediaServerNode node : nodes.values()) {
+            if (node.isAvailable() && node.hasEndpointCapacity()) {
+                available.add(node);
+            }
+        }
+        available.sort(Comparator.comparingInt(MediaServerNode::load));
+        return available;
+    }
+
+    private void mediaLost(MediaServerNode node) {
+        for (Consumer<MediaServerNode> listener : mediaLostListeners) {
+            try {
+                listener.accept(node);
+            } catch (RuntimeException e) {
+                logger.error("Media-lost listener failed for server {}", node.getId(), e);
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        return RING_HASH.hashString(key, StandardCharsets.UTF_8).asInt();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.camerabooking.media;
+
+import com.example.camerabooking.dto.MediaServerStatus;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoConnectionListener;
+import org.kurento.client.MediaPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One Kurento media server in the pool. The connection is opened on first use,
+ * so the application starts even when no server is reachable. Pipeline and
+ * endpoint counts are what this application created on the node and drive
+ * least-loaded placement.
+ */
+public class MediaServerNode {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaServerNode.class);
+
+    private final String id;
+    private final String url;
+    private final KurentoClientFactory clientFactory;
+    private final Consumer<MediaServerNode> onMediaLost;
+    private final int maxEndpoints;
+
+    private final AtomicInteger pipelines = new AtomicInteger();
+    private final AtomicInteger endpoints = new AtomicInteger();
+    private volatile KurentoClient client;
+    // Optimistic until the first connection attempt says otherwise
+    private volatile boolean healthy = true;
+    private volatile boolean draining;
+
+    MediaServerNode(String id, String url, KurentoClientFactory clientFactory, Consumer<MediaServerNode> onMediaLost,
+                    int maxEndpoints) {
+        this.id = id;
+        this.url = url;
+        this.clientFactory = clientFactory;
+        this.onMediaLost = onMediaLost;
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** Healthy and not draining, i.e. may receive new pipelines. */
+    public boolean isAvailable() {
+        return healthy && !draining;
+    }
+
+    /**
+     * Below the endpoint cap (0 means none). A plain read, so concurrent joins may
+     * overshoot the cap by the number in flight.
+     */
+    public boolean hasEndpointCapacity() {
+        return maxEndpoints <= 0 || endpoints.get() < maxEndpoints;
+    }
+
+    public int load() {
+        return pipelines.get() + endpoints.get();
+    }
+
+    /** Create a pipeline here; counts it once the server has confirmed it. */
+    MediaPipeline createMediaPipeline() {
+        KurentoClient connected;
+        try {
+            connected = client();
+        } catch (RuntimeException e) {
+            // Nothing of ours lives on a server we never reached, so no media is lost
+            healthy = false;
+            logger.warn("Media server {} unreachable: {}", id, e.getMessage());
+            throw e;
+        }
+        MediaPipeline pipeline = connected.createMediaPipeline();
+        pipelines.incrementAndGet();
+        return pipeline;
+    }
+
+    public void endpointCreated() {
+        endpoints.incrementAndGet();
+    }
+
+    public void endpointReleased() {
+        endpoints.decrementAndGet();
+    }
+
+    public void pipelineReleased() {
+        pipelines.decrementAndGet();
+    }
+
+    void drain() {
+        draining = true;
+        logger.info("Media server {} draining, {} pipelines left", id, pipelines.get());
+    }
+
+    void resume() {
+        draining = false;
+        logger.info("Media server {} accepting new pipelines", id);
+    }
+
+    /** Ping a connected server, or reconnect one that was marked down. */
+    void checkHealth() {
+        KurentoClient current = client;
+        if (current == null && healthy) {
+            return; // never used yet; stays lazy
+        }
+        try {
+            if (!healthy && current != null) {
+                closeClient();
+            }
+            client().getServerManager().getInfo();
+            if (!healthy) {
+                healthy = true;
+                logger.info("Media server {} is back up", id);
+            }
+        } catch (RuntimeException e) {
+            if (healthy) {
+                markLost("health check failed: " + e.getMessage());
+            } else {
+                logger.debug("Media server {} still down: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    MediaServerStatus status() {
+        return new MediaServerStatus(id, url, client != null, healthy, draining, pipelines.get(), endpoints.get());
+    }
+
+    synchronized void closeClient() {
+        KurentoClient current = client;
+        client = null;
+        if (current != null) {
+            try {
+                current.destroy();
+            } catch (RuntimeException e) {
+                logger.debug("Error closing client for media server {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized KurentoClient client() {
+        if (client == null) {
+            client = clientFactory.connect(url, new ConnectionListener());
+            logger.info("Connected to media server {} at {}", id, url);
+        }
+        return client;
+    }
+
+    private void markLost(String reason) {
+        boolean wasHealthy = healthy;
+        healthy = false;
+        if (wasHealthy) {
+            logger.warn("Media server {} marked down: {}", id, reason);
+            onMediaLost.accept(this);
+        }
+    }
+
+    private class ConnectionListener implements KurentoConnectionListener {
+
+        @Override
+        public void connected() {
+            healthy = true;
+        }
+
+        @Override
+        public void connectionFailed() {
+            markLost("connection failed");
+        }
+
+        @Override
+        public void disconnected() {
+            markLost("disconnected");
+        }
+
+        @Override
+        public void reconnected(boolean sameServer) {
+            // A restarted server has lost every pipeline we created on it
+            if (!sameServer) {
+                onMediaLost.accept(MediaServerNode.this);
+            }
+            healthy = true;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.camerabooking.media;
+
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pipeline with its broadcaster endpoint already built, ready for a new
+ * stream. The pipeline is counted on its server; the endpoint is not, since
+ * the stream that adopts it counts it. Until then the holder must
+ * {@link #discard()} it on failure.
+ *
+ * @param warm whether it came from the {@link WarmPipelinePool} rather than being created on demand
+ */
+public record PreparedPipeline(MediaServerNode server, MediaPipeline pipeline, WebRtcEndpoint broadcasterEndpoint,
+                               boolean warm) {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreparedPipeline.class);
+
+    /** Release a pipeline that was never adopted by a stream. */
+    public void discard() {
+        server.pipelineReleased();
+        try {
+            broadcasterEndpoint.release();
+            pipeline.release();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to release unused pipeline on media server {}: {}", server.getId(), e.getMessage());
+        }
+    }
+}
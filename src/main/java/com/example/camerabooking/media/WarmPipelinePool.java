@@ -0,0 +1,308 @@
+package com.example.camerabooking.media;
+
+import com.example.camerabooking.exception.MediaServerUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.kurento.client.MediaObject;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Idle pipelines with a broadcaster endpoint already built, so going live
+ * skips two remote object creations.
+ *
+ * Each media server keeps up to a target number of idle entries. The target
+ * is the most streams started in any sizing window over the last six windows,
+ * clamped to {@code min-idle..max-idle}; under least-loaded placement it is
+ * split across the available servers. A maintenance thread refills after
+ * every take and on a fixed interval, and releases entries that sat idle past
+ * {@code max-idle-time} or whose server went down or is draining.
+ *
+ * Under consistent-hash placement only the booking's own server is used, so a
+ * warm entry never breaks placement affinity.
+ */
+@Component
+public class WarmPipelinePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmPipelinePool.class);
+
+    private static final int RATE_WINDOWS = 6;
+
+    private final KurentoPool kurentoPool;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long maxIdleNanos;
+    private final Duration maintainInterval;
+    private final StartRate startRate;
+    // Newest first: takes use the freshest entry, expiry trims the oldest
+    private final Map<MediaServerNode, Deque<WarmPipeline>> idle = new ConcurrentHashMap<>();
+    private final AtomicBoolean refillPending = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter misses;
+    private ScheduledExecutorService maintainer;
+
+    private record WarmPipeline(MediaPipeline pipeline, WebRtcEndpoint endpoint, long createdAt) {
+    }
+
+    public WarmPipelinePool(KurentoPool kurentoPool,
+                            MeterRegistry meterRegistry,
+                            @Value("${kurento.warm-pool.min-idle:0}") int minIdle,
+                            @Value("${kurento.warm-pool.max-idle:0}") int maxIdle,
+                            @Value("${kurento.warm-pool.max-idle-time:5m}") Duration maxIdleTime,
+                            @Value("${kurento.warm-pool.sizing-window:10s}") Duration sizingWindow,
+                            @Value("${kurento.warm-pool.maintain-interval:5s}") Duration maintainInterval) {
+        this.kurentoPool = kurentoPool;
+        this.minIdle = Math.min(minIdle, maxIdle);
+        this.maxIdle = maxIdle;
+        this.maxIdleNanos = maxIdleTime.toNanos();
+        this.maintainInterval = maintainInterval;
+        this.startRate = new StartRate(sizingWindow.toNanos());
+        for (MediaServerNode node : kurentoPool.nodes()) {
+            idle.put(node, new ConcurrentLinkedDeque<>());
+        }
+
+        this.hits = Counter.builder("kurento.warm-pool.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("kurento.warm-pool.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("kurento.warm-pool.idle", idle, all -> all.values().stream().mapToInt(Deque::size).sum())
+                .register(meterRegistry);
+        Gauge.builder("kurento.warm-pool.target", this, WarmPipelinePool::targetSize).register(meterRegistry);
+        // The pool's pipelines are gone with the server; nothing to release
+        kurentoPool.addMediaLostListener(this::forget);
+    }
+
+    @PostConstruct
+    void start() {
+        if (maxIdle <= 0) {
+            return;
+        }
+        maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kurento-warm-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = maintainInterval.toMillis();
+        maintainer.scheduleWithFixedDelay(this::maintain, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+        idle.forEach((node, entries) -> {
+            WarmPipeline entry;
+            while ((entry = entries.pollFirst()) != null) {
+                release(node, entry);
+            }
+        });
+    }
+
+    /**
+     * A pipeline and broadcaster endpoint for a new stream: a warm one if the
+     * placement allows, otherwise created now.
+     *
+     * @throws MediaServerUnavailableException if no server could create one
+     */
+    public PreparedPipeline acquire(String placementKey) {
+        if (maxIdle <= 0) {
+            return create(placementKey);
+        }
+        startRate.record();
+        PreparedPipeline warm = takeWarm(placementKey);
+        refillSoon();
+        if (warm != null) {
+            hits.increment();
+            return warm;
+        }
+        misses.increment();
+        return create(placementKey);
+    }
+
+    private PreparedPipeline takeWarm(String placementKey) {
+        List<MediaServerNode> candidates = kurentoPool.candidates(placementKey);
+        if (kurentoPool.placement() == KurentoPool.Placement.CONSISTENT_HASH && !candidates.isEmpty()) {
+            candidates = candidates.subList(0, 1);
+        }
+        long now = System.nanoTime();
+        for (MediaServerNode node : candidates) {
+            Deque<WarmPipeline> entries = idle.get(node);
+            WarmPipeline entry;
+            while (entries != null && (entry = entries.pollFirst()) != null) {
+                if (now - entry.createdAt() > maxIdleNanos) {
+                    release(node, entry);
+                    continue;
+                }
+                // The adopting stream counts the endpoint again
+                node.endpointReleased();
+                return new PreparedPipeline(node, entry.pipeline(), entry.endpoint(), true);
+            }
+        }
+        return null;
+    }
+
+    private PreparedPipeline create(String placementKey) {
+        KurentoPool.PlacedPipeline placed = kurentoPool.createPipeline(placementKey);
+        try {
+            WebRtcEndpoint endpoint = new WebRtcEndpoint.Builder(placed.pipeline()).build();
+            return new PreparedPipeline(placed.server(), placed.pipeline(), endpoint, false);
+        } catch (RuntimeException e) {
+            placed.server().pipelineReleased();
+            releaseQuietly(placed.pipeline());
+            throw e;
+        }
+    }
+
+    private void refillSoon() {
+        if (maintainer != null && refillPending.compareAndSet(false, true)) {
+            try {
+                maintainer.execute(this::maintain);
+            } catch (RejectedExecutionException e) {
+                refillPending.set(false); // shutting down
+            }
+        }
+    }
+
+    // Only ever runs on the maintenance thread
+    void maintain() {
+        refillPending.set(false);
+        int perServer = perServerTarget();
+        long now = System.nanoTime();
+        idle.forEach((node, entries) -> {
+            if (!node.isAvailable()) {
+                drainIdle(node, entries);
+                return;
+            }
+            WarmPipeline oldest;
+            while ((oldest = entries.peekLast()) != null
+                    && (now - oldest.createdAt() > maxIdleNanos || entries.size() > perServer)) {
+                if (entries.removeLastOccurrence(oldest)) {
+                    release(node, oldest);
+                }
+            }
+            while (entries.size() < perServer && node.hasEndpointCapacity()) {
+                WarmPipeline entry = warmUp(node);
+                if (entry == null) {
+                    break;
+                }
+                entries.addFirst(entry);
+            }
+        });
+    }
+
+    private WarmPipeline warmUp(MediaServerNode node) {
+        MediaPipeline pipeline;
+        try {
+            pipeline = node.createMediaPipeline();
+        } catch (RuntimeException e) {
+            logger.debug("Could not warm a pipeline on media server {}: {}", node.getId(), e.getMessage());
+            return null;
+        }
+        try {
+            WebRtcEndpoint endpoint = new WebRtcEndpoint.Builder(pipeline).build();
+            node.endpointCreated();
+            return new WarmPipeline(pipeline, endpoint, System.nanoTime());
+        } catch (RuntimeException e) {
+            node.pipelineReleased();
+            releaseQuietly(pipeline);
+            logger.debug("Could not warm an endpoint on media server {}: {}", node.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    int targetSize() {
+        return Math.max(minIdle, Math.min(maxIdle, startRate.peak()));
+    }
+
+    private int perServerTarget() {
+        int target = targetSize();
+        if (kurentoPool.placement() == KurentoPool.Placement.CONSISTENT_HASH) {
+            return target; // the next booking may hash to any server
+        }
+        long available = idle.keySet().stream().filter(MediaServerNode::isAvailable).count();
+        return available == 0 ? 0 : (int) Math.ceil((double) target / available);
+    }
+
+    private void drainIdle(MediaServerNode node, Deque<WarmPipeline> entries) {
+        WarmPipeline entry;
+        while ((entry = entries.pollFirst()) != null) {
+            release(node, entry);
+        }
+    }
+
+    private void forget(MediaServerNode node) {
+        Deque<WarmPipeline> entries = idle.get(node);
+        WarmPipeline entry;
+        while (entries != null && (entry = entries.pollFirst()) != null) {
+            node.endpointReleased();
+            node.pipelineReleased();
+        }
+    }
+
+    private static void release(MediaServerNode node, WarmPipeline entry) {
+        node.endpointReleased();
+        node.pipelineReleased();
+        releaseQuietly(entry.endpoint());
+        releaseQuietly(entry.pipeline());
+    }
+
+    private static void releaseQuietly(MediaObject object) {
+        try {
+            object.release();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to release warm pipeline object: {}", e.getMessage());
+        }
+    }
+
+    /** Stream starts per sizing window, over the last {@value #RATE_WINDOWS} windows. */
+    private static final class StartRate {
+        private final long windowNanos;
+        private final long[] windows = new long[RATE_WINDOWS];
+        private final int[] counts = new int[RATE_WINDOWS];
+
+        StartRate(long windowNanos) {
+            this.windowNanos = windowNanos;
+            Arrays.fill(windows, Long.MIN_VALUE);
+        }
+
+        synchronized void record() {
+            long window = System.nanoTime() / windowNanos;
+            int slot = (int) Math.floorMod(window, (long) RATE_WINDOWS);
+            if (windows[slot] != window) {
+                windows[slot] = window;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        synchronized int peak() {
+            long current = System.nanoTime() / windowNanos;
+            int peak = 0;
+            for (int i = 0; i < RATE_WINDOWS; i++) {
+                if (windows[i] > current - RATE_WINDOWS) {
+                    peak = Math.max(peak, counts[i]);
+                }
+            }
+            return peak;
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.camerabooking.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
 
 import java.util.Date;
 
 @Entity // ✅ Fixed @Entry -> @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Keyset pagination over (created_at, id), globally and per user / status
+        @Index(name = "idx_bookings_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_bookings_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_bookings_status_created_id", columnList = "status, created_at, id"),
+        // Availability lookups by day and event type
+        @Index(name = "idx_bookings_date_event", columnList = "booking_date, event_type")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -34,10 +43,14 @@ public class Booking {
 
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
+    @Builder.Default
     private BookingStatus status = BookingStatus.PENDING;
 
+    // Part of the keyset sort key, so always set by Hibernate on insert and never taken from a request body
+    @CreationTimestamp
     @Temporal(TemporalType.TIMESTAMP)
-    @Column(name = "created_at", updatable = false)
-    private Date createdAt = new Date(); // ✅ Fixed misplaced field
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Date createdAt;
 
 }
@@ -0,0 +1,45 @@
+package com.example.camerabooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** One finished segment of a recorded stream, as a file on the recordings disk. */
+@Entity
+@Table(name = "recordings", indexes = {
+        @Index(name = "idx_recordings_booking_started", columnList = "booking_id, started_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Recording {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private String bookingId;
+
+    @Column(name = "stream_id", length = 36, nullable = false)
+    private String streamId;
+
+    @Column(name = "segment", nullable = false)
+    private int segment;
+
+    @Column(name = "path", length = 1024, nullable = false)
+    private String path;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "ended_at", nullable = false)
+    private LocalDateTime endedAt;
+}
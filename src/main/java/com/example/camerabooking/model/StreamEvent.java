@@ -0,0 +1,37 @@
+package com.example.camerabooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** One start or stop of a live stream for a booking; rows are only ever appended. */
+@Entity
+@Table(name = "stream_events", indexes = {
+        @Index(name = "idx_stream_events_booking_time", columnList = "booking_id, occurred_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StreamEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private String bookingId;
+
+    @Column(name = "stream_id", length = 36, nullable = false)
+    private String streamId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private StreamEventType eventType;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,6 @@
+package com.example.camerabooking.model;
+
+public enum StreamEventType {
+    STARTED,
+    STOPPED
+}
@@ -0,0 +1,40 @@
+package com.example.camerabooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A live stream and the app instance that owns it; rows come and go with the
+ * streams. The owner refreshes {@code registeredAt} on every heartbeat, so rows
+ * of an instance that died without cleaning up age out.
+ */
+@Entity
+@Table(name = "stream_registry", indexes = {
+        @Index(name = "idx_stream_registry_node", columnList = "node_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StreamRegistration {
+
+    @Id
+    @Column(name = "stream_id", length = 36)
+    private String streamId;
+
+    @Column(name = "booking_id", nullable = false)
+    private String bookingId;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "signaling_url", nullable = false)
+    private String signalingUrl;
+
+    @Column(name = "media_server_id")
+    private String mediaServerId;
+
+    @Column(name = "registered_at", nullable = false)
+    private LocalDateTime registeredAt;
+}
@@ -0,0 +1,241 @@
+package com.example.camerabooking.otp;
+
+import com.example.camerabooking.repository.UserRepository;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory store of pending password-reset codes.
+ *
+ * Entries are keyed by a hash of the email and hold only a hash of the code,
+ * which is compared in constant time. A hashed-wheel timer drops each entry
+ * when it expires, and too many wrong guesses drop it early.
+ *
+ * With {@code otp.persistence.enabled=true} every change is also written
+ * behind to the OTP columns of {@code users}, coalesced per email, so codes
+ * survive a restart. Without it, a restart simply invalidates pending codes.
+ */
+@Component
+public class OtpStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpStore.class);
+
+    private final UserRepository userRepository;
+    private final boolean persistenceEnabled;
+    private final int maxAttempts;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // email -> latest state still to be written; null code and expiry clear the columns
+    private final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final HashedWheelTimer expiryWheel = new HashedWheelTimer(
+            runnable -> {
+                Thread thread = new Thread(runnable, "otp-expiry");
+                thread.setDaemon(true);
+                return thread;
+            }, 1, TimeUnit.SECONDS, 512);
+
+    public OtpStore(UserRepository userRepository,
+                    @Value("${otp.persistence.enabled:false}") boolean persistenceEnabled,
+                    @Value("${otp.max-attempts:5}") int maxAttempts) {
+        this.userRepository = userRepository;
+        this.persistenceEnabled = persistenceEnabled;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    void restore() {
+        if (!persistenceEnabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int restored = 0;
+        for (Object[] row : userRepository.findPendingOtps(now)) {
+            String storedCode = (String) row[1];
+            // Codes written before this store existed are plain digits rather than hashes
+            byte[] codeHash = storedCode.length() == 64 ? HexFormat.of().parseHex(storedCode) : sha256(storedCode);
+            put(key((String) row[0]), new Entry(codeHash, (LocalDateTime) row[2]));
+            restored++;
+        }
+        logger.info("Restored {} pending OTPs", restored);
+    }
+
+    /**
+     * Store a new code for the email, replacing any earlier one. The returned
+     * handle can {@link #revert} this if the code never reaches the user.
+     */
+    public Issued issue(String email, String code, Duration ttl) {
+        byte[] codeHash = sha256(code);
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        String key = key(email);
+        Entry issued = new Entry(codeHash, expiresAt);
+        Entry previous = put(key, issued);
+        writeBehind(email, HexFormat.of().formatHex(codeHash), expiresAt);
+        return new Issued(email, key, issued, previous);
+    }
+
+    /**
+     * Undo an {@link #issue}: the code it replaced, if still unexpired, is valid
+     * again. Does nothing once the issued code has been used, guessed out or
+     * replaced in turn.
+     */
+    public void revert(Issued issued) {
+        Entry previous = issued.previous;
+        boolean restore = previous != null && previous.expiresAt.isAfter(LocalDateTime.now());
+        if (restore) {
+            Entry restored = new Entry(previous.codeHash, previous.expiresAt);
+            restored.failedAttempts.set(previous.failedAttempts.get());
+            if (!entries.replace(issued.key, issued.entry, restored)) {
+                return;
+            }
+            schedule(issued.key, restored);
+            issued.entry.timeout.cancel();
+            writeBehind(issued.email, HexFormat.of().formatHex(previous.codeHash), previous.expiresAt);
+        } else {
+            if (!entries.remove(issued.key, issued.entry)) {
+                return;
+            }
+            issued.entry.timeout.cancel();
+            writeBehind(issued.email, null, null);
+        }
+    }
+
+    /**
+     * Check a code against the pending one. A code stays valid until it expires
+     * or is invalidated; after too many wrong guesses it is discarded.
+     */
+    public boolean verify(String email, String code) {
+        String key = key(email);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt.isBefore(LocalDateTime.now())) {
+            return false;
+        }
+        if (MessageDigest.isEqual(entry.codeHash, sha256(code))) {
+            return true;
+        }
+        if (entry.failedAttempts.incrementAndGet() >= maxAttempts) {
+            logger.warn("Too many wrong OTP attempts, discarding code");
+            remove(key, entry);
+            writeBehind(email, null, null);
+        }
+        return false;
+    }
+
+    public void invalidate(String email) {
+        String key = key(email);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+        writeBehind(email, null, null);
+    }
+
+    private Entry put(String key, Entry entry) {
+        schedule(key, entry);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+        return previous;
+    }
+
+    private void schedule(String key, Entry entry) {
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), entry.expiresAt).toMillis());
+        entry.timeout = expiryWheel.newTimeout(timeout -> entries.remove(key, entry), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            entry.timeout.cancel();
+        }
+    }
+
+    private void writeBehind(String email, String codeHash, LocalDateTime expiresAt) {
+        if (persistenceEnabled) {
+            pendingWrites.put(email, new PendingWrite(codeHash, expiresAt));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${otp.persistence.flush-interval:1s}")
+    public void flush() {
+        for (String email : pendingWrites.keySet()) {
+            PendingWrite write = pendingWrites.remove(email);
+            if (write == null) {
+                continue;
+            }
+            try {
+                userRepository.updateOtp(email, write.codeHash, write.expiresAt);
+            } catch (RuntimeException e) {
+                logger.error("Failed to persist OTP state: {}", e.getMessage());
+                // Retry on the next flush unless a newer state has been queued meanwhile
+                pendingWrites.putIfAbsent(email, write);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+        expiryWheel.stop();
+    }
+
+    private static String key(String email) {
+        return HexFormat.of().formatHex(sha256(email.trim().toLowerCase(Locale.ROOT)));
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] codeHash;
+        private final LocalDateTime expiresAt;
+        private final AtomicInteger failedAttempts = new AtomicInteger();
+        private volatile Timeout timeout;
+
+        private Entry(byte[] codeHash, LocalDateTime expiresAt) {
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record PendingWrite(String codeHash, LocalDateTime expiresAt) {
+    }
+
+    /** A code handed out by {@link #issue}, and the one it replaced. */
+    public static final class Issued {
+        private final String email;
+        private final String key;
+        private final Entry entry;
+        private final Entry previous;
+
+        private Issued(String email, String key, Entry entry, Entry previous) {
+            this.email = email;
+            this.key = key;
+            this.entry = entry;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.dto.BulkBookingRow;
+import com.example.camerabooking.model.BookingStatus;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC batch writer for bulk booking uploads.
+ *
+ * Hibernate turns batching off for IDENTITY ids, so bulk inserts bypass JPA
+ * and send one batched statement per chunk, reading the auto-increment ids
+ * back from the driver. With rewriteBatchedStatements=true MySQL sends each
+ * chunk as a single multi-row INSERT.
+ */
+@Repository
+public class BookingBatchRepository {
+
+    private static final String INSERT_SQL = """
+            insert into bookings (user_id, event_type, booking_date, address, status, created_at)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert the rows as new PENDING bookings in one JDBC batch. The batch is
+     * one transaction: if any row fails, none of them is inserted.
+     *
+     * @return generated booking ids, in the same order as {@code rows}
+     */
+    @Transactional
+    public List<Long> insertAll(List<BulkBookingRow> rows, java.util.Date createdAt) {
+        Timestamp created = new Timestamp(createdAt.getTime());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        BulkBookingRow row = rows.get(i);
+                        ps.setLong(1, row.getUserId());
+                        ps.setString(2, row.getEventType().name());
+                        ps.setDate(3, new Date(row.getBookingDate().getTime()));
+                        ps.setString(4, row.getAddress());
+                        ps.setString(5, BookingStatus.PENDING.name());
+                        ps.setTimestamp(6, created);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+}
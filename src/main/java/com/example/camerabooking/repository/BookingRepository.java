@@ -1,16 +1,29 @@
 package com.example.camerabooking.repository;
 
+import com.example.camerabooking.dto.BookingSummary;
 import com.example.camerabooking.model.Booking;
 import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
+    // Rows pulled per round trip while streaming; needs useCursorFetch=true on MySQL
+    int EXPORT_FETCH_SIZE = 500;
+
     // Find bookings by user ID
     List<Booking> findByUserId(Long userId);
 
@@ -19,7 +32,71 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     // Find bookings by event type (WEDDING, ANNIVERSARY, BIRTHDAY)
     List<Booking> findByEventType(String eventType);
-    
-   
-  
+
+    // Keyset pages ordered by (created_at, id); pass the last row of the previous page as the cursor
+    @Query("""
+            select new com.example.camerabooking.dto.BookingSummary(
+                b.id, b.user.id, b.eventType, b.bookingDate, b.address, b.status, b.createdAt)
+            from Booking b
+            where b.createdAt > :createdAt or (b.createdAt = :createdAt and b.id > :id)
+            order by b.createdAt, b.id
+            """)
+    List<BookingSummary> findPageAfter(@Param("createdAt") Date createdAt, @Param("id") Long id, Pageable limit);
+
+    @Query("""
+            select new com.example.camerabooking.dto.BookingSummary(
+                b.id, b.user.id, b.eventType, b.bookingDate, b.address, b.status, b.createdAt)
+            from Booking b
+            where b.user.id = :userId
+              and (b.createdAt > :createdAt or (b.createdAt = :createdAt and b.id > :id))
+            order by b.createdAt, b.id
+            """)
+    List<BookingSummary> findPageByUserAfter(@Param("userId") Long userId, @Param("createdAt") Date createdAt,
+                                             @Param("id") Long id, Pageable limit);
+
+    @Query("""
+            select new com.example.camerabooking.dto.BookingSummary(
+                b.id, b.user.id, b.eventType, b.bookingDate, b.address, b.status, b.createdAt)
+            from Booking b
+            where b.status = :status
+              and (b.createdAt > :createdAt or (b.createdAt = :createdAt and b.id > :id))
+            order by b.createdAt, b.id
+            """)
+    List<BookingSummary> findPageByStatusAfter(@Param("status") BookingStatus status, @Param("createdAt") Date createdAt,
+                                               @Param("id") Long id, Pageable limit);
+
+    @Query("select count(b) > 0 from Booking b where b.id = :id and b.user.id = :userId")
+    boolean isOwnedBy(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Bookings in the given status on one day, used to warm the streamable-bookings cache
+    @Query("select b.id from Booking b where b.status = :status and b.bookingDate = :date")
+    List<Long> findIdsByStatusAndDate(@Param("status") BookingStatus status, @Param("date") Date date);
+
+    // Active (non-rejected) bookings per day and event type, used to warm the availability calendar
+    @Query("""
+            select b.bookingDate, b.eventType, count(b)
+            from Booking b
+            where b.status <> com.example.camerabooking.model.BookingStatus.REJECTED
+              and b.bookingDate >= :from
+            group by b.bookingDate, b.eventType
+            """)
+    List<Object[]> countActiveByDateAndEventType(@Param("from") Date from);
+
+    // Forward-only export stream; must be consumed inside a read-only transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.example.camerabooking.dto.BookingSummary(
+                b.id, b.user.id, b.eventType, b.bookingDate, b.address, b.status, b.createdAt)
+            from Booking b
+            where (:status is null or b.status = :status)
+              and (:eventType is null or b.eventType = :eventType)
+              and (:from is null or b.bookingDate >= :from)
+              and (:to is null or b.bookingDate <= :to)
+            order by b.createdAt, b.id
+            """)
+    Stream<BookingSummary> streamForExport(@Param("status") BookingStatus status, @Param("eventType") EventType eventType,
+                                           @Param("from") Date from, @Param("to") Date to);
 }
@@ -0,0 +1,13 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.model.Recording;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RecordingRepository extends JpaRepository<Recording, Long> {
+
+    List<Recording> findByBookingIdOrderByStartedAt(String bookingId);
+}
@@ -0,0 +1,36 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.model.StreamEvent;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Plain JDBC batch writer for {@code stream_events}; like bulk bookings, the
+ * IDENTITY ids would stop Hibernate from batching the inserts.
+ */
+@Repository
+public class StreamEventBatchRepository {
+
+    private static final String INSERT_SQL = """
+            insert into stream_events (booking_id, stream_id, event_type, node_id, occurred_at)
+            values (?, ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<StreamEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getBookingId());
+            ps.setString(2, event.getStreamId());
+            ps.setString(3, event.getEventType().name());
+            ps.setString(4, event.getNodeId());
+            ps.setTimestamp(5, Timestamp.valueOf(event.getOccurredAt()));
+        });
+    }
+}
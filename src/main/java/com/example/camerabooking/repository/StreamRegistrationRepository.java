@@ -0,0 +1,31 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.model.StreamRegistration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StreamRegistrationRepository extends JpaRepository<StreamRegistration, String> {
+
+    // One statement rather than a load-then-delete per row
+    @Transactional
+    @Modifying
+    @Query("delete from StreamRegistration s where s.nodeId = :nodeId")
+    int deleteByNodeId(@Param("nodeId") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query("update StreamRegistration s set s.registeredAt = :now where s.nodeId = :nodeId")
+    int refreshNode(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from StreamRegistration s where s.registeredAt < :cutoff")
+    int deleteRegisteredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,11 +2,21 @@ package com.example.camerabooking.repository;
 
 import com.example.camerabooking.model.User;
 import com.example.camerabooking.model.User.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -18,4 +28,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByOtpCode(String otpCode);
 
     List<User> findByRole(Role role);
+
+    // Which of the given ids exist, without loading the users themselves
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Forward-only scan of every email; must be consumed inside a read-only transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    // Writes only the OTP columns, leaving the rest of the row alone
+    @Transactional
+    @Modifying
+    @Query("update User u set u.otpCode = :otpCode, u.otpExpiry = :otpExpiry where u.email = :email")
+    int updateOtp(@Param("email") String email, @Param("otpCode") String otpCode,
+                  @Param("otpExpiry") LocalDateTime otpExpiry);
+
+    // Replace a password hash only if it has not changed since it was read
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int rehashPassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    // Email, stored OTP and expiry of every user with an OTP that has not expired yet
+    @Query("select u.email, u.otpCode, u.otpExpiry from User u where u.otpExpiry > :now and u.otpCode is not null")
+    List<Object[]> findPendingOtps(@Param("now") LocalDateTime now);
 }
@@ -0,0 +1,129 @@
+package com.example.camerabooking.security;
+
+import com.example.camerabooking.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues and verifies the signed tokens returned by login.
+ *
+ * Verification never touches the database. The signing key and parser are
+ * built once, and tokens verified recently are remembered in a small LRU
+ * keyed by their signature, so a client reusing its token skips the HMAC
+ * check and JSON parsing. Revoked token ids are checked on every request.
+ */
+@Component
+public class JwtService {
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Duration validity;
+    private final TokenRevocationList revocationList;
+    // signature -> claims of the token it was verified with
+    private final Cache<String, VerifiedToken> verified;
+
+    // HS256 needs a key at least as long as its output
+    private static final int MIN_SECRET_BYTES = 32;
+
+    public JwtService(@Value("${jwt.secret:}") String secret,
+                      @Value("${jwt.validity:12h}") Duration validity,
+                      @Value("${jwt.verified-cache-size:10000}") long verifiedCacheSize,
+                      TokenRevocationList revocationList,
+                      MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(decodeSecret(secret));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.validity = validity;
+        this.revocationList = revocationList;
+        this.verified = Caffeine.newBuilder().maximumSize(verifiedCacheSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
+    }
+
+    private static byte[] decodeSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("jwt.secret is not set; provide a base64 key of at least 256 bits via JWT_SECRET");
+        }
+        byte[] key;
+        try {
+            key = Decoders.BASE64.decode(secret.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("jwt.secret is not valid base64", e);
+        }
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("jwt.secret must be at least 256 bits, got " + key.length * 8);
+        }
+        return key;
+    }
+
+    public String issueToken(User user) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(String.valueOf(user.getId()))
+                .claim("email", user.getEmail())
+                .claim("role", user.getRole().name())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(validity)))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /** The token's claims if it is correctly signed, unexpired and not revoked. */
+    public Optional<VerifiedToken> verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return Optional.empty();
+        }
+        String signature = token.substring(signatureStart + 1);
+        String signedContent = token.substring(0, signatureStart);
+
+        VerifiedToken cached = verified.getIfPresent(signature);
+        VerifiedToken result;
+        // A matching signature only vouches for the exact header and payload it was computed over
+        if (cached != null && cached.signedContent().equals(signedContent)) {
+            result = cached;
+        } else {
+            try {
+                Claims claims = parser.parseClaimsJws(token).getBody();
+                result = new VerifiedToken(signedContent, claims.getId(), Long.valueOf(claims.getSubject()),
+                        claims.get("email", String.class), claims.get("role", String.class),
+                        claims.getExpiration().toInstant());
+            } catch (JwtException | IllegalArgumentException e) {
+                return Optional.empty();
+            }
+            verified.put(signature, result);
+        }
+
+        if (result.expiresAt().isBefore(Instant.now()) || revocationList.isRevoked(result.tokenId())) {
+            verified.invalidate(signature);
+            return Optional.empty();
+        }
+        return Optional.of(result);
+    }
+
+    /** Revoke a token so later requests carrying it are treated as anonymous. */
+    public void revoke(String token) {
+        verify(token).ifPresent(t -> revocationList.revoke(t.tokenId(), t.expiresAt()));
+    }
+
+    public record VerifiedToken(String signedContent, String tokenId, Long userId, String email, String role,
+                                Instant expiresAt) {
+    }
+}
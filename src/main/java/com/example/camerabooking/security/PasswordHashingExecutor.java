@@ -0,0 +1,111 @@
+package com.example.camerabooking.security;
+
+import com.example.camerabooking.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs password hashing and verification on a dedicated pool, bounded to a
+ * share of the CPU cores, so a login storm cannot starve booking and
+ * signaling traffic. When the queue is full callers are turned away at once
+ * with {@link HashingCapacityExceededException} (HTTP 429) rather than
+ * piling up on request threads.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final Duration timeout;
+    private final Timer hashTimer;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${security.password.hash-threads:0}") int threads,
+                                   @Value("${security.password.hash-queue-capacity:64}") int queueCapacity,
+                                   @Value("${security.password.hash-timeout:5s}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        // Default to half the cores, leaving the rest for everything else
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.hashTimer = Timer.builder("security.password.hash").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        Gauge.builder("security.password.hash.queue.size", pool, p -> p.getQueue().size()).register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /** True if the hash uses an older algorithm or a lower cost than currently configured. */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hash in the background without blocking the caller, e.g. to rehash after login.
+     * Completes exceptionally if the pool is saturated.
+     */
+    public CompletableFuture<String> encodeInBackground(CharSequence rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)), pool);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return pool.submit(() -> hashTimer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            throw new HashingCapacityExceededException("Password hashing queue is full");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingCapacityExceededException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
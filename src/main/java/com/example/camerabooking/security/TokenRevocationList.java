@@ -0,0 +1,38 @@
+package com.example.camerabooking.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids ({@code jti}) of tokens revoked before their expiry, e.g. on logout.
+ * An id only needs to be remembered until its token would have expired anyway.
+ *
+ * The list lives in this instance's memory only. With several instances
+ * behind one load balancer ({@code cluster.registry=database}), a token
+ * revoked on one node is still accepted by the others until it expires, so
+ * {@code jwt.validity} bounds how long a logged-out token can be replayed.
+ * It is also lost on restart.
+ */
+@Component
+public class TokenRevocationList {
+
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        revoked.put(tokenId, expiresAt);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation-purge-interval:10m}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.camerabooking.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.model.EventType;
+
+public interface AvailabilityService {
+
+    List<LocalDate> getFreeDates(EventType eventType, int days); // Dates from today with at least one free slot
+
+    boolean tryReserve(Booking booking); // Take a slot for the booking's date and event type, false if full
+
+    void release(Booking booking); // Give back a slot taken by tryReserve
+}
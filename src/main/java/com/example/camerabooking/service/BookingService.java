@@ -1,15 +1,22 @@
 package com.example.camerabooking.service;
 
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import com.example.camerabooking.dto.BookingExportFilter;
+import com.example.camerabooking.dto.BookingPage;
+import com.example.camerabooking.dto.ExportFormat;
 import com.example.camerabooking.model.Booking;
 import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
 
 public interface BookingService {
 
-    List<Booking> getAllBookings();
+    BookingPage getBookings(String cursor, int limit);
 
     Optional<Booking> getBookingById(Long id);
 
@@ -19,8 +26,12 @@ public interface BookingService {
 
     void deleteBooking(Long id);
 
-    List<Booking> getBookingsByUser(Long userId);
+    BookingPage getBookingsByUser(Long userId, String cursor, int limit);
 
-    List<Booking> getBookingsByStatus(BookingStatus status);
+    BookingPage getBookingsByStatus(BookingStatus status, String cursor, int limit);
+
+    List<LocalDate> getFreeDates(EventType eventType, int days);
+
+    long exportBookings(BookingExportFilter filter, ExportFormat format, OutputStream out) throws IOException;
     
 }
@@ -0,0 +1,13 @@
+package com.example.camerabooking.service;
+
+import java.util.List;
+
+import com.example.camerabooking.dto.BulkBookingReport;
+import com.example.camerabooking.dto.BulkBookingRow;
+
+public interface BulkBookingService {
+
+    int getMaxRows(); // Largest upload accepted in one request
+
+    BulkBookingReport createBookings(List<BulkBookingRow> rows); // Validate and insert, reporting per row
+}
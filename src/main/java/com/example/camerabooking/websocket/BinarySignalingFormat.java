@@ -0,0 +1,341 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary frames for the {@value SignalingFormat#BINARY_PROTOCOL} subprotocol.
+ *
+ * <pre>
+ * frame     = version:u8 type:u8 field*
+ * field     = tag:u8 length:varint value        (unknown tags are skipped)
+ * string    = utf-8 bytes (the field length is the string length)
+ * candidate = varint(len) candidate, varint(len) sdpMid, varint sdpMLineIndex
+ * candidates= varint count, candidate*
+ * number    = varint (e.g. a waitlist position)
+ * varint    = unsigned LEB128
+ * </pre>
+ *
+ * A flag such as {@code iceBatching} is a field with an empty value.
+ */
+final class BinarySignalingFormat implements SignalingFormat {
+
+    static final BinarySignalingFormat INSTANCE = new BinarySignalingFormat();
+
+    static final int VERSION = 1;
+
+    // Message types; the names are the ones the JSON protocol uses
+    private static final String[] TYPES = new String[32];
+    static final int START_STREAM = 1;
+    static final int STOP_STREAM = 2;
+    static final int VIEW_STREAM = 3;
+    static final int LEAVE_STREAM = 4;
+    static final int SDP_OFFER = 5;
+    static final int ICE_CANDIDATE = 6;
+    static final int ICE_CANDIDATES = 7;
+    static final int RESUME_STREAM = 8;
+    static final int STREAM_STARTED = 16;
+    static final int SDP_ANSWER = 17;
+    static final int VIEWER_CONNECTED = 18;
+    static final int VIEWER_DISCONNECTED = 19;
+    static final int STREAM_FAILED = 20;
+    static final int STREAM_RESUMED = 21;
+    static final int WAITLISTED = 22;
+    static final int ERROR = 31;
+
+    static {
+        TYPES[START_STREAM] = "startStream";
+        TYPES[STOP_STREAM] = "stopStream";
+        TYPES[VIEW_STREAM] = "viewStream";
+        TYPES[LEAVE_STREAM] = "leaveStream";
+        TYPES[SDP_OFFER] = "sdpOffer";
+        TYPES[ICE_CANDIDATE] = "iceCandidate";
+        TYPES[ICE_CANDIDATES] = "iceCandidates";
+        TYPES[RESUME_STREAM] = "resumeStream";
+    }
+
+    // Field tags
+    static final int STREAM_ID = 1;
+    static final int BOOKING_ID = 2;
+    static final int SDP = 3;
+    static final int CANDIDATE = 4;
+    static final int CANDIDATES = 5;
+    static final int ICE_BATCHING = 6;
+    static final int MESSAGE = 7;
+    static final int REASON = 8;
+    static final int RESUME_TOKEN = 9;
+    static final int POSITION = 10;
+
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    private static final ThreadLocal<FrameWriter> WRITERS = ThreadLocal.withInitial(FrameWriter::new);
+
+    private BinarySignalingFormat() {
+    }
+
+    @Override
+    public SignalingMessage decode(WebSocketMessage<?> message) {
+        ByteBuffer frame = ((BinaryMessage) message).getPayload().duplicate();
+        try {
+            if ((frame.get() & 0xFF) != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary signaling version");
+            }
+            int typeCode = frame.get() & 0xFF;
+            String type = typeCode < TYPES.length ? TYPES[typeCode] : null;
+            if (type == null) {
+                type = "binary:" + typeCode; // reported back as an invalid type
+            }
+
+            String streamId = null;
+            String bookingId = null;
+            String sdp = null;
+            String resumeToken = null;
+            IceCandidate candidate = null;
+            List<IceCandidate> candidates = null;
+            boolean iceBatching = false;
+            while (frame.hasRemaining()) {
+                int tag = frame.get() & 0xFF;
+                int length = readVarint(frame);
+                ByteBuffer value = frame.slice().limit(length);
+                frame.position(frame.position() + length);
+                switch (tag) {
+                    case STREAM_ID -> streamId = readString(value, length);
+                    case BOOKING_ID -> bookingId = readString(value, length);
+                    case SDP -> sdp = readString(value, length);
+                    case RESUME_TOKEN -> resumeToken = readString(value, length);
+                    case CANDIDATE -> candidate = readCandidate(value);
+                    case CANDIDATES -> candidates = readCandidates(value);
+                    case ICE_BATCHING -> iceBatching = true;
+                    default -> { } // newer field; skipped
+                }
+            }
+            return new SignalingMessage(type, streamId, bookingId, sdp, resumeToken, candidate, candidates, iceBatching);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated binary signaling frame", e);
+        }
+    }
+
+    @Override
+    public WebSocketMessage<?> error(String message) {
+        return frame(ERROR).string(MESSAGE, message).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> streamStarted(String streamId, String sdpAnswer, String resumeToken) {
+        return frame(STREAM_STARTED).string(STREAM_ID, streamId).string(SDP, sdpAnswer)
+                .string(RESUME_TOKEN, resumeToken).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> streamResumed(String streamId, String sdpAnswer, String resumeToken) {
+        return frame(STREAM_RESUMED).string(STREAM_ID, streamId).string(SDP, sdpAnswer)
+                .string(RESUME_TOKEN, resumeToken).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> sdpAnswer(String sdpAnswer) {
+        return frame(SDP_ANSWER).string(SDP, sdpAnswer).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> viewerConnected(String streamId) {
+        return frame(VIEWER_CONNECTED).string(STREAM_ID, streamId).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> viewerDisconnected(String streamId) {
+        return frame(VIEWER_DISCONNECTED).string(STREAM_ID, streamId).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> waitlisted(String streamId, int position) {
+        return frame(WAITLISTED).string(STREAM_ID, streamId).varint(POSITION, position).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> streamFailed(String streamId, String reason) {
+        return frame(STREAM_FAILED).string(STREAM_ID, streamId).string(REASON, reason).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> iceCandidate(String streamId, IceCandidate candidate) {
+        return frame(ICE_CANDIDATE).string(STREAM_ID, streamId).candidate(candidate).toMessage();
+    }
+
+    @Override
+    public WebSocketMessage<?> iceCandidates(String streamId, List<IceCandidate> candidates) {
+        return frame(ICE_CANDIDATES).string(STREAM_ID, streamId).candidates(candidates).toMessage();
+    }
+
+    private static FrameWriter frame(int type) {
+        FrameWriter writer = WRITERS.get();
+        writer.reset();
+        writer.writeByte(VERSION);
+        writer.writeByte(type);
+        return writer;
+    }
+
+    private static String readString(ByteBuffer value, int length) {
+        if (value.hasArray()) {
+            return new String(value.array(), value.arrayOffset() + value.position(), length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        value.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readPrefixedString(ByteBuffer value) {
+        int length = readVarint(value);
+        String string = readString(value.slice().limit(length), length);
+        value.position(value.position() + length);
+        return string;
+    }
+
+    private static IceCandidate readCandidate(ByteBuffer value) {
+        String candidate = readPrefixedString(value);
+        String sdpMid = readPrefixedString(value);
+        return new IceCandidate(candidate, sdpMid, readVarint(value));
+    }
+
+    private static List<IceCandidate> readCandidates(ByteBuffer value) {
+        int count = readVarint(value);
+        List<IceCandidate> candidates = new ArrayList<>(Math.min(count, 64));
+        for (int i = 0; i < count; i++) {
+            candidates.add(readCandidate(value));
+        }
+        return candidates;
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint in binary signaling frame");
+    }
+
+    /** Growable byte buffer reused per thread; each frame is copied out once. */
+    private static final class FrameWriter {
+        private byte[] bytes = new byte[512];
+        private int size;
+
+        void reset() {
+            if (bytes.length > MAX_RETAINED_BUFFER) {
+                bytes = new byte[512];
+            }
+            size = 0;
+        }
+
+        FrameWriter string(int tag, String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeByte(tag);
+            writeVarint(utf8.length);
+            writeBytes(utf8);
+            return this;
+        }
+
+        FrameWriter varint(int tag, int value) {
+            writeByte(tag);
+            writeVarint(varintSize(value));
+            writeVarint(value);
+            return this;
+        }
+
+        FrameWriter candidate(IceCandidate candidate) {
+            byte[] encoded = encodeCandidate(candidate);
+            writeByte(CANDIDATE);
+            writeVarint(encoded.length);
+            writeBytes(encoded);
+            return this;
+        }
+
+        FrameWriter candidates(List<IceCandidate> candidates) {
+            List<byte[]> encoded = new ArrayList<>(candidates.size());
+            int length = varintSize(candidates.size());
+            for (IceCandidate candidate : candidates) {
+                byte[] bytes = encodeCandidate(candidate);
+                encoded.add(bytes);
+                length += bytes.length;
+            }
+            writeByte(CANDIDATES);
+            writeVarint(length);
+            writeVarint(candidates.size());
+            encoded.forEach(this::writeBytes);
+            return this;
+        }
+
+        BinaryMessage toMessage() {
+            return new BinaryMessage(Arrays.copyOf(bytes, size));
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] data) {
+            ensureCapacity(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private static byte[] encodeCandidate(IceCandidate candidate) {
+            byte[] value = candidate.getCandidate().getBytes(StandardCharsets.UTF_8);
+            byte[] sdpMid = candidate.getSdpMid().getBytes(StandardCharsets.UTF_8);
+            int index = candidate.getSdpMLineIndex();
+            ByteBuffer buffer = ByteBuffer.allocate(varintSize(value.length) + value.length
+                    + varintSize(sdpMid.length) + sdpMid.length + varintSize(index));
+            putVarint(buffer, value.length);
+            buffer.put(value);
+            putVarint(buffer, sdpMid.length);
+            buffer.put(sdpMid);
+            putVarint(buffer, index);
+            return buffer.array();
+        }
+
+        private static void putVarint(ByteBuffer buffer, int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inbound ICE candidates of one session that arrived before their endpoint
+ * existed, e.g. a broadcaster trickling candidates before it has seen
+ * {@code streamStarted}, plus the session's batching statistics. Only touched
+ * from the session's {@link SessionTaskQueue}, so it needs no locking.
+ */
+class IceCandidateBuffer {
+
+    /** Key for candidates sent without a stream id; they belong to the session's next endpoint. */
+    static final String NO_STREAM = "";
+
+    private final int maxBuffered;
+    private final Map<String, List<IceCandidate>> pending = new HashMap<>();
+    private int buffered;
+    private int rpcsSaved;
+    private int framesSaved;
+
+    IceCandidateBuffer(int maxBuffered) {
+        this.maxBuffered = maxBuffered;
+    }
+
+    /** Hold candidates for later; false if the buffer is full and they were dropped. */
+    boolean buffer(String streamId, List<IceCandidate> candidates) {
+        if (buffered + candidates.size() > maxBuffered) {
+            return false;
+        }
+        pending.computeIfAbsent(streamId != null ? streamId : NO_STREAM, key -> new ArrayList<>()).addAll(candidates);
+        buffered += candidates.size();
+        return true;
+    }
+
+    /** Remove and return what is held for this stream, including candidates sent without a stream id. */
+    List<IceCandidate> take(String streamId) {
+        List<IceCandidate> taken = new ArrayList<>();
+        List<IceCandidate> unaddressed = pending.remove(NO_STREAM);
+        if (unaddressed != null) {
+            taken.addAll(unaddressed);
+        }
+        List<IceCandidate> addressed = pending.remove(streamId);
+        if (addressed != null) {
+            taken.addAll(addressed);
+        }
+        buffered -= taken.size();
+        return taken;
+    }
+
+    /** Count a pass that applied several candidates in one Kurento transaction. */
+    void applied(int candidates) {
+        if (candidates > 1) {
+            rpcsSaved += candidates - 1;
+        }
+    }
+
+    /** Count an inbound {@code iceCandidates} frame that stood in for several single frames. */
+    void receivedBatch(int candidates) {
+        if (candidates > 1) {
+            framesSaved += candidates - 1;
+        }
+    }
+
+    int framesSaved() {
+        return framesSaved;
+    }
+
+    int rpcsSaved() {
+        return rpcsSaved;
+    }
+}
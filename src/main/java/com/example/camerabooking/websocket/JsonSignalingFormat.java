@@ -0,0 +1,71 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.List;
+
+/** The original JSON text frames, written and read by {@link SignalingCodec}. */
+final class JsonSignalingFormat implements SignalingFormat {
+
+    static final JsonSignalingFormat INSTANCE = new JsonSignalingFormat();
+
+    private JsonSignalingFormat() {
+    }
+
+    @Override
+    public SignalingMessage decode(WebSocketMessage<?> message) {
+        return SignalingCodec.decode(((TextMessage) message).getPayload());
+    }
+
+    @Override
+    public WebSocketMessage<?> error(String message) {
+        return new TextMessage(SignalingCodec.error(message));
+    }
+
+    @Override
+    public WebSocketMessage<?> streamStarted(String streamId, String sdpAnswer, String resumeToken) {
+        return new TextMessage(SignalingCodec.streamStarted(streamId, sdpAnswer, resumeToken));
+    }
+
+    @Override
+    public WebSocketMessage<?> streamResumed(String streamId, String sdpAnswer, String resumeToken) {
+        return new TextMessage(SignalingCodec.streamResumed(streamId, sdpAnswer, resumeToken));
+    }
+
+    @Override
+    public WebSocketMessage<?> sdpAnswer(String sdpAnswer) {
+        return new TextMessage(SignalingCodec.sdpAnswer(sdpAnswer));
+    }
+
+    @Override
+    public WebSocketMessage<?> viewerConnected(String streamId) {
+        return new TextMessage(SignalingCodec.viewerConnected(streamId));
+    }
+
+    @Override
+    public WebSocketMessage<?> viewerDisconnected(String streamId) {
+        return new TextMessage(SignalingCodec.viewerDisconnected(streamId));
+    }
+
+    @Override
+    public WebSocketMessage<?> waitlisted(String streamId, int position) {
+        return new TextMessage(SignalingCodec.waitlisted(streamId, position));
+    }
+
+    @Override
+    public WebSocketMessage<?> streamFailed(String streamId, String reason) {
+        return new TextMessage(SignalingCodec.streamFailed(streamId, reason));
+    }
+
+    @Override
+    public WebSocketMessage<?> iceCandidate(String streamId, IceCandidate candidate) {
+        return new TextMessage(SignalingCodec.iceCandidate(streamId, candidate));
+    }
+
+    @Override
+    public WebSocketMessage<?> iceCandidates(String streamId, List<IceCandidate> candidates) {
+        return new TextMessage(SignalingCodec.iceCandidates(streamId, candidates));
+    }
+}
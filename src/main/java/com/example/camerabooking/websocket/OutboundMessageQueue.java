@@ -0,0 +1,267 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound messages of one WebSocket session. Callers only enqueue; a single
+ * flush task at a time writes to the socket on the outbound pool, so Kurento
+ * event threads never block on a slow client and sends never overlap.
+ *
+ * Works like {@link org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator}
+ * with an ICE-aware overflow policy: when the buffer limit is hit, queued ICE
+ * candidates are dropped first, and only if that is not enough is the session
+ * closed. Candidates that waited longer than the ICE max age are skipped when
+ * flushed, since the peer has moved on by then.
+ *
+ * For clients that opted in, candidates for the same stream found within the
+ * batch window leave as one {@code iceCandidates} frame.
+ *
+ * Frames are encoded in the {@link SignalingFormat} the session negotiated.
+ */
+public class OutboundMessageQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundMessageQueue.class);
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final OutboundQueues owner;
+    private final SignalingFormat format;
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile long sendStartNanos;
+    private volatile boolean closed;
+
+    private volatile boolean iceBatching;
+    private final Map<String, List<IceCandidate>> pendingIce = new HashMap<>(); // guarded by itself
+    private final AtomicInteger iceFramesSaved = new AtomicInteger();
+
+    OutboundMessageQueue(WebSocketSession session, Executor executor, OutboundQueues owner) {
+        this.session = session;
+        this.executor = executor;
+        this.owner = owner;
+        this.format = SignalingFormat.forProtocol(session.getAcceptedProtocol());
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /** Encoder for frames sent to this session. */
+    SignalingFormat format() {
+        return format;
+    }
+
+    /** Queue a control or response message. False if the session is closed or was closed for overflowing. */
+    public boolean send(WebSocketMessage<?> message) {
+        return enqueue(message, false);
+    }
+
+    /** Queue an ICE candidate; these may be dropped under pressure or once stale. */
+    public boolean sendIceCandidate(WebSocketMessage<?> message) {
+        return enqueue(message, true);
+    }
+
+    /** Queue a candidate found by Kurento, batched with others for the same stream if the client opted in. */
+    public boolean sendIceCandidate(String streamId, IceCandidate candidate) {
+        if (!iceBatching) {
+            return sendIceCandidate(format.iceCandidate(streamId, candidate));
+        }
+        if (closed) {
+            return false;
+        }
+        List<IceCandidate> ready = null;
+        synchronized (pendingIce) {
+            List<IceCandidate> batch = pendingIce.computeIfAbsent(streamId, key -> new ArrayList<>());
+            batch.add(candidate);
+            if (batch.size() >= owner.iceBatchMaxSize()) {
+                ready = pendingIce.remove(streamId);
+            } else if (batch.size() == 1) {
+                owner.scheduleIceFlush(() -> flushIce(streamId));
+            }
+        }
+        return ready == null || sendIceBatch(streamId, ready);
+    }
+
+    /** Switch this client to {@code iceCandidates} frames. */
+    public void enableIceBatching() {
+        iceBatching = true;
+    }
+
+    /** Frames not sent thanks to batching, for the connection's lifetime. */
+    public int iceFramesSaved() {
+        return iceFramesSaved.get();
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    /** Stop sending and forget anything queued, e.g. once the connection is gone. */
+    void discard() {
+        closed = true;
+        synchronized (pendingIce) {
+            pendingIce.clear();
+        }
+        clear();
+    }
+
+    private void flushIce(String streamId) {
+        List<IceCandidate> batch;
+        synchronized (pendingIce) {
+            batch = pendingIce.remove(streamId);
+        }
+        if (batch != null) {
+            sendIceBatch(streamId, batch);
+        }
+    }
+
+    private boolean sendIceBatch(String streamId, List<IceCandidate> batch) {
+        if (batch.size() == 1) {
+            return sendIceCandidate(format.iceCandidate(streamId, batch.get(0)));
+        }
+        iceFramesSaved.addAndGet(batch.size() - 1);
+        return sendIceCandidate(format.iceCandidates(streamId, batch));
+    }
+
+    private boolean enqueue(WebSocketMessage<?> message, boolean ice) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+        long startedAt = sendStartNanos;
+        if (startedAt != 0 && System.nanoTime() - startedAt > owner.sendTimeLimitNanos()) {
+            closeForOverflow("send-time-limit");
+            return false;
+        }
+
+        Entry entry = new Entry(message, ice);
+        queue.add(entry);
+        depth.incrementAndGet();
+        if (bufferSize.addAndGet(entry.size) > owner.bufferSizeLimit() && !shedIceCandidates()) {
+            closeForOverflow("buffer-size-limit");
+            return false;
+        }
+        scheduleFlush();
+        return true;
+    }
+
+    // Drop queued ICE candidates until the buffer fits again; false if it still does not
+    private boolean shedIceCandidates() {
+        int dropped = 0;
+        for (Entry entry : queue) {
+            if (bufferSize.get() <= owner.bufferSizeLimit()) {
+                break;
+            }
+            if (entry.ice && queue.remove(entry)) {
+                release(entry);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            owner.iceDropped("overflow", dropped);
+            logger.debug("Dropped {} queued ICE candidates for slow session {}", dropped, session.getId());
+        }
+        return bufferSize.get() <= owner.bufferSizeLimit();
+    }
+
+    private void scheduleFlush() {
+        if (flushing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushing.set(false);
+                logger.debug("Outbound pool rejected flush for session {}", session.getId());
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            Entry entry;
+            while (!closed && (entry = queue.poll()) != null) {
+                release(entry);
+                if (entry.ice && System.nanoTime() - entry.enqueuedAt > owner.iceMaxAgeNanos()) {
+                    owner.iceDropped("stale", 1);
+                    continue;
+                }
+                if (!session.isOpen()) {
+                    discard();
+                    return;
+                }
+                sendStartNanos = System.nanoTime();
+                try {
+                    session.sendMessage(entry.message);
+                } catch (Exception e) {
+                    logger.warn("Failed to send to session {}: {}", session.getId(), e.getMessage());
+                } finally {
+                    owner.recordSend(System.nanoTime() - sendStartNanos);
+                    sendStartNanos = 0;
+                }
+            }
+        } finally {
+            flushing.set(false);
+            // Pick up messages queued after the last poll
+            if (!closed && !queue.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private void closeForOverflow(String reason) {
+        if (closed) {
+            return;
+        }
+        discard();
+        owner.overflowed(reason);
+        logger.warn("Closing session {}: outbound {} exceeded", session.getId(), reason);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            logger.debug("Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void clear() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        depth.decrementAndGet();
+        bufferSize.addAndGet(-entry.size);
+    }
+
+    // Identity equality on purpose: queue.remove must only match this exact entry
+    private static final class Entry {
+        final WebSocketMessage<?> message;
+        final boolean ice;
+        final int size;
+        final long enqueuedAt = System.nanoTime();
+
+        Entry(WebSocketMessage<?> message, boolean ice) {
+            this.message = message;
+            this.ice = ice;
+            this.size = message.getPayloadLength();
+        }
+    }
+}
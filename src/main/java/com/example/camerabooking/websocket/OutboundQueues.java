@@ -0,0 +1,139 @@
+package com.example.camerabooking.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the {@link OutboundMessageQueue} of every open signaling session, its
+ * limits and the shared metrics.
+ */
+@Component
+public class OutboundQueues {
+
+    private final Map<String, OutboundMessageQueue> queues = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final long iceMaxAgeNanos;
+    private final long iceBatchWindowNanos;
+    private final int iceBatchMaxSize;
+    private final Timer sendLatency;
+    private final ScheduledExecutorService iceBatchTimer;
+
+    public OutboundQueues(@Qualifier("outboundExecutor") Executor executor,
+                          MeterRegistry meterRegistry,
+                          @Value("${signaling.outbound.send-time-limit:10s}") Duration sendTimeLimit,
+                          @Value("${signaling.outbound.buffer-size-limit:512KB}") DataSize bufferSizeLimit,
+                          @Value("${signaling.outbound.ice-max-age:10s}") Duration iceMaxAge,
+                          @Value("${signaling.ice.batch-window:25ms}") Duration iceBatchWindow,
+                          @Value("${signaling.ice.batch-max-size:32}") int iceBatchMaxSize) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.sendTimeLimitNanos = sendTimeLimit.toNanos();
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.iceMaxAgeNanos = iceMaxAge.toNanos();
+        this.iceBatchWindowNanos = iceBatchWindow.toNanos();
+        this.iceBatchMaxSize = iceBatchMaxSize;
+        // Flush tasks only enqueue, so one thread serves every session
+        this.iceBatchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signaling-ice-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.sendLatency = meterRegistry.timer("signaling.outbound.send");
+        Gauge.builder("signaling.outbound.queue.depth", queues,
+                        all -> all.values().stream().mapToInt(OutboundMessageQueue::depth).sum())
+                .register(meterRegistry);
+        Gauge.builder("signaling.outbound.queue.max.depth", queues,
+                        all -> all.values().stream().mapToInt(OutboundMessageQueue::depth).max().orElse(0))
+                .register(meterRegistry);
+    }
+
+    public OutboundMessageQueue register(WebSocketSession session) {
+        OutboundMessageQueue queue = new OutboundMessageQueue(session, executor, this);
+        queues.put(session.getId(), queue);
+        return queue;
+    }
+
+    /** The session's queue, or a detached one that drops everything if the session is not registered. */
+    public OutboundMessageQueue get(WebSocketSession session) {
+        OutboundMessageQueue queue = queues.get(session.getId());
+        if (queue == null) {
+            queue = new OutboundMessageQueue(session, executor, this);
+            queue.discard();
+        }
+        return queue;
+    }
+
+    /** The queue of an open session by id, or null. */
+    public OutboundMessageQueue find(String sessionId) {
+        return queues.get(sessionId);
+    }
+
+    public void remove(WebSocketSession session) {
+        OutboundMessageQueue queue = queues.remove(session.getId());
+        if (queue != null) {
+            queue.discard();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        iceBatchTimer.shutdownNow();
+    }
+
+    long sendTimeLimitNanos() {
+        return sendTimeLimitNanos;
+    }
+
+    int bufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    long iceMaxAgeNanos() {
+        return iceMaxAgeNanos;
+    }
+
+    int iceBatchMaxSize() {
+        return iceBatchMaxSize;
+    }
+
+    void scheduleIceFlush(Runnable flush) {
+        try {
+            iceBatchTimer.schedule(flush, iceBatchWindowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            flush.run(); // shutting down; send now rather than lose the batch
+        }
+    }
+
+    void recordSend(long nanos) {
+        sendLatency.record(Duration.ofNanos(nanos));
+    }
+
+    void iceDropped(String reason, int count) {
+        Counter.builder("signaling.outbound.ice.dropped").tag("reason", reason).register(meterRegistry).increment(count);
+    }
+
+    void overflowed(String reason) {
+        Counter.builder("signaling.outbound.closed").tag("reason", reason).register(meterRegistry).increment();
+    }
+}
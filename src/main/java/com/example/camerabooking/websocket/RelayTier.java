@@ -0,0 +1,122 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.media.KurentoPool;
+import com.example.camerabooking.media.MediaServerNode;
+import org.kurento.client.MediaElement;
+import org.kurento.client.MediaObject;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.RtpEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A relay pipeline that re-publishes a stream's origin to more viewers. The
+ * origin pipeline sends RTP to the relay, possibly on another media server,
+ * and viewers in this tier connect to the relay's RTP endpoint instead of the
+ * broadcaster's. Seats are guarded by the owning {@link StreamSession}.
+ */
+public class RelayTier {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayTier.class);
+
+    private final MediaServerNode server;
+    private final MediaPipeline pipeline;
+    private final RtpEndpoint originRtp;
+    private final RtpEndpoint relayRtp;
+    private int seats;
+
+    private RelayTier(MediaServerNode server, MediaPipeline pipeline, RtpEndpoint originRtp, RtpEndpoint relayRtp) {
+        this.server = server;
+        this.pipeline = pipeline;
+        this.originRtp = originRtp;
+        this.relayRtp = relayRtp;
+    }
+
+    /** Create a relay fed from the origin's broadcaster endpoint; the caller holds its first seat. */
+    static RelayTier open(KurentoPool kurentoPool, StreamSession origin, String placementKey) {
+        KurentoPool.PlacedPipeline placed = kurentoPool.createPipeline(placementKey);
+        RtpEndpoint relayRtp = null;
+        RtpEndpoint originRtp = null;
+        try {
+            relayRtp = new RtpEndpoint.Builder(placed.pipeline()).build();
+            placed.server().endpointCreated();
+            originRtp = new RtpEndpoint.Builder(origin.getPipeline()).build();
+            origin.getMediaServer().endpointCreated();
+
+            // The relay only receives, so it makes the offer and the origin answers with its send address
+            String answer = originRtp.processOffer(relayRtp.generateOffer());
+            relayRtp.processAnswer(answer);
+            origin.connectBroadcasterTo(originRtp);
+
+            RelayTier tier = new RelayTier(placed.server(), placed.pipeline(), originRtp, relayRtp);
+            tier.seats = 1;
+            logger.info("Opened relay for stream {} on media server {}", origin.getStreamId(), placed.server().getId());
+            return tier;
+        } catch (RuntimeException e) {
+            if (originRtp != null) {
+                origin.getMediaServer().endpointReleased();
+                releaseQuietly(originRtp);
+            }
+            if (relayRtp != null) {
+                placed.server().endpointReleased();
+                releaseQuietly(relayRtp);
+            }
+            placed.server().pipelineReleased();
+            releaseQuietly(placed.pipeline());
+            throw e;
+        }
+    }
+
+    public MediaServerNode getServer() {
+        return server;
+    }
+
+    public MediaPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /** What viewers in this tier connect to. */
+    public MediaElement getSource() {
+        return relayRtp;
+    }
+
+    /** The origin-side endpoint the broadcaster sends to. */
+    MediaElement getOriginFeed() {
+        return originRtp;
+    }
+
+    int seats() {
+        return seats;
+    }
+
+    boolean tryTakeSeat(int maxSeats) {
+        if (seats >= maxSeats) {
+            return false;
+        }
+        seats++;
+        return true;
+    }
+
+    int leaveSeat() {
+        return --seats;
+    }
+
+    /** Release the relay pipeline and its feed from the origin; viewer endpoints are the caller's. */
+    void release(MediaServerNode originServer) {
+        server.endpointReleased();
+        server.pipelineReleased();
+        originServer.endpointReleased();
+        releaseQuietly(originRtp);
+        releaseQuietly(pipeline);
+        logger.info("Released relay on media server {}", server.getId());
+    }
+
+    // The relay's server may already be gone
+    private static void releaseQuietly(MediaObject object) {
+        try {
+            object.release();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to release relay object: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.camerabooking.websocket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from WebSocket session id to the streams it broadcasts and
+ * the streams it watches, so a closed connection only touches its own streams.
+ * Entries may briefly outlive a stream; lookups in the stream map decide.
+ */
+class SessionStreamIndex {
+
+    private final Map<String, Set<String>> broadcasts = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> views = new ConcurrentHashMap<>();
+
+    void addBroadcast(String sessionId, String streamId) {
+        add(broadcasts, sessionId, streamId);
+    }
+
+    void removeBroadcast(String sessionId, String streamId) {
+        remove(broadcasts, sessionId, streamId);
+    }
+
+    void addView(String sessionId, String streamId) {
+        add(views, sessionId, streamId);
+    }
+
+    void removeView(String sessionId, String streamId) {
+        remove(views, sessionId, streamId);
+    }
+
+    /** Forget the session and return the stream ids it was broadcasting. */
+    Set<String> removeBroadcasts(String sessionId) {
+        Set<String> streamIds = broadcasts.remove(sessionId);
+        return streamIds != null ? streamIds : Set.of();
+    }
+
+    /** Forget the session and return the stream ids it was watching. */
+    Set<String> removeViews(String sessionId) {
+        Set<String> streamIds = views.remove(sessionId);
+        return streamIds != null ? streamIds : Set.of();
+    }
+
+    // compute keeps add and remove atomic per session, so an emptied set is never reused
+    private static void add(Map<String, Set<String>> index, String sessionId, String streamId) {
+        index.compute(sessionId, (key, streamIds) -> {
+            Set<String> updated = streamIds != null ? streamIds : ConcurrentHashMap.newKeySet();
+            updated.add(streamId);
+            return updated;
+        });
+    }
+
+    private static void remove(Map<String, Set<String>> index, String sessionId, String streamId) {
+        index.computeIfPresent(sessionId, (key, streamIds) -> {
+            streamIds.remove(streamId);
+            return streamIds.isEmpty() ? null : streamIds;
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.camerabooking.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the signaling work of one WebSocket session on a shared pool, one task
+ * at a time and in arrival order. At most {@code maxPending} tasks may wait;
+ * beyond that {@link #offer} refuses new work so a flooding client cannot
+ * queue unbounded Kurento calls.
+ */
+class SessionTaskQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTaskQueue.class);
+
+    // Tasks run per turn before the worker is handed back, so one busy session cannot hog it
+    private static final int TASKS_PER_TURN = 16;
+
+    private final Executor executor;
+    private final int maxPending;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SessionTaskQueue(Executor executor, int maxPending) {
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    /** Queue a task; false if the session already has too many waiting. */
+    boolean offer(Runnable task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return false;
+        }
+        tasks.add(task);
+        schedule();
+        return true;
+    }
+
+    /** Queue a task regardless of the limit, e.g. cleanup that must not be dropped. */
+    void offerAlways(Runnable task) {
+        pending.incrementAndGet();
+        tasks.add(task);
+        schedule();
+    }
+
+    int pending() {
+        return pending.get();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < TASKS_PER_TURN && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Signaling task failed", e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // Pick up work that arrived after the last poll, or that exceeded this turn
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.camerabooking.websocket;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.kurento.client.IceCandidate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the fixed set of signaling frames without building a Gson
+ * tree. Inbound frames are decoded in one streaming pass into a
+ * {@link SignalingMessage}, skipping fields we do not use; outbound frames are
+ * written straight into a per-thread buffer.
+ *
+ * ICE candidates are {@code {"candidate", "sdpMid", "sdpMLineIndex"}} objects;
+ * clients that opt in with {@code "iceBatching": true} get {@code iceCandidates}
+ * frames carrying an array, everyone else one {@code iceCandidate} frame per
+ * candidate. Both forms are accepted inbound.
+ */
+final class SignalingCodec {
+
+    // Dropped rather than reused once a frame (typically an SDP) has grown it past this
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final ThreadLocal<FrameBuffer> BUFFERS = ThreadLocal.withInitial(FrameBuffer::new);
+
+    private SignalingCodec() {
+    }
+
+    /**
+     * Decode one inbound frame.
+     *
+     * @throws IllegalArgumentException if the payload is not a JSON object
+     */
+    static SignalingMessage decode(String payload) {
+        try (JsonReader reader = new JsonReader(new StringReader(payload))) {
+            String type = null;
+            String streamId = null;
+            String bookingId = null;
+            String sdp = null;
+            String resumeToken = null;
+            IceCandidate candidate = null;
+            List<IceCandidate> candidates = null;
+            boolean iceBatching = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "type" -> type = reader.peek() == JsonToken.STRING ? reader.nextString() : skip(reader);
+                    case "streamId" -> streamId = readString(reader);
+                    case "bookingId" -> bookingId = readString(reader);
+                    case "sdp" -> sdp = readString(reader);
+                    case "resumeToken" -> resumeToken = readString(reader);
+                    case "candidate" -> candidate = readCandidate(reader);
+                    case "candidates" -> candidates = readCandidates(reader);
+                    case "iceBatching" -> iceBatching = reader.peek() == JsonToken.BOOLEAN ? reader.nextBoolean() : skipFalse(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new SignalingMessage(type, streamId, bookingId, sdp, resumeToken, candidate, candidates, iceBatching);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed signaling message: " + e.getMessage(), e);
+        }
+    }
+
+    static String error(String message) {
+        return write(writer -> writer.name("type").value("error").name("message").value(message));
+    }
+
+    static String streamStarted(String streamId, String sdpAnswer, String resumeToken) {
+        return write(writer -> writer.name("type").value("streamStarted")
+                .name("streamId").value(streamId)
+                .name("sdp").value(sdpAnswer)
+                .name("resumeToken").value(resumeToken));
+    }
+
+    static String streamResumed(String streamId, String sdpAnswer, String resumeToken) {
+        return write(writer -> writer.name("type").value("streamResumed")
+                .name("streamId").value(streamId)
+                .name("sdp").value(sdpAnswer)
+                .name("resumeToken").value(resumeToken));
+    }
+
+    static String sdpAnswer(String sdpAnswer) {
+        return write(writer -> writer.name("type").value("sdpAnswer").name("sdp").value(sdpAnswer));
+    }
+
+    static String viewerConnected(String streamId) {
+        return write(writer -> writer.name("type").value("viewerConnected").name("streamId").value(streamId));
+    }
+
+    static String viewerDisconnected(String streamId) {
+        return write(writer -> writer.name("type").value("viewerDisconnected").name("streamId").value(streamId));
+    }
+
+    static String waitlisted(String streamId, int position) {
+        return write(writer -> writer.name("type").value("waitlisted")
+                .name("streamId").value(streamId)
+                .name("position").value(position));
+    }
+
+    static String streamFailed(String streamId, String reason) {
+        return write(writer -> writer.name("type").value("streamFailed")
+                .name("streamId").value(streamId)
+                .name("reason").value(reason));
+    }
+
+    static String iceCandidate(String streamId, IceCandidate candidate) {
+        return write(writer -> {
+            writer.name("type").value("iceCandidate").name("candidate");
+            writeCandidate(writer, candidate);
+            writer.name("streamId").value(streamId);
+        });
+    }
+
+    static String iceCandidates(String streamId, List<IceCandidate> candidates) {
+        return write(writer -> {
+            writer.name("type").value("iceCandidates").name("candidates").beginArray();
+            for (IceCandidate candidate : candidates) {
+                writeCandidate(writer, candidate);
+            }
+            writer.endArray().name("streamId").value(streamId);
+        });
+    }
+
+    private static void writeCandidate(JsonWriter writer, IceCandidate candidate) throws IOException {
+        writer.beginObject()
+                .name("candidate").value(candidate.getCandidate())
+                .name("sdpMid").value(candidate.getSdpMid())
+                .name("sdpMLineIndex").value(candidate.getSdpMLineIndex())
+                .endObject();
+    }
+
+    @FunctionalInterface
+    private interface FrameBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private static String write(FrameBody body) {
+        FrameBuffer buffer = BUFFERS.get();
+        buffer.reset();
+        try {
+            JsonWriter writer = new JsonWriter(buffer);
+            writer.beginObject();
+            body.write(writer);
+            writer.endObject();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // FrameBuffer never throws
+        }
+        String frame = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFERS.remove();
+        }
+        return frame;
+    }
+
+    // Strings, numbers and booleans are all read as text, as the tree-based parser did
+    private static String readString(JsonReader reader) throws IOException {
+        return switch (reader.peek()) {
+            case STRING, NUMBER -> reader.nextString();
+            case BOOLEAN -> String.valueOf(reader.nextBoolean());
+            default -> skip(reader);
+        };
+    }
+
+    private static IceCandidate readCandidate(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return skip(reader);
+        }
+        String candidate = null;
+        String sdpMid = null;
+        Integer sdpMLineIndex = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "candidate" -> candidate = readString(reader);
+                case "sdpMid" -> sdpMid = readString(reader);
+                case "sdpMLineIndex" -> sdpMLineIndex = reader.peek() == JsonToken.NUMBER || reader.peek() == JsonToken.STRING
+                        ? Integer.valueOf(reader.nextInt()) : skip(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (candidate == null || sdpMid == null || sdpMLineIndex == null) {
+            return null;
+        }
+        return new IceCandidate(candidate, sdpMid, sdpMLineIndex);
+    }
+
+    // Null if the value is not an array or any entry is not a valid candidate
+    private static List<IceCandidate> readCandidates(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return skip(reader);
+        }
+        List<IceCandidate> candidates = new ArrayList<>();
+        boolean valid = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            IceCandidate candidate = readCandidate(reader);
+            if (candidate == null) {
+                valid = false;
+            } else {
+                candidates.add(candidate);
+            }
+        }
+        reader.endArray();
+        return valid ? candidates : null;
+    }
+
+    private static <T> T skip(JsonReader reader) throws IOException {
+        reader.skipValue();
+        return null;
+    }
+
+    private static boolean skipFalse(JsonReader reader) throws IOException {
+        reader.skipValue();
+        return false;
+    }
+
+    /** Unsynchronized StringBuilder writer, reused per thread. */
+    private static final class FrameBuffer extends Writer {
+        private final StringBuilder builder = new StringBuilder(512);
+
+        void reset() {
+            builder.setLength(0);
+        }
+
+        int capacity() {
+            return builder.capacity();
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            builder.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
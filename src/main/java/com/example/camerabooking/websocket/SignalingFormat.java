@@ -0,0 +1,56 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.List;
+
+/**
+ * Wire encoding of signaling frames. Clients choose one with
+ * {@code Sec-WebSocket-Protocol}; without one they get JSON. Every format
+ * decodes into the same {@link SignalingMessage}, so the handler's dispatch
+ * does not care which one a client speaks.
+ */
+interface SignalingFormat {
+
+    String JSON_PROTOCOL = "signaling.json.v1";
+    String BINARY_PROTOCOL = "signaling.binary.v1";
+
+    List<String> SUB_PROTOCOLS = List.of(BINARY_PROTOCOL, JSON_PROTOCOL);
+
+    /** The format replies use for a session that negotiated this subprotocol, or none. */
+    static SignalingFormat forProtocol(String acceptedProtocol) {
+        return BINARY_PROTOCOL.equals(acceptedProtocol) ? BinarySignalingFormat.INSTANCE : JsonSignalingFormat.INSTANCE;
+    }
+
+    /** The format an inbound frame is in; a binary-protocol client may still send text frames. */
+    static SignalingFormat forMessage(WebSocketMessage<?> message) {
+        return message instanceof BinaryMessage ? BinarySignalingFormat.INSTANCE : JsonSignalingFormat.INSTANCE;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    SignalingMessage decode(WebSocketMessage<?> message);
+
+    WebSocketMessage<?> error(String message);
+
+    WebSocketMessage<?> streamStarted(String streamId, String sdpAnswer, String resumeToken);
+
+    WebSocketMessage<?> streamResumed(String streamId, String sdpAnswer, String resumeToken);
+
+    WebSocketMessage<?> sdpAnswer(String sdpAnswer);
+
+    WebSocketMessage<?> viewerConnected(String streamId);
+
+    WebSocketMessage<?> viewerDisconnected(String streamId);
+
+    WebSocketMessage<?> waitlisted(String streamId, int position);
+
+    WebSocketMessage<?> streamFailed(String streamId, String reason);
+
+    WebSocketMessage<?> iceCandidate(String streamId, IceCandidate candidate);
+
+    WebSocketMessage<?> iceCandidates(String streamId, List<IceCandidate> candidates);
+}
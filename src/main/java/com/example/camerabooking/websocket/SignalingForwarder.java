@@ -0,0 +1,233 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.cluster.StreamLocation;
+import com.example.camerabooking.cluster.StreamRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries a client's signaling for streams owned by another app instance.
+ *
+ * The first message for such a stream opens a WebSocket from this instance to
+ * the owner's signaling endpoint, in the client's subprotocol, and frames are
+ * then passed through unchanged both ways: to the owner the client looks like
+ * any other viewer. A client has at most one link per owning instance. Links
+ * are marked as forwarded so an owner with a stale registry never forwards
+ * them again, and carry the client's bearer token so the owner sees the same
+ * user.
+ */
+@Component
+public class SignalingForwarder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignalingForwarder.class);
+
+    static final String FORWARDED_PARAM = "forwardedBy";
+
+    private final StreamRegistry streamRegistry;
+    private final ClusterNode node;
+    private final OutboundQueues outboundQueues;
+    private final WebSocketClient client;
+    private final long connectTimeoutMillis;
+    // client session id -> owning node id -> link
+    private final Map<String, Map<String, Link>> links = new ConcurrentHashMap<>();
+    private final Counter forwarded;
+
+    public SignalingForwarder(StreamRegistry streamRegistry,
+                              ClusterNode node,
+                              OutboundQueues outboundQueues,
+                              @Qualifier("signalingForwardClient") WebSocketClient client,
+                              @Value("${cluster.forward.connect-timeout:5s}") Duration connectTimeout,
+                              MeterRegistry meterRegistry) {
+        this.streamRegistry = streamRegistry;
+        this.node = node;
+        this.outboundQueues = outboundQueues;
+        this.client = client;
+        this.connectTimeoutMillis = connectTimeout.toMillis();
+        this.forwarded = meterRegistry.counter("signaling.forwarded");
+    }
+
+    /**
+     * Send the message on to the instance that owns the stream. False if no other
+     * instance owns it, in which case the caller handles it locally. Called on
+     * the client's serial task queue, so its links are never opened concurrently.
+     */
+    boolean forward(WebSocketSession session, String streamId, WebSocketMessage<?> message) {
+        if (isForwarded(session)) {
+            return false;
+        }
+        Map<String, Link> sessionLinks = links.computeIfAbsent(session.getId(), id -> new ConcurrentHashMap<>());
+        Link link = linkCarrying(sessionLinks, streamId);
+        if (link == null) {
+            Optional<StreamLocation> location = streamRegistry.find(streamId);
+            if (location.isEmpty() || location.get().nodeId().equals(node.getId())) {
+                return false;
+            }
+            link = linkTo(session, sessionLinks, location.get());
+            if (link == null) {
+                OutboundMessageQueue outbound = outboundQueues.get(session);
+                outbound.send(outbound.format().streamFailed(streamId, "Stream owner unreachable"));
+                return true;
+            }
+            link.streamIds.add(streamId);
+        }
+        try {
+            link.remote.sendMessage(message);
+            forwarded.increment();
+        } catch (Exception e) {
+            logger.warn("Failed to forward message for stream {} to node {}: {}", streamId, link.nodeId, e.getMessage());
+            link.abort();
+        }
+        return true;
+    }
+
+    /** Close the client's links; called once its own connection is gone. */
+    void close(WebSocketSession session) {
+        Map<String, Link> sessionLinks = links.remove(session.getId());
+        if (sessionLinks != null) {
+            sessionLinks.values().forEach(Link::close);
+        }
+    }
+
+    /** Whether the session was opened by another instance forwarding its client. */
+    static boolean isForwarded(WebSocketSession session) {
+        URI uri = session.getUri();
+        return uri != null && UriComponentsBuilder.fromUri(uri).build().getQueryParams().containsKey(FORWARDED_PARAM);
+    }
+
+    private static Link linkCarrying(Map<String, Link> sessionLinks, String streamId) {
+        for (Link link : sessionLinks.values()) {
+            if (link.streamIds.contains(streamId)) {
+                return link;
+            }
+        }
+        return null;
+    }
+
+    // Reuse the client's link to the owner if it is still up, so one link carries all its streams there
+    private Link linkTo(WebSocketSession session, Map<String, Link> sessionLinks, StreamLocation owner) {
+        Link link = sessionLinks.get(owner.nodeId());
+        if (link != null && link.remote.isOpen()) {
+            return link;
+        }
+        link = open(session, owner);
+        if (link != null) {
+            sessionLinks.put(owner.nodeId(), link);
+        }
+        return link;
+    }
+
+    private Link open(WebSocketSession session, StreamLocation owner) {
+        URI uri = UriComponentsBuilder.fromUriString(owner.signalingUrl())
+                .queryParam(FORWARDED_PARAM, node.getId())
+                .build()
+                .toUri();
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        // Same subprotocol as the client, so frames need no re-encoding
+        if (StringUtils.hasText(session.getAcceptedProtocol())) {
+            headers.setSecWebSocketProtocol(session.getAcceptedProtocol());
+        }
+        String authorization = session.getHandshakeHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        Link link = new Link(session, owner.nodeId());
+        try {
+            link.remote = client.execute(link, headers, uri).get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            logger.info("Forwarding session {} to node {} at {}", session.getId(), owner.nodeId(), owner.signalingUrl());
+            return link;
+        } catch (Exception e) {
+            logger.warn("Could not reach node {} at {} for stream {}: {}",
+                    owner.nodeId(), owner.signalingUrl(), owner.streamId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /** This instance's connection to one owning instance on behalf of one client. */
+    private final class Link extends AbstractWebSocketHandler {
+        final WebSocketSession clientSession;
+        final String nodeId;
+        final Set<String> streamIds = ConcurrentHashMap.newKeySet();
+        volatile WebSocketSession remote;
+        volatile boolean closing;
+
+        Link(WebSocketSession clientSession, String nodeId) {
+            this.clientSession = clientSession;
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            outboundQueues.get(clientSession).send(message);
+        }
+
+        @Override
+        protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+            outboundQueues.get(clientSession).send(message);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            Map<String, Link> sessionLinks = links.get(clientSession.getId());
+            if (sessionLinks != null) {
+                sessionLinks.remove(nodeId, this);
+            }
+            if (closing) {
+                return;
+            }
+            // The owner went away; the client can rejoin once the stream is back
+            logger.warn("Link of session {} to node {} closed: {}", clientSession.getId(), nodeId, status);
+            OutboundMessageQueue outbound = outboundQueues.get(clientSession);
+            for (String streamId : streamIds) {
+                outbound.send(outbound.format().streamFailed(streamId, "Stream owner unreachable"));
+            }
+        }
+
+        /** Close without telling the client, which is gone or left on purpose. */
+        void close() {
+            closing = true;
+            closeRemote(CloseStatus.NORMAL);
+        }
+
+        /** Close after a failure; the client hears of it through afterConnectionClosed. */
+        void abort() {
+            closeRemote(CloseStatus.SERVER_ERROR);
+        }
+
+        private void closeRemote(CloseStatus status) {
+            WebSocketSession session = remote;
+            if (session == null) {
+                return;
+            }
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                logger.debug("Failed to close link of session {} to node {}: {}", clientSession.getId(), nodeId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.camerabooking.websocket;
+
+import org.kurento.client.IceCandidate;
+
+import java.util.List;
+
+/**
+ * An inbound signaling frame, decoded by any {@link SignalingFormat}. Fields the
+ * frame did not carry, or carried with the wrong kind of value, are null.
+ */
+record SignalingMessage(String type,
+                        String streamId,
+                        String bookingId,
+                        String sdp,
+                        String resumeToken,
+                        IceCandidate candidate,
+                        List<IceCandidate> candidates,
+                        boolean iceBatching) {
+}
@@ -0,0 +1,186 @@
+package com.example.camerabooking.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission control for going live and for joining streams.
+ *
+ * {@code startStream} and {@code viewStream} are each capped by a token bucket.
+ * A viewer also needs one of the stream's viewer slots. Viewers that cannot get
+ * in are put on the stream's waitlist and admitted in arrival order as slots
+ * and tokens free up; nobody skips ahead of a waiting viewer.
+ *
+ * The fast path is lock-free: buckets and slot counts are CAS-based, and the
+ * "anyone waiting?" check is a map lookup. Only waitlist changes take a lock,
+ * one per stream.
+ */
+@Component
+public class StreamAdmission {
+
+    private final TokenBucket startRate;
+    private final TokenBucket viewRate;
+    private final int maxViewersPerStream;
+    private final int maxWaitlist;
+    // streamId -> waiting viewers, oldest first; each deque is guarded by itself
+    private final Map<String, Deque<WebSocketSession>> waitlists = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public StreamAdmission(MeterRegistry meterRegistry,
+                           @Value("${signaling.admission.start-rate:0}") double startsPerSecond,
+                           @Value("${signaling.admission.start-burst:10}") int startBurst,
+                           @Value("${signaling.admission.view-rate:0}") double viewsPerSecond,
+                           @Value("${signaling.admission.view-burst:100}") int viewBurst,
+                           @Value("${signaling.admission.max-viewers-per-stream:0}") int maxViewersPerStream,
+                           @Value("${signaling.admission.max-waitlist:1000}") int maxWaitlist) {
+        this.meterRegistry = meterRegistry;
+        this.startRate = new TokenBucket(startsPerSecond, startBurst);
+        this.viewRate = new TokenBucket(viewsPerSecond, viewBurst);
+        this.maxViewersPerStream = maxViewersPerStream;
+        this.maxWaitlist = maxWaitlist;
+        Gauge.builder("signaling.admission.waitlisted", waitlists, all -> all.values().stream().mapToInt(waitlist -> {
+            synchronized (waitlist) {
+                return waitlist.size();
+            }
+        }).sum()).register(meterRegistry);
+    }
+
+    boolean tryStartStream() {
+        if (startRate.tryAcquire()) {
+            return true;
+        }
+        rejected("start-rate");
+        return false;
+    }
+
+    /** Reserve a viewer slot on the stream, unless others are already waiting for one. */
+    boolean tryAdmitViewer(StreamSession stream) {
+        return !waitlists.containsKey(stream.getStreamId()) && admit(stream);
+    }
+
+    /**
+     * Put the viewer on the stream's waitlist, at the back or, for a viewer that
+     * was admitted but could not be placed, at the front.
+     *
+     * @return the viewer's 1-based position, or -1 if the waitlist is full
+     */
+    int waitlist(String streamId, WebSocketSession session, boolean front) {
+        while (true) {
+            Deque<WebSocketSession> waitlist = waitlists.computeIfAbsent(streamId, id -> new ArrayDeque<>());
+            synchronized (waitlist) {
+                if (waitlists.get(streamId) != waitlist) {
+                    continue; // emptied and removed meanwhile
+                }
+                int position = positionOf(waitlist, session);
+                if (position > 0) {
+                    return position; // already waiting; asking again keeps the place
+                }
+                if (waitlist.size() >= maxWaitlist) {
+                    rejected("waitlist-full");
+                    return -1;
+                }
+                if (front) {
+                    waitlist.addFirst(session);
+                    return 1;
+                }
+                waitlist.addLast(session);
+                return waitlist.size();
+            }
+        }
+    }
+
+    private static int positionOf(Deque<WebSocketSession> waitlist, WebSocketSession session) {
+        int position = 1;
+        for (WebSocketSession waiting : waitlist) {
+            if (waiting.equals(session)) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    void leaveWaitlist(String streamId, WebSocketSession session) {
+        Deque<WebSocketSession> waitlist = waitlists.get(streamId);
+        if (waitlist != null) {
+            synchronized (waitlist) {
+                waitlist.remove(session);
+                if (waitlist.isEmpty()) {
+                    waitlists.remove(streamId, waitlist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Admit waiting viewers, oldest first, while slots and tokens allow. Each
+     * returned viewer holds a reserved slot. Closed sessions are dropped.
+     */
+    List<WebSocketSession> admitWaiting(StreamSession stream) {
+        Deque<WebSocketSession> waitlist = waitlists.get(stream.getStreamId());
+        if (waitlist == null) {
+            return List.of();
+        }
+        List<WebSocketSession> admitted = new ArrayList<>();
+        synchronized (waitlist) {
+            WebSocketSession head;
+            while ((head = waitlist.peekFirst()) != null) {
+                if (head.isOpen()) {
+                    if (!admit(stream)) {
+                        break;
+                    }
+                    admitted.add(head);
+                }
+                waitlist.pollFirst();
+            }
+            if (waitlist.isEmpty()) {
+                waitlists.remove(stream.getStreamId(), waitlist);
+            }
+        }
+        return admitted;
+    }
+
+    Set<String> waitingStreamIds() {
+        return waitlists.keySet();
+    }
+
+    /** Forget the stream's waitlist, e.g. when it ends, and return who was on it. */
+    List<WebSocketSession> dropWaitlist(String streamId) {
+        Deque<WebSocketSession> waitlist = waitlists.remove(streamId);
+        if (waitlist == null) {
+            return List.of();
+        }
+        synchronized (waitlist) {
+            return new ArrayList<>(waitlist);
+        }
+    }
+
+    private boolean admit(StreamSession stream) {
+        if (!stream.tryReserveViewerSlot(maxViewersPerStream)) {
+            rejected("stream-full");
+            return false;
+        }
+        if (!viewRate.tryAcquire()) {
+            stream.releaseViewerSlot();
+            rejected("view-rate");
+            return false;
+        }
+        return true;
+    }
+
+    void rejected(String reason) {
+        Counter.builder("signaling.admission.rejected").tag("reason", reason).register(meterRegistry).increment();
+    }
+}
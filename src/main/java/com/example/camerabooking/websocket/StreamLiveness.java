@@ -0,0 +1,178 @@
+package com.example.camerabooking.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PreDestroy;
+import org.kurento.client.MediaType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last activity of each stream and viewer, so ones that went quiet without a
+ * clean close can be reaped.
+ *
+ * Activity is a signaling message, or media flowing: into the broadcaster's
+ * endpoint for a stream, out of the viewer's endpoint for a viewer. Touching
+ * only writes a timestamp. Each entry has one timeout on a hashed-wheel timer;
+ * when it fires, an entry that saw activity or still has media flowing is
+ * rescheduled for the rest of its idle window, and one that did not is
+ * reaped. The timer only ever visits entries that are due, never the whole
+ * set of streams.
+ */
+@Component
+public class StreamLiveness {
+
+    private final long streamIdleNanos;
+    private final long viewerIdleNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final HashedWheelTimer wheel = new HashedWheelTimer(
+            runnable -> {
+                Thread thread = new Thread(runnable, "stream-liveness");
+                thread.setDaemon(true);
+                return thread;
+            }, 1, TimeUnit.SECONDS, 512);
+    private final Counter streamsReaped;
+    private final Counter viewersReaped;
+
+    public StreamLiveness(@Value("${signaling.liveness.stream-idle-timeout:2m}") Duration streamIdleTimeout,
+                          @Value("${signaling.liveness.viewer-idle-timeout:1m}") Duration viewerIdleTimeout,
+                          MeterRegistry meterRegistry) {
+        this.streamIdleNanos = streamIdleTimeout.toNanos();
+        this.viewerIdleNanos = viewerIdleTimeout.toNanos();
+        this.streamsReaped = Counter.builder("signaling.liveness.reaped").tag("kind", "stream").register(meterRegistry);
+        this.viewersReaped = Counter.builder("signaling.liveness.reaped").tag("kind", "viewer").register(meterRegistry);
+        Gauge.builder("signaling.liveness.tracked", entries, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wheel.stop();
+    }
+
+    static String streamKey(String streamId) {
+        return streamId;
+    }
+
+    static String viewerKey(String streamId, String sessionId) {
+        return streamId + "/" + sessionId;
+    }
+
+    /** Watch a stream; {@code onIdle} runs on the timer thread and must hand real work off. */
+    void trackStream(String streamId, Runnable onIdle) {
+        track(streamKey(streamId), streamIdleNanos, onIdle, streamsReaped);
+    }
+
+    void trackViewer(String streamId, String sessionId, Runnable onIdle) {
+        track(viewerKey(streamId, sessionId), viewerIdleNanos, onIdle, viewersReaped);
+    }
+
+    void touch(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastActivity = System.nanoTime();
+        }
+    }
+
+    /** Media of one type started or stopped flowing; an entry with any media flowing is never idle. */
+    void flowing(String key, MediaType mediaType, boolean flowing) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry.lastActivity = System.nanoTime();
+        if (flowing) {
+            entry.flowingTypes.add(mediaType);
+        } else {
+            entry.flowingTypes.remove(mediaType);
+        }
+    }
+
+    /** Reap now, e.g. after its endpoint failed. */
+    void expire(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entries.remove(key, entry)) {
+            cancel(entry);
+            entry.reaped.increment();
+            entry.onIdle.run();
+        }
+    }
+
+    /** Stop watching; called when the stream or viewer goes away for any other reason. */
+    void untrack(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            cancel(entry);
+        }
+    }
+
+    private void track(String key, long idleNanos, Runnable onIdle, Counter reaped) {
+        if (idleNanos <= 0) {
+            return;
+        }
+        Entry entry = new Entry(key, idleNanos, onIdle, reaped);
+        // Published before it can fire, so check() finds it in the map
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            cancel(previous);
+        }
+        schedule(entry, idleNanos);
+    }
+
+    // Null only between track() publishing the entry and scheduling it; check() then finds it gone
+    private static void cancel(Entry entry) {
+        Timeout timeout = entry.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void schedule(Entry entry, long delayNanos) {
+        entry.timeout = wheel.newTimeout(timeout -> check(entry), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void check(Entry entry) {
+        if (entries.get(entry.key) != entry) {
+            return; // untracked or replaced meanwhile
+        }
+        long now = System.nanoTime();
+        if (!entry.flowingTypes.isEmpty()) {
+            schedule(entry, entry.idleNanos);
+            return;
+        }
+        long idleFor = now - entry.lastActivity;
+        if (idleFor < entry.idleNanos) {
+            schedule(entry, entry.idleNanos - idleFor);
+            return;
+        }
+        if (entries.remove(entry.key, entry)) {
+            entry.reaped.increment();
+            entry.onIdle.run();
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final long idleNanos;
+        private final Runnable onIdle;
+        private final Counter reaped;
+        private final Set<MediaType> flowingTypes = ConcurrentHashMap.newKeySet();
+        private volatile long lastActivity = System.nanoTime();
+        private volatile Timeout timeout;
+
+        private Entry(String key, long idleNanos, Runnable onIdle, Counter reaped) {
+            this.key = key;
+            this.idleNanos = idleNanos;
+            this.onIdle = onIdle;
+            this.reaped = reaped;
+        }
+    }
+}
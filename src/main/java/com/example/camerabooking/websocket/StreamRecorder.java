@@ -0,0 +1,319 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.media.MediaServerNode;
+import com.example.camerabooking.model.Recording;
+import com.example.camerabooking.repository.RecordingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.kurento.client.MediaProfileSpecType;
+import org.kurento.client.RecorderEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records live streams to disk with a Kurento {@link RecorderEndpoint} on the
+ * stream's own pipeline, fed from the broadcaster like any viewer.
+ *
+ * The media server writes the files under {@code recording.uri}, which must
+ * be a {@code file://} directory this app can also read (same host or a
+ * shared volume). A segment is rotated once it reaches the configured size or
+ * duration: a recorder for the next segment is attached before the current
+ * one is stopped, so no media is lost between them. Finished segments are
+ * indexed as {@link Recording} rows.
+ *
+ * Each media server takes at most {@code recording.max-per-server} recordings;
+ * streams over the cap go live unrecorded. Rotations and indexing run on a
+ * small bounded pool so they never hold up signaling.
+ */
+@Component
+public class StreamRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamRecorder.class);
+
+    private final RecordingRepository recordingRepository;
+    private final boolean enabled;
+    private final String baseUri;
+    private final Path directory;
+    private final long segmentSizeBytes;
+    private final long segmentDurationNanos;
+    private final int maxPerServer;
+    private final Duration checkInterval;
+    private final ThreadPoolExecutor writers;
+    private final ScheduledExecutorService rotationTimer;
+    // stream id -> its recording; only streams actually being recorded are here
+    private final Map<String, ActiveRecording> active = new ConcurrentHashMap<>();
+    // media server id -> recordings running there
+    private final Map<String, AtomicInteger> perServer = new ConcurrentHashMap<>();
+    private final Counter segmentsFinished;
+    private final Counter rejected;
+
+    public StreamRecorder(RecordingRepository recordingRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${recording.enabled:false}") boolean enabled,
+                          @Value("${recording.uri:file:///var/recordings}") String uri,
+                          @Value("${recording.segment-size:1GB}") DataSize segmentSize,
+                          @Value("${recording.segment-duration:30m}") Duration segmentDuration,
+                          @Value("${recording.max-per-server:4}") int maxPerServer,
+                          @Value("${recording.check-interval:5s}") Duration checkInterval,
+                          @Value("${recording.writer-threads:2}") int writerThreads,
+                          @Value("${recording.queue-capacity:64}") int queueCapacity) {
+        this.recordingRepository = recordingRepository;
+        this.enabled = enabled;
+        this.baseUri = uri.endsWith("/") ? uri : uri + "/";
+        this.directory = Path.of(URI.create(baseUri));
+        this.segmentSizeBytes = segmentSize.toBytes();
+        this.segmentDurationNanos = segmentDuration.toNanos();
+        this.maxPerServer = maxPerServer;
+        this.checkInterval = checkInterval;
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "recording-writer-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Only hands rotations to the writer pool
+        this.rotationTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recording-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.segmentsFinished = meterRegistry.counter("recording.segments");
+        this.rejected = meterRegistry.counter("recording.rejected");
+        Gauge.builder("recording.active", active, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        long intervalMillis = checkInterval.toMillis();
+        rotationTimer.scheduleWithFixedDelay(this::checkRotations, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Recording streams to {}", baseUri);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rotationTimer.shutdownNow();
+        writers.shutdown();
+    }
+
+    /** Start recording a newly live stream, if recording is on and its media server has room. */
+    void start(StreamSession stream) {
+        if (!enabled) {
+            return;
+        }
+        MediaServerNode server = stream.getMediaServer();
+        AtomicInteger running = perServer.computeIfAbsent(server.getId(), id -> new AtomicInteger());
+        if (!tryIncrement(running)) {
+            rejected.increment();
+            logger.warn("Media server {} is at its recording limit, stream {} is not recorded",
+                    server.getId(), stream.getStreamId());
+            return;
+        }
+        ActiveRecording recording = new ActiveRecording(stream, running);
+        try {
+            synchronized (recording) {
+                recording.current = openSegment(stream, 0);
+            }
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            logger.error("Failed to start recording stream {}: {}", stream.getStreamId(), e.getMessage());
+            return;
+        }
+        active.put(stream.getStreamId(), recording);
+    }
+
+    /**
+     * Finish the stream's recording; called before the stream's pipeline is
+     * released, so the last segment is complete on disk.
+     */
+    void stop(StreamSession stream) {
+        ActiveRecording recording = active.remove(stream.getStreamId());
+        if (recording == null) {
+            return;
+        }
+        Segment last;
+        synchronized (recording) {
+            last = recording.current;
+            recording.current = null;
+        }
+        try {
+            if (last != null) {
+                closeSegment(stream, last);
+            }
+        } finally {
+            recording.running.decrementAndGet();
+        }
+    }
+
+    private boolean tryIncrement(AtomicInteger running) {
+        while (true) {
+            int current = running.get();
+            if (maxPerServer > 0 && current >= maxPerServer) {
+                return false;
+            }
+            if (running.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void checkRotations() {
+        long now = System.nanoTime();
+        for (ActiveRecording recording : active.values()) {
+            Segment segment = recording.current;
+            if (segment == null || recording.rotating || !segment.isFull(now)) {
+                continue;
+            }
+            recording.rotating = true;
+            try {
+                writers.execute(() -> rotate(recording));
+            } catch (RejectedExecutionException e) {
+                recording.rotating = false; // busy or shutting down; the next check tries again
+            }
+        }
+    }
+
+    private void rotate(ActiveRecording recording) {
+        StreamSession stream = recording.stream;
+        try {
+            Segment previous;
+            // Held while closing too, so stop() cannot let the pipeline go before the previous file is done
+            synchronized (recording) {
+                previous = recording.current;
+                if (previous == null) {
+                    return; // stopped meanwhile
+                }
+                recording.current = openSegment(stream, previous.index + 1);
+                closeSegment(stream, previous);
+            }
+            logger.info("Rotated recording of stream {} to segment {}", stream.getStreamId(), previous.index + 1);
+        } catch (RuntimeException e) {
+            logger.error("Failed to rotate recording of stream {}: {}", stream.getStreamId(), e.getMessage());
+        } finally {
+            recording.rotating = false;
+        }
+    }
+
+    private Segment openSegment(StreamSession stream, int index) {
+        String fileName = String.format("%s_%s_%03d.webm", stream.getBookingId(), stream.getStreamId(), index);
+        RecorderEndpoint recorder = new RecorderEndpoint.Builder(stream.getPipeline(), baseUri + fileName)
+                .withMediaProfile(MediaProfileSpecType.WEBM)
+                .build();
+        stream.getMediaServer().endpointCreated();
+        try {
+            stream.connectRecorder(recorder);
+            recorder.record();
+        } catch (RuntimeException e) {
+            stream.disconnectRecorder(recorder);
+            stream.getMediaServer().endpointReleased();
+            recorder.release();
+            throw e;
+        }
+        return new Segment(index, recorder, directory.resolve(fileName), segmentSizeBytes, segmentDurationNanos);
+    }
+
+    private void closeSegment(StreamSession stream, Segment segment) {
+        LocalDateTime endedAt = LocalDateTime.now();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - segment.startedNanos);
+        stream.getMediaServer().endpointReleased();
+        try {
+            stream.disconnectRecorder(segment.recorder);
+            // Waits for the media server to finish writing the file
+            segment.recorder.stopAndWait();
+            segment.recorder.release();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to stop recorder of stream {} cleanly: {}", stream.getStreamId(), e.getMessage());
+        }
+        Runnable index = () -> index(stream, segment, durationMillis, endedAt);
+        try {
+            writers.execute(index);
+        } catch (RejectedExecutionException e) {
+            index.run();
+        }
+    }
+
+    private void index(StreamSession stream, Segment segment, long durationMillis, LocalDateTime endedAt) {
+        long size;
+        try {
+            size = Files.size(segment.path);
+        } catch (IOException e) {
+            logger.warn("Recording {} of stream {} is not readable here: {}", segment.path, stream.getStreamId(), e.getMessage());
+            return;
+        }
+        try {
+            recordingRepository.save(new Recording(null, stream.getBookingId(), stream.getStreamId(), segment.index,
+                    segment.path.toString(), size, durationMillis, segment.startedAt, endedAt));
+            segmentsFinished.increment();
+        } catch (RuntimeException e) {
+            logger.error("Failed to index recording {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static final class ActiveRecording {
+        private final StreamSession stream;
+        private final AtomicInteger running;
+        private volatile Segment current; // replaced under this
+        private volatile boolean rotating;
+
+        private ActiveRecording(StreamSession stream, AtomicInteger running) {
+            this.stream = stream;
+            this.running = running;
+        }
+    }
+
+    private static final class Segment {
+        private final int index;
+        private final RecorderEndpoint recorder;
+        private final Path path;
+        private final long maxBytes;
+        private final long maxNanos;
+        private final long startedNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+
+        private Segment(int index, RecorderEndpoint recorder, Path path, long maxBytes, long maxNanos) {
+            this.index = index;
+            this.recorder = recorder;
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.maxNanos = maxNanos;
+        }
+
+        boolean isFull(long now) {
+            if (maxNanos > 0 && now - startedNanos >= maxNanos) {
+                return true;
+            }
+            try {
+                return maxBytes > 0 && Files.size(path) >= maxBytes;
+            } catch (IOException e) {
+                return false; // not written yet, or not visible from here
+            }
+        }
+    }
+}
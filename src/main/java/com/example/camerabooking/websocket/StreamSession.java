@@ -1,60 +1,80 @@
 package com.example.camerabooking.websocket;
 
+import com.example.camerabooking.media.MediaServerNode;
+import org.kurento.client.MediaElement;
 import org.kurento.client.MediaPipeline;
 import org.kurento.client.WebRtcEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A live stream: the broadcaster's endpoint on the origin pipeline, its viewers
+ * and any relay tiers.
+ *
+ * When the broadcaster's connection drops the stream can be suspended instead
+ * of released. Viewers and relays stay attached; a broadcaster that comes back
+ * with the resume token gets a fresh endpoint which is connected to all of
+ * them, so only the broadcaster renegotiates.
+ */
 public class StreamSession {
     private static final Logger logger = LoggerFactory.getLogger(StreamSession.class);
 
     private final String streamId;
     private final String bookingId; // Keep this for reference, though not used directly
+    private final MediaServerNode mediaServer;
     private final MediaPipeline pipeline;
-    private final WebRtcEndpoint broadcasterEndpoint;
-    private WebSocketSession broadcasterSession; // Made non-final to allow reassignment
+    private volatile WebRtcEndpoint broadcasterEndpoint; // replaced on resume, under this
+    private volatile OutboundMessageQueue broadcasterOutbound; // replaced on resume
+    private volatile String resumeToken;
     private final Map<String, WebRtcEndpoint> viewers = new ConcurrentHashMap<>();
+    // Viewers on a relay tier; everyone else watches the origin pipeline directly
+    private final Map<String, RelayTier> viewerTiers = new ConcurrentHashMap<>();
+    private final List<RelayTier> relays = new ArrayList<>(); // guarded by this
+    private final List<MediaElement> recorders = new ArrayList<>(); // guarded by this
+    // Viewers admitted, including those still being attached
+    private final AtomicInteger viewerSlots = new AtomicInteger();
+    // Resume state, guarded by this; each suspension gets a new id so a stale expiry is ignored
+    private boolean suspended;
+    private boolean ended;
+    private int suspension;
 
-    public StreamSession(String streamId, String bookingId, MediaPipeline pipeline, WebRtcEndpoint broadcasterEndpoint, WebSocketSession broadcasterSession) {
+    public StreamSession(String streamId, String bookingId, MediaServerNode mediaServer, MediaPipeline pipeline,
+                         WebRtcEndpoint broadcasterEndpoint, OutboundMessageQueue broadcasterOutbound, String resumeToken) {
         this.streamId = streamId;
         this.bookingId = bookingId;
+        this.mediaServer = mediaServer;
         this.pipeline = pipeline;
         this.broadcasterEndpoint = broadcasterEndpoint;
-        this.broadcasterSession = broadcasterSession;
+        this.broadcasterOutbound = broadcasterOutbound;
+        this.resumeToken = resumeToken;
+        mediaServer.endpointCreated();
+        watchBroadcaster(broadcasterEndpoint);
+    }
 
+    private void watchBroadcaster(WebRtcEndpoint endpoint) {
         // Add error listener for broadcaster endpoint
-        broadcasterEndpoint.addErrorListener(event -> {
+        endpoint.addErrorListener(event -> {
             logger.error("Error on broadcaster endpoint for stream {}: {}", streamId, event.getDescription());
             sendErrorToBroadcaster("Broadcaster endpoint error: " + event.getDescription());
         });
 
         // Handle ICE candidates for broadcaster
-        broadcasterEndpoint.addIceCandidateFoundListener(event -> {
-            com.google.gson.JsonObject message = new com.google.gson.JsonObject();
-            message.addProperty("type", "iceCandidate");
-            com.google.gson.JsonObject candidateJson = new com.google.gson.JsonObject();
-            candidateJson.addProperty("candidate", event.getCandidate().getCandidate());
-            candidateJson.addProperty("sdpMid", event.getCandidate().getSdpMid());
-            candidateJson.addProperty("sdpMLineIndex", event.getCandidate().getSdpMLineIndex());
-            message.add("candidate", candidateJson);
-            message.addProperty("streamId", streamId);
-            try {
-                synchronized (broadcasterSession) { // Ensure thread safety
-                    if (broadcasterSession.isOpen()) {
-                        broadcasterSession.sendMessage(new TextMessage(message.toString()));
-                        logger.debug("Sent ICE candidate to broadcaster for stream: {}", streamId);
-                    } else {
-                        logger.warn("Broadcaster session closed, cannot send ICE candidate for stream: {}", streamId);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("Failed to send ICE candidate to broadcaster for stream {}: {}", streamId, e.getMessage());
+        endpoint.addIceCandidateFoundListener(event -> {
+            if (this.broadcasterOutbound.sendIceCandidate(streamId, event.getCandidate())) {
+                logger.debug("Queued ICE candidate to broadcaster for stream: {}", streamId);
+            } else {
+                logger.warn("Broadcaster session closed, cannot send ICE candidate for stream: {}", streamId);
             }
         });
     }
@@ -63,6 +83,14 @@ public class StreamSession {
         return streamId;
     }
 
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    public MediaServerNode getMediaServer() {
+        return mediaServer;
+    }
+
     public MediaPipeline getPipeline() {
         return pipeline;
     }
@@ -72,19 +100,122 @@ public class StreamSession {
     }
 
     public WebSocketSession getBroadcasterSession() {
-        return broadcasterSession;
+        return broadcasterOutbound.getSession();
+    }
+
+    public OutboundMessageQueue getBroadcasterOutbound() {
+        return broadcasterOutbound;
     }
 
-    // Allow reassignment of broadcaster session for resumption
-    public void setBroadcasterSession(WebSocketSession newSession) {
-        synchronized (this) { // Synchronize to avoid race conditions
-            this.broadcasterSession = newSession;
-            logger.info("Broadcaster session updated for stream: {}", streamId);
+    /** Feed a viewer or relay from the broadcaster; safe against a concurrent resume swapping the endpoint. */
+    public synchronized void connectBroadcasterTo(MediaElement sink) {
+        broadcasterEndpoint.connect(sink);
+    }
+
+    /** Record the broadcaster into the sink; it stays attached across a resume until disconnected. */
+    public synchronized void connectRecorder(MediaElement recorder) {
+        broadcasterEndpoint.connect(recorder);
+        recorders.add(recorder);
+    }
+
+    public synchronized void disconnectRecorder(MediaElement recorder) {
+        if (recorders.remove(recorder)) {
+            broadcasterEndpoint.disconnect(recorder);
         }
     }
 
-    public void addViewer(String sessionId, WebRtcEndpoint endpoint) {
+    public boolean matchesResumeToken(String token) {
+        return token != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), resumeToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Keep the stream for its broadcaster to come back to. Returns the id to pass to
+     * {@link #expire}, or -1 if the session is no longer the broadcaster or the stream ended.
+     */
+    public synchronized int suspend(WebSocketSession broadcaster) {
+        if (ended || !isBroadcaster(broadcaster)) {
+            return -1;
+        }
+        suspended = true;
+        logger.info("Stream {} suspended, waiting for broadcaster to resume", streamId);
+        return ++suspension;
+    }
+
+    /** Mark the stream ended if the session is still its broadcaster; false if a resume moved it on. */
+    public synchronized boolean endFor(WebSocketSession broadcaster) {
+        if (!isBroadcaster(broadcaster)) {
+            return false;
+        }
+        ended = true;
+        return true;
+    }
+
+    /** Waiting for its broadcaster to resume; the grace period, not idleness, decides its end. */
+    public synchronized boolean isSuspended() {
+        return suspended && !ended;
+    }
+
+    /** End the given suspension if the broadcaster never resumed; the caller then releases the stream. */
+    public synchronized boolean expire(int suspensionId) {
+        if (ended || !suspended || suspension != suspensionId) {
+            return false;
+        }
+        ended = true;
+        return true;
+    }
+
+    private boolean isBroadcaster(WebSocketSession session) {
+        return broadcasterOutbound.getSession().getId().equals(session.getId());
+    }
+
+    /**
+     * Attach a reconnected broadcaster: its new endpoint feeds every viewer and relay
+     * that was fed by the old one, which is then released. False if the stream ended.
+     */
+    public boolean resume(WebRtcEndpoint endpoint, OutboundMessageQueue outbound, String newResumeToken) {
+        WebRtcEndpoint previous;
+        synchronized (this) {
+            if (ended) {
+                return false;
+            }
+            previous = broadcasterEndpoint;
+            broadcasterEndpoint = endpoint;
+            broadcasterOutbound = outbound;
+            resumeToken = newResumeToken;
+            suspended = false;
+            suspension++;
+            watchBroadcaster(endpoint);
+            viewers.forEach((sessionId, viewerEndpoint) -> {
+                if (!viewerTiers.containsKey(sessionId)) {
+                    endpoint.connect(viewerEndpoint);
+                }
+            });
+            for (RelayTier relay : relays) {
+                endpoint.connect(relay.getOriginFeed());
+            }
+            for (MediaElement recorder : recorders) {
+                endpoint.connect(recorder);
+            }
+        }
+        try {
+            previous.release();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to release previous broadcaster endpoint of stream {}: {}", streamId, e.getMessage());
+        }
+        logger.info("Broadcaster resumed stream {} on session {}", streamId, outbound.getSession().getId());
+        return true;
+    }
+
+    /** Add a viewer whose endpoint lives on the given relay tier, or on the origin if null. */
+    public void addViewer(String sessionId, WebRtcEndpoint endpoint, RelayTier tier, OutboundMessageQueue viewerOutbound) {
         viewers.put(sessionId, endpoint);
+        if (tier != null) {
+            viewerTiers.put(sessionId, tier);
+            tier.getServer().endpointCreated();
+        } else {
+            mediaServer.endpointCreated();
+        }
 
         // Add error listener for viewer endpoint
         endpoint.addErrorListener(event -> {
@@ -92,68 +223,177 @@ public class StreamSession {
             sendErrorToBroadcaster("Viewer endpoint error (viewer " + sessionId + "): " + event.getDescription());
         });
 
-        // Handle ICE candidates for viewer
+        // Handle ICE candidates for viewer; they belong to the viewer's own connection
         endpoint.addIceCandidateFoundListener(event -> {
-            com.google.gson.JsonObject message = new com.google.gson.JsonObject();
-            message.addProperty("type", "iceCandidate");
-            com.google.gson.JsonObject candidateJson = new com.google.gson.JsonObject();
-            candidateJson.addProperty("candidate", event.getCandidate().getCandidate());
-            candidateJson.addProperty("sdpMid", event.getCandidate().getSdpMid());
-            candidateJson.addProperty("sdpMLineIndex", event.getCandidate().getSdpMLineIndex());
-            message.add("candidate", candidateJson);
-            message.addProperty("streamId", streamId);
-            try {
-                synchronized (broadcasterSession) { // Ensure thread safety
-                    if (broadcasterSession.isOpen()) {
-                        broadcasterSession.sendMessage(new TextMessage(message.toString()));
-                        logger.debug("Sent ICE candidate for viewer {} in stream: {}", sessionId, streamId);
-                    } else {
-                        logger.warn("Broadcaster session closed, cannot send ICE candidate for viewer {} in stream: {}", sessionId, streamId);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("Failed to send ICE candidate for viewer {} in stream {}: {}", sessionId, streamId, e.getMessage());
+            if (viewerOutbound.sendIceCandidate(streamId, event.getCandidate())) {
+                logger.debug("Queued ICE candidate for viewer {} in stream: {}", sessionId, streamId);
+            } else {
+                logger.debug("Viewer session closed, cannot send ICE candidate for viewer {} in stream: {}", sessionId, streamId);
             }
         });
         logger.info("Added viewer {} to stream: {}", sessionId, streamId);
     }
 
+    /** Reserve room for one more viewer; false once {@code max} are taken (0 means no limit). */
+    public boolean tryReserveViewerSlot(int max) {
+        while (true) {
+            int taken = viewerSlots.get();
+            if (max > 0 && taken >= max) {
+                return false;
+            }
+            if (viewerSlots.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Give back a slot whose viewer was never added; removeViewer gives back the others. */
+    public void releaseViewerSlot() {
+        viewerSlots.decrementAndGet();
+    }
+
+    public Set<String> getViewerSessionIds() {
+        return Set.copyOf(viewers.keySet());
+    }
+
+    /** The pipeline holding this session's endpoint: a relay's for viewers on one, else the origin. */
+    public MediaPipeline getPipelineFor(String sessionId) {
+        RelayTier tier = viewerTiers.get(sessionId);
+        return tier != null ? tier.getPipeline() : pipeline;
+    }
+
+    public int getOriginViewerCount() {
+        return viewers.size() - viewerTiers.size();
+    }
+
+    /**
+     * Take a seat on the fullest relay that still has room. Packing viewers keeps
+     * the other relays emptying out so they can be released.
+     */
+    public synchronized RelayTier reserveRelaySeat(int seatsPerRelay) {
+        RelayTier best = null;
+        for (RelayTier relay : relays) {
+            if (relay.seats() < seatsPerRelay && (best == null || relay.seats() > best.seats())) {
+                best = relay;
+            }
+        }
+        if (best != null) {
+            best.tryTakeSeat(seatsPerRelay);
+        }
+        return best;
+    }
+
+    public synchronized int getRelayCount() {
+        return relays.size();
+    }
+
+    /** Register a newly opened relay; its first seat is already taken. */
+    public synchronized void addRelay(RelayTier relay) {
+        relays.add(relay);
+    }
+
+    /** Give back a seat; a relay left empty is released. */
+    public void leaveRelay(RelayTier relay) {
+        boolean empty;
+        synchronized (this) {
+            empty = relay.leaveSeat() <= 0 && relays.remove(relay);
+        }
+        if (empty) {
+            relay.release(mediaServer);
+        }
+    }
+
+    /**
+     * Forget the relays on a lost media server and return the viewers that were on them.
+     * Their endpoints are gone with the server; callers still remove the viewers.
+     */
+    public List<String> dropRelaysOn(MediaServerNode server) {
+        List<RelayTier> dropped = new ArrayList<>();
+        synchronized (this) {
+            relays.removeIf(relay -> {
+                if (relay.getServer() == server) {
+                    dropped.add(relay);
+                    return true;
+                }
+                return false;
+            });
+        }
+        List<String> orphaned = new ArrayList<>();
+        viewerTiers.forEach((sessionId, tier) -> {
+            if (dropped.contains(tier)) {
+                orphaned.add(sessionId);
+            }
+        });
+        dropped.forEach(relay -> relay.release(mediaServer));
+        return orphaned;
+    }
+
     public WebRtcEndpoint getViewerEndpoint(String sessionId) {
         return viewers.get(sessionId);
     }
 
-    public void removeViewer(String sessionId) {
+    /** Remove and release a viewer; true if it was there, i.e. its slot is free again. */
+    public boolean removeViewer(String sessionId) {
         WebRtcEndpoint endpoint = viewers.remove(sessionId);
         if (endpoint != null) {
-            endpoint.release();
+            viewerSlots.decrementAndGet();
+            RelayTier tier = viewerTiers.remove(sessionId);
+            if (tier != null) {
+                tier.getServer().endpointReleased();
+            } else {
+                mediaServer.endpointReleased();
+            }
+            try {
+                endpoint.release();
+            } finally {
+                if (tier != null) {
+                    leaveRelay(tier);
+                }
+            }
             logger.info("Removed and released viewer {} from stream: {}", sessionId, streamId);
+            return true;
         }
+        return false;
     }
 
     public void release() {
-        for (Map.Entry<String, WebRtcEndpoint> entry : viewers.entrySet()) {
+        synchronized (this) {
+            ended = true;
+        }
+        // Take the viewers out first so a concurrent removeViewer cannot release or count one twice
+        Map<String, WebRtcEndpoint> released = new HashMap<>();
+        for (String sessionId : viewers.keySet()) {
+            WebRtcEndpoint endpoint = viewers.remove(sessionId);
+            if (endpoint != null) {
+                released.put(sessionId, endpoint);
+                RelayTier tier = viewerTiers.remove(sessionId);
+                (tier != null ? tier.getServer() : mediaServer).endpointReleased();
+            }
+        }
+        List<RelayTier> releasedRelays;
+        synchronized (this) {
+            releasedRelays = new ArrayList<>(relays);
+            relays.clear();
+        }
+        // Counted down before the server calls so the pool's load stays right even if the server is gone
+        mediaServer.endpointReleased();
+        mediaServer.pipelineReleased();
+        for (Map.Entry<String, WebRtcEndpoint> entry : released.entrySet()) {
             entry.getValue().release();
             logger.info("Released viewer {} endpoint for stream: {}", entry.getKey(), streamId);
         }
-        viewers.clear();
+        for (RelayTier relay : releasedRelays) {
+            relay.release(mediaServer);
+        }
         broadcasterEndpoint.release();
         pipeline.release();
         logger.info("Released all resources for stream: {}", streamId);
     }
 
     private void sendErrorToBroadcaster(String message) {
-        try {
-            synchronized (broadcasterSession) {
-                if (broadcasterSession.isOpen()) {
-                    com.google.gson.JsonObject errorMsg = new com.google.gson.JsonObject();
-                    errorMsg.addProperty("type", "error");
-                    errorMsg.addProperty("message", message);
-                    broadcasterSession.sendMessage(new TextMessage(errorMsg.toString()));
-                    logger.error("Sent error to broadcaster for stream {}: {}", streamId, message);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Failed to send error to broadcaster for stream {}: {}", streamId, e.getMessage());
+        OutboundMessageQueue outbound = broadcasterOutbound;
+        if (outbound.send(outbound.format().error(message))) {
+            logger.error("Sent error to broadcaster for stream {}: {}", streamId, message);
         }
     }
 }
\ No newline at end of file
@@ -1,205 +1,610 @@
 package com.example.camerabooking.websocket;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.cluster.StreamLocation;
+import com.example.camerabooking.cluster.StreamRegistry;
+import com.example.camerabooking.exception.MediaServerUnavailableException;
+import com.example.camerabooking.impl.StreamEventLog;
+import com.example.camerabooking.impl.StreamableBookingCache;
+import com.example.camerabooking.media.KurentoPool;
+import com.example.camerabooking.media.MediaServerNode;
+import com.example.camerabooking.media.PreparedPipeline;
+import com.example.camerabooking.media.WarmPipelinePool;
+import com.example.camerabooking.security.JwtService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.kurento.client.IceCandidate;
-import org.kurento.client.IceCandidateFoundEvent;
-import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaFlowState;
 import org.kurento.client.MediaPipeline;
+import org.kurento.client.Transaction;
 import org.kurento.client.WebRtcEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-
-public class StreamWebSocketHandler extends TextWebSocketHandler {
-	private final KurentoClient kurento = KurentoClient.create("wss://kurento-service.onrender.com/kurento");
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signaling endpoint for live streams.
+ *
+ * Kurento calls are blocking round trips to the media server, so messages are
+ * not handled on the WebSocket container thread. Each session gets a
+ * {@link SessionTaskQueue} that runs its messages one at a time, in order, on
+ * the shared signaling pool; a slow {@code startStream} only delays later
+ * messages of the same session. Replies go through the session's
+ * {@link OutboundMessageQueue} rather than straight to the socket.
+ *
+ * Clients speak JSON text frames unless they negotiate the compact binary
+ * subprotocol ({@link SignalingFormat}); both decode to the same
+ * {@link SignalingMessage} and share the dispatch below.
+ *
+ * Streams are recorded in the {@link StreamRegistry}; viewer messages for a
+ * stream owned by another app instance go to it through the
+ * {@link SignalingForwarder}.
+ *
+ * With a resume grace period, a broadcaster whose connection drops leaves its
+ * stream suspended rather than released; it can reconnect and send
+ * {@code resumeStream} with the token from {@code streamStarted}, and only its
+ * own endpoint is renegotiated while viewers stay connected.
+ *
+ * Only bookings that are APPROVED for today may go live, checked against
+ * {@link StreamableBookingCache}; starts and stops go to the {@link StreamEventLog}.
+ * With recording on, the {@link StreamRecorder} also writes each stream to disk.
+ *
+ * Streams and viewers that go idle without a clean close, with no signaling
+ * and no media flowing, are reaped through {@link StreamLiveness}.
+ *
+ * {@link StreamAdmission} rate-limits new streams and joins and caps viewers
+ * per stream; media servers cap their endpoints. Viewers who cannot join yet
+ * get {@code waitlisted} and are attached in arrival order as room frees up.
+ */
+@Component
+public class StreamWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
+    private static final Logger logger = LoggerFactory.getLogger(StreamWebSocketHandler.class);
+
+    // Messages about a stream which the stream's owner must handle
+    private static final Set<String> FORWARDED_TYPES = Set.of("viewStream", "leaveStream", "sdpOffer", "iceCandidate",
+            "iceCandidates", "resumeStream", "stopStream");
+    private static final SecureRandom RESUME_TOKEN_RANDOM = new SecureRandom();
+
+    private final KurentoPool kurentoPool;
+    private final WarmPipelinePool pipelinePool;
+    private final StreamAdmission admission;
+    private final StreamableBookingCache streamableBookings;
+    private final StreamEventLog streamEvents;
+    private final StreamRecorder recorder;
+    private final StreamLiveness liveness;
+    private final StreamRegistry streamRegistry;
+    private final ClusterNode node;
+    private final SignalingForwarder forwarder;
     private final Map<String, StreamSession> streams = new ConcurrentHashMap<>();
+    private final Map<String, SessionTaskQueue> taskQueues = new ConcurrentHashMap<>();
+    private final Map<String, IceCandidateBuffer> iceBuffers = new ConcurrentHashMap<>();
+    private final SessionStreamIndex sessionIndex = new SessionStreamIndex();
+    private final Executor signalingExecutor;
+    private final OutboundQueues outboundQueues;
+    private final int maxPendingMessages;
+    private final int relayViewerThreshold;
+    private final int viewersPerRelay;
+    private final int maxBufferedIceCandidates;
+    private final DistributionSummary iceFramesSaved;
+    private final DistributionSummary iceRpcsSaved;
+    private final long resumeGracePeriodMillis;
+    private final long waitlistRetryMillis;
+    private final ScheduledExecutorService signalingTimer;
+    private final Counter streamsResumed;
+    private final Counter streamsExpired;
+    private final Counter resumesRejected;
+    private final DistributionSummary viewersKept;
+    private final Timer firstAnswerWarm;
+    private final Timer firstAnswerCold;
+
+    public StreamWebSocketHandler(KurentoPool kurentoPool,
+                                  WarmPipelinePool pipelinePool,
+                                  StreamAdmission admission,
+                                  StreamableBookingCache streamableBookings,
+                                  StreamEventLog streamEvents,
+                                  StreamRecorder recorder,
+                                  StreamLiveness liveness,
+                                  StreamRegistry streamRegistry,
+                                  ClusterNode node,
+                                  SignalingForwarder forwarder,
+                                  @Qualifier("signalingExecutor") Executor signalingExecutor,
+                                  OutboundQueues outboundQueues,
+                                  @Value("${signaling.max-pending-messages:32}") int maxPendingMessages,
+                                  @Value("${kurento.relay.viewer-threshold:0}") int relayViewerThreshold,
+                                  @Value("${kurento.relay.viewers-per-relay:100}") int viewersPerRelay,
+                                  @Value("${signaling.ice.max-buffered:64}") int maxBufferedIceCandidates,
+                                  @Value("${signaling.resume.grace-period:0s}") Duration resumeGracePeriod,
+                                  @Value("${signaling.admission.retry-interval:500ms}") Duration waitlistRetryInterval,
+                                  MeterRegistry meterRegistry) {
+        this.kurentoPool = kurentoPool;
+        this.pipelinePool = pipelinePool;
+        this.admission = admission;
+        this.streamableBookings = streamableBookings;
+        this.streamEvents = streamEvents;
+        this.recorder = recorder;
+        this.liveness = liveness;
+        this.streamRegistry = streamRegistry;
+        this.node = node;
+        this.forwarder = forwarder;
+        this.signalingExecutor = signalingExecutor;
+        this.outboundQueues = outboundQueues;
+        this.maxPendingMessages = maxPendingMessages;
+        this.relayViewerThreshold = relayViewerThreshold;
+        this.viewersPerRelay = viewersPerRelay;
+        this.maxBufferedIceCandidates = maxBufferedIceCandidates;
+        // Recorded once per connection when it closes
+        this.iceFramesSaved = DistributionSummary.builder("signaling.ice.saved").tag("kind", "frames").register(meterRegistry);
+        this.iceRpcsSaved = DistributionSummary.builder("signaling.ice.saved").tag("kind", "rpcs").register(meterRegistry);
+        this.resumeGracePeriodMillis = resumeGracePeriod.toMillis();
+        this.waitlistRetryMillis = waitlistRetryInterval.toMillis();
+        // Resume expiries and waitlist retries only hand work to the signaling pool, so one thread is plenty
+        this.signalingTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signaling-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.streamsResumed = Counter.builder("signaling.resume").tag("outcome", "resumed").register(meterRegistry);
+        this.streamsExpired = Counter.builder("signaling.resume").tag("outcome", "expired").register(meterRegistry);
+        this.resumesRejected = Counter.builder("signaling.resume").tag("outcome", "rejected").register(meterRegistry);
+        // Each viewer kept across a resume is a viewer that did not have to rejoin and renegotiate
+        this.viewersKept = DistributionSummary.builder("signaling.resume.viewers.kept").register(meterRegistry);
+        // From startStream to its answer being queued, with and without a pre-warmed pipeline
+        this.firstAnswerWarm = Timer.builder("signaling.stream.first-answer").tag("pipeline", "warm").register(meterRegistry);
+        this.firstAnswerCold = Timer.builder("signaling.stream.first-answer").tag("pipeline", "cold").register(meterRegistry);
+        // Off the Kurento event thread: releasing dead objects can block until the RPC times out
+        kurentoPool.addMediaLostListener(server -> signalingExecutor.execute(() -> failStreamsOn(server)));
+    }
 
     @Override
-    public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        JsonObject json = JsonParser.parseString(message.getPayload()).getAsJsonObject();
-        JsonElement typeElement = json.get("type");
+    public List<String> getSubProtocols() {
+        return SignalingFormat.SUB_PROTOCOLS;
+    }
 
-        if (typeElement == null || !typeElement.isJsonPrimitive() || !typeElement.getAsJsonPrimitive().isString()) {
-            sendError(session, "Missing or invalid 'type' field in message");
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        outboundQueues.register(session);
+        taskQueues.put(session.getId(), new SessionTaskQueue(signalingExecutor, maxPendingMessages));
+        iceBuffers.put(session.getId(), new IceCandidateBuffer(maxBufferedIceCandidates));
+    }
+
+    @Override
+    public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        enqueue(session, message);
+    }
+
+    @Override
+    public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        enqueue(session, message);
+    }
+
+    private void enqueue(WebSocketSession session, WebSocketMessage<?> message) {
+        SessionTaskQueue queue = taskQueues.get(session.getId());
+        if (queue == null) {
             return;
         }
+        if (!queue.offer(() -> dispatch(session, message))) {
+            logger.warn("Session {} has {} messages pending, rejecting message", session.getId(), queue.pending());
+            sendError(session, "Too many pending messages, slow down");
+        }
+    }
 
-        String type = typeElement.getAsString();
+    private void dispatch(WebSocketSession session, WebSocketMessage<?> message) {
+        try {
+            handleRequest(session, message);
+        } catch (Exception e) {
+            logger.error("Error handling message on session {}", session.getId(), e);
+            try {
+                session.close(CloseStatus.SERVER_ERROR);
+            } catch (IOException closeError) {
+                logger.debug("Failed to close session {}: {}", session.getId(), closeError.getMessage());
+            }
+        }
+    }
+
+    private void handleRequest(WebSocketSession session, WebSocketMessage<?> message) throws IOException {
+        SignalingMessage request;
+        try {
+            request = SignalingFormat.forMessage(message).decode(message);
+        } catch (IllegalArgumentException e) {
+            sendError(session, message instanceof BinaryMessage
+                    ? "Message is not a valid binary signaling frame"
+                    : "Message is not a valid JSON object");
+            return;
+        }
+        String type = request.type();
+        if (type == null) {
+            sendError(session, "Missing or invalid 'type' field in message");
+            return;
+        }
+        String streamId = request.streamId();
+        if (streamId != null && FORWARDED_TYPES.contains(type) && !streams.containsKey(streamId)) {
+            // A broadcaster is always connected to its stream's owner, so only an admin stops a remote stream
+            if ("stopStream".equals(type) && !isAdmin(session)) {
+                sendError(session, "Stream not found for ID: " + streamId);
+                return;
+            }
+            if (forwarder.forward(session, streamId, message)) {
+                return;
+            }
+        }
+        if (streamId != null) {
+            touch(session, streamId);
+        }
 
         switch (type) {
             case "startStream":
-                startStream(session, json);
+                startStream(session, request);
                 break;
             case "stopStream":
-                stopStream(session, json);
+                stopStream(session, request);
+                break;
+            case "resumeStream":
+                resumeStream(session, request);
                 break;
             case "viewStream":
-                viewStream(session, json);
+                viewStream(session, request);
                 break;
             case "leaveStream":
-                leaveStream(session, json);
+                leaveStream(session, request);
                 break;
             case "sdpOffer":
-                processSdpOffer(session, json);
+                processSdpOffer(session, request);
                 break;
             case "iceCandidate":
-                addIceCandidate(session, json);
+                addIceCandidate(session, request);
+                break;
+            case "iceCandidates":
+                addIceCandidateBatch(session, request);
                 break;
             default:
                 sendError(session, "Invalid message type: " + type);
         }
     }
 
-    private void startStream(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement bookingIdElement = json.get("bookingId");
-        JsonElement sdpElement = json.get("sdp");
-        if (bookingIdElement == null || !bookingIdElement.isJsonPrimitive() || 
-            sdpElement == null || !sdpElement.isJsonPrimitive()) {
+    private void startStream(WebSocketSession session, SignalingMessage request) throws IOException {
+        String bookingId = request.bookingId();
+        String sdpOffer = request.sdp();
+        if (bookingId == null || sdpOffer == null) {
             sendError(session, "Missing or invalid 'bookingId' or 'sdp' field");
             return;
         }
-        String bookingId = bookingIdElement.getAsString();
-        String sdpOffer = sdpElement.getAsString();
 
+        if (!streamableBookings.isStreamable(bookingId)) {
+            admission.rejected("booking");
+            sendError(session, "Booking " + bookingId + " is not approved for streaming today");
+            return;
+        }
+        if (!admission.tryStartStream()) {
+            sendError(session, "Too many streams starting, please retry shortly");
+            return;
+        }
+        long startedAt = System.nanoTime();
         String streamId = UUID.randomUUID().toString();
-        MediaPipeline pipeline = kurento.createMediaPipeline();
-        WebRtcEndpoint broadcasterEndpoint = new WebRtcEndpoint.Builder(pipeline).build();
-        StreamSession streamSession = new StreamSession(streamId, bookingId, pipeline, broadcasterEndpoint, session);
+        PreparedPipeline prepared;
+        try {
+            prepared = pipelinePool.acquire(bookingId);
+        } catch (MediaServerUnavailableException e) {
+            sendError(session, "Streaming is temporarily unavailable, please retry");
+            return;
+        }
+        MediaPipeline pipeline = prepared.pipeline();
+        WebRtcEndpoint broadcasterEndpoint = prepared.broadcasterEndpoint();
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        enableIceBatchingIfRequested(outbound, request);
+        // StreamSession registers the endpoint's error and ICE listeners
+        String resumeToken = newResumeToken();
+        StreamSession streamSession;
+        try {
+            streamSession = new StreamSession(streamId, bookingId, prepared.server(), pipeline, broadcasterEndpoint, outbound, resumeToken);
+        } catch (RuntimeException e) {
+            prepared.discard();
+            throw e;
+        }
         streams.put(streamId, streamSession);
-
-        // Add error listener
-        broadcasterEndpoint.addErrorListener(event -> {
-            System.err.println("Error on broadcaster endpoint for stream " + streamId + ": " + event.getDescription());
-        });
+        watchBroadcasterLiveness(streamSession, broadcasterEndpoint);
+        streamRegistry.register(new StreamLocation(streamId, bookingId, node.getId(), node.getSignalingUrl(), prepared.server().getId()));
+        sessionIndex.addBroadcast(session.getId(), streamId);
+        streamEvents.started(bookingId, streamId);
 
         // Process SDP offer and send answer
-        System.out.println("Processing SDP offer for stream " + streamId + ": " + sdpOffer);
+        logger.debug("Processing SDP offer for stream {}: {}", streamId, sdpOffer);
         String sdpAnswer = broadcasterEndpoint.processOffer(sdpOffer);
-        System.out.println("Generated SDP answer for stream " + streamId + ": " + sdpAnswer);
-        broadcasterEndpoint.gatherCandidates();
-
-        // Handle ICE candidates
-        broadcasterEndpoint.addIceCandidateFoundListener(event -> {
-            IceCandidate candidate = event.getCandidate();
-            System.out.println("Broadcaster ICE candidate found for stream " + streamId + ": " + candidate.toString());
-            JsonObject response = new JsonObject();
-            response.addProperty("type", "iceCandidate");
-            response.add("candidate", new JsonParser().parse(candidate.toString()));
-            try {
-                session.sendMessage(new TextMessage(response.toString()));
-                System.out.println("Sent ICE candidate from broadcaster for stream: " + streamId);
-            } catch (IOException e) {
-                System.err.println("Error sending ICE candidate for stream " + streamId + ": " + e.getMessage());
-            }
-        });
+        logger.debug("Generated SDP answer for stream {}: {}", streamId, sdpAnswer);
+        applyIceCandidates(session, streamSession, broadcasterEndpoint, iceBuffer(session).take(streamId));
 
         // Send response
-        JsonObject response = new JsonObject();
-        response.addProperty("type", "streamStarted");
-        response.addProperty("streamId", streamId);
-        response.addProperty("sdp", sdpAnswer);
-        session.sendMessage(new TextMessage(response.toString()));
-        System.out.println("Stream started with ID: " + streamId);
+        outbound.send(outbound.format().streamStarted(streamId, sdpAnswer, resumeToken));
+        (prepared.warm() ? firstAnswerWarm : firstAnswerCold).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        logger.info("Stream started with ID: {}", streamId);
+
+        // Gather after the answer is queued, so the client sees it before the first candidate
+        broadcasterEndpoint.gatherCandidates();
+        recorder.start(streamSession);
     }
 
-    private void stopStream(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement streamIdElement = json.get("streamId");
-        if (streamIdElement == null || !streamIdElement.isJsonPrimitive()) {
+    private void stopStream(WebSocketSession session, SignalingMessage request) throws IOException {
+        String streamId = request.streamId();
+        if (streamId == null) {
             sendError(session, "Missing or invalid 'streamId' field");
             return;
         }
-        String streamId = streamIdElement.getAsString();
 
-        StreamSession streamSession = streams.remove(streamId);
-        if (streamSession != null) {
-            streamSession.release();
-            System.out.println("Stream stopped and resources released for ID: " + streamId);
-        } else {
+        StreamSession streamSession = streams.get(streamId);
+        if (streamSession == null) {
             sendError(session, "Stream not found for ID: " + streamId);
+            return;
+        }
+        if (!session.getId().equals(streamSession.getBroadcasterSession().getId()) && !isAdmin(session)) {
+            logger.warn("Session {} may not stop stream {}", session.getId(), streamId);
+            sendError(session, "Not allowed to stop stream: " + streamId);
+            return;
+        }
+        if (streams.remove(streamId, streamSession)) {
+            releaseStream(streamSession);
+            logger.info("Stream stopped and resources released for ID: {}", streamId);
+        }
+    }
+
+    // Set from the handshake's bearer token; forwarded links carry the client's token
+    private static boolean isAdmin(WebSocketSession session) {
+        return session.getPrincipal() instanceof Authentication authentication
+                && authentication.getDetails() instanceof JwtService.VerifiedToken token
+                && "ADMIN".equals(token.role());
+    }
+
+    /**
+     * Reattach a broadcaster to its stream: a new endpoint in the same pipeline
+     * answers the broadcaster's new offer and takes over feeding the viewers.
+     */
+    private void resumeStream(WebSocketSession session, SignalingMessage request) throws IOException {
+        String streamId = request.streamId();
+        String sdpOffer = request.sdp();
+        if (streamId == null || sdpOffer == null || request.resumeToken() == null) {
+            sendError(session, "Missing or invalid 'streamId', 'resumeToken' or 'sdp' field");
+            return;
+        }
+        StreamSession streamSession = streams.get(streamId);
+        if (streamSession == null || !streamSession.matchesResumeToken(request.resumeToken())) {
+            resumesRejected.increment();
+            sendError(session, "Stream cannot be resumed: " + streamId);
+            return;
+        }
+
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        enableIceBatchingIfRequested(outbound, request);
+        OutboundMessageQueue previous = streamSession.getBroadcasterOutbound();
+        WebRtcEndpoint endpoint = new WebRtcEndpoint.Builder(streamSession.getPipeline()).build();
+        String resumeToken = newResumeToken();
+        if (!streamSession.resume(endpoint, outbound, resumeToken)) {
+            endpoint.release();
+            resumesRejected.increment();
+            sendError(session, "Stream cannot be resumed: " + streamId);
+            return;
         }
+        sessionIndex.removeBroadcast(previous.getSession().getId(), streamId);
+        sessionIndex.addBroadcast(session.getId(), streamId);
+        watchBroadcasterLiveness(streamSession, endpoint);
+        streamsResumed.increment();
+        viewersKept.record(streamSession.getViewerSessionIds().size());
+        // The old connection may still look open if it was a half-dead socket
+        if (previous.getSession() != session && previous.getSession().isOpen()) {
+            try {
+                previous.getSession().close(CloseStatus.NORMAL.withReason("Resumed on another connection"));
+            } catch (IOException e) {
+                logger.debug("Failed to close replaced broadcaster session {}: {}", previous.getSession().getId(), e.getMessage());
+            }
+        }
+
+        String sdpAnswer = endpoint.processOffer(sdpOffer);
+        applyIceCandidates(session, streamSession, endpoint, iceBuffer(session).take(streamId));
+        outbound.send(outbound.format().streamResumed(streamId, sdpAnswer, resumeToken));
+        endpoint.gatherCandidates();
+    }
+
+    private static String newResumeToken() {
+        byte[] token = new byte[16];
+        RESUME_TOKEN_RANDOM.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
     }
 
-    private void viewStream(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement streamIdElement = json.get("streamId");
-        if (streamIdElement == null || !streamIdElement.isJsonPrimitive()) {
+    private void viewStream(WebSocketSession session, SignalingMessage request) throws IOException {
+        String streamId = request.streamId();
+        if (streamId == null) {
             sendError(session, "Missing or invalid 'streamId' field");
             return;
         }
-        String streamId = streamIdElement.getAsString();
 
         StreamSession streamSession = streams.get(streamId);
         if (streamSession == null) {
             sendError(session, "Stream not found for ID: " + streamId);
             return;
         }
-        WebRtcEndpoint viewerEndpoint = new WebRtcEndpoint.Builder(streamSession.getPipeline()).build();
-        streamSession.addViewer(session.getId(), viewerEndpoint);
-        streamSession.getBroadcasterEndpoint().connect(viewerEndpoint);
-        System.out.println("Connected viewer to broadcaster for stream: " + streamId);
+        // A second viewStream would take another slot and orphan the first endpoint
+        if (streamSession.getViewerEndpoint(session.getId()) != null) {
+            sendError(session, "Already viewing stream: " + streamId);
+            return;
+        }
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        enableIceBatchingIfRequested(outbound, request);
+        if (!admission.tryAdmitViewer(streamSession)) {
+            waitlist(session, streamSession, false);
+            return;
+        }
+        attachViewer(session, streamSession);
+    }
 
-        // Add error listener
-        viewerEndpoint.addErrorListener(event -> {
-            System.err.println("Error on viewer endpoint for stream " + streamId + ": " + event.getDescription());
-        });
+    // The viewer holds a slot on the stream; it is given back if the viewer cannot be attached
+    private void attachViewer(WebSocketSession session, StreamSession streamSession) {
+        String streamId = streamSession.getStreamId();
+        if (streamSession.getViewerEndpoint(session.getId()) != null) {
+            streamSession.releaseViewerSlot();
+            return;
+        }
+        RelayTier tier = relayTierFor(streamSession);
+        MediaServerNode server = tier != null ? tier.getServer() : streamSession.getMediaServer();
+        if (!server.hasEndpointCapacity()) {
+            if (tier != null) {
+                streamSession.leaveRelay(tier);
+            }
+            streamSession.releaseViewerSlot();
+            admission.rejected("server-full");
+            waitlist(session, streamSession, true);
+            return;
+        }
+        WebRtcEndpoint viewerEndpoint;
+        try {
+            viewerEndpoint = new WebRtcEndpoint.Builder(tier != null ? tier.getPipeline() : streamSession.getPipeline()).build();
+        } catch (RuntimeException e) {
+            if (tier != null) {
+                streamSession.leaveRelay(tier);
+            }
+            streamSession.releaseViewerSlot();
+            throw e;
+        }
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        streamSession.addViewer(session.getId(), viewerEndpoint, tier, outbound);
+        sessionIndex.addView(session.getId(), streamId);
+        watchViewerLiveness(streamSession, session.getId(), viewerEndpoint);
+        if (tier != null) {
+            tier.getSource().connect(viewerEndpoint);
+            logger.info("Connected viewer to relay on {} for stream: {}", tier.getServer().getId(), streamId);
+        } else {
+            streamSession.connectBroadcasterTo(viewerEndpoint);
+            logger.info("Connected viewer to broadcaster for stream: {}", streamId);
+        }
 
-        // Handle ICE candidates for viewer
-        viewerEndpoint.addIceCandidateFoundListener(event -> {
-            IceCandidate candidate = event.getCandidate();
-            System.out.println("Viewer ICE candidate found for stream " + streamId + ": " + candidate.toString());
-            JsonObject response = new JsonObject();
-            response.addProperty("type", "iceCandidate");
-            response.add("candidate", new JsonParser().parse(candidate.toString()));
-            try {
-                session.sendMessage(new TextMessage(response.toString()));
-                System.out.println("Sent ICE candidate from viewer for stream: " + streamId);
-            } catch (IOException e) {
-                System.err.println("Error sending ICE candidate for stream " + streamId + ": " + e.getMessage());
+        outbound.send(outbound.format().viewerConnected(streamId));
+    }
+
+    private void waitlist(WebSocketSession session, StreamSession streamSession, boolean front) {
+        String streamId = streamSession.getStreamId();
+        int position = admission.waitlist(streamId, session, front);
+        if (position < 0) {
+            sendError(session, "Stream is full: " + streamId);
+            return;
+        }
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        outbound.send(outbound.format().waitlisted(streamId, position));
+        logger.debug("Viewer {} waitlisted for stream {} at position {}", session.getId(), streamId, position);
+    }
+
+    // Hand free slots to waiting viewers, oldest first; each join runs on the viewer's own queue
+    private void admitWaiting(StreamSession streamSession) {
+        for (WebSocketSession waiter : admission.admitWaiting(streamSession)) {
+            SessionTaskQueue queue = taskQueues.get(waiter.getId());
+            if (queue == null) {
+                streamSession.releaseViewerSlot();
+                continue;
             }
-        });
+            queue.offerAlways(() -> {
+                if (!waiter.isOpen() || streams.get(streamSession.getStreamId()) != streamSession) {
+                    streamSession.releaseViewerSlot();
+                    return;
+                }
+                attachViewer(waiter, streamSession);
+            });
+        }
+    }
+
+    private void retryWaitlists() {
+        for (String streamId : admission.waitingStreamIds()) {
+            StreamSession streamSession = streams.get(streamId);
+            if (streamSession != null) {
+                admitWaiting(streamSession);
+            } else {
+                failWaitlist(streamId);
+            }
+        }
+    }
 
-        JsonObject response = new JsonObject();
-        response.addProperty("type", "viewerConnected");
-        response.addProperty("streamId", streamId);
-        session.sendMessage(new TextMessage(response.toString()));
+    private void failWaitlist(String streamId) {
+        for (WebSocketSession waiter : admission.dropWaitlist(streamId)) {
+            sendStreamFailed(outboundQueues.find(waiter.getId()), streamId, "Stream ended");
+        }
     }
 
-    private void leaveStream(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement streamIdElement = json.get("streamId");
-        if (streamIdElement == null || !streamIdElement.isJsonPrimitive()) {
+    /**
+     * The relay a new viewer should join, or null to attach to the origin. Past the
+     * threshold, viewers fill existing relays before a new one is opened; if no
+     * relay can be opened the viewer falls back to the origin.
+     */
+    private RelayTier relayTierFor(StreamSession streamSession) {
+        if (relayViewerThreshold <= 0 || streamSession.getOriginViewerCount() < relayViewerThreshold) {
+            return null;
+        }
+        RelayTier tier = streamSession.reserveRelaySeat(viewersPerRelay);
+        if (tier != null) {
+            return tier;
+        }
+        try {
+            // Concurrent joins may each open a relay; the spare empties out and is released
+            tier = RelayTier.open(kurentoPool, streamSession,
+                    streamSession.getBookingId() + "#relay-" + streamSession.getRelayCount());
+            streamSession.addRelay(tier);
+            return tier;
+        } catch (RuntimeException e) {
+            logger.warn("Could not open relay for stream {}, attaching viewer to origin: {}",
+                    streamSession.getStreamId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void leaveStream(WebSocketSession session, SignalingMessage request) throws IOException {
+        String streamId = request.streamId();
+        if (streamId == null) {
             sendError(session, "Missing or invalid 'streamId' field");
             return;
         }
-        String streamId = streamIdElement.getAsString();
 
+        admission.leaveWaitlist(streamId, session);
         StreamSession streamSession = streams.get(streamId);
         if (streamSession != null) {
-            streamSession.removeViewer(session.getId());
-            JsonObject response = new JsonObject();
-            response.addProperty("type", "viewerDisconnected");
-            response.addProperty("streamId", streamId);
-            session.sendMessage(new TextMessage(response.toString()));
-            System.out.println("Viewer left stream: " + streamId);
+            if (streamSession.removeViewer(session.getId())) {
+                admitWaiting(streamSession);
+            }
+            liveness.untrack(StreamLiveness.viewerKey(streamId, session.getId()));
+            sessionIndex.removeView(session.getId(), streamId);
+            OutboundMessageQueue outbound = outboundQueues.get(session);
+            outbound.send(outbound.format().viewerDisconnected(streamId));
+            logger.info("Viewer left stream: {}", streamId);
         }
     }
 
-    private void processSdpOffer(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement streamIdElement = json.get("streamId");
-        JsonElement sdpElement = json.get("sdp");
-        if (streamIdElement == null || !streamIdElement.isJsonPrimitive() || 
-            sdpElement == null || !sdpElement.isJsonPrimitive()) {
+    private void processSdpOffer(WebSocketSession session, SignalingMessage request) throws IOException {
+        String streamId = request.streamId();
+        String sdpOffer = request.sdp();
+        if (streamId == null || sdpOffer == null) {
             sendError(session, "Missing or invalid 'streamId' or 'sdp' field");
             return;
         }
-        String streamId = streamIdElement.getAsString();
-        String sdpOffer = sdpElement.getAsString();
 
         StreamSession streamSession = streams.get(streamId);
         if (streamSession == null) {
@@ -212,85 +617,317 @@ public class StreamWebSocketHandler extends TextWebSocketHandler {
             : streamSession.getViewerEndpoint(session.getId());
 
         if (endpoint != null) {
-            System.out.println("Processing SDP offer for stream " + streamId + ": " + sdpOffer);
+            logger.debug("Processing SDP offer for stream {}: {}", streamId, sdpOffer);
             String sdpAnswer = endpoint.processOffer(sdpOffer);
-            System.out.println("Generated SDP answer for stream " + streamId + ": " + sdpAnswer);
-            endpoint.gatherCandidates();
-            System.out.println("Processed SDP offer, sending answer for stream: " + streamId);
+            logger.debug("Generated SDP answer for stream {}: {}", streamId, sdpAnswer);
+            applyIceCandidates(session, streamSession, endpoint, iceBuffer(session).take(streamId));
+            logger.debug("Processed SDP offer, sending answer for stream: {}", streamId);
 
-            JsonObject response = new JsonObject();
-            response.addProperty("type", "sdpAnswer");
-            response.addProperty("sdp", sdpAnswer);
-            session.sendMessage(new TextMessage(response.toString()));
+            OutboundMessageQueue outbound = outboundQueues.get(session);
+            outbound.send(outbound.format().sdpAnswer(sdpAnswer));
+            endpoint.gatherCandidates();
         } else {
             sendError(session, "No endpoint found for session in stream: " + streamId);
         }
     }
 
-    private void addIceCandidate(WebSocketSession session, JsonObject json) throws IOException {
-        JsonElement streamIdElement = json.get("streamId");
-        JsonElement candidateElement = json.get("candidate");
-        if (streamIdElement == null || !streamIdElement.isJsonPrimitive() || 
-            candidateElement == null || !candidateElement.isJsonObject()) {
-            sendError(session, "Missing or invalid 'streamId' or 'candidate' field");
+    private void addIceCandidate(WebSocketSession session, SignalingMessage request) {
+        IceCandidate candidate = request.candidate();
+        if (candidate == null) {
+            sendError(session, "Missing or invalid 'candidate' field");
             return;
         }
-        String streamId = streamIdElement.getAsString();
-        JsonObject candidateJson = candidateElement.getAsJsonObject();
+        addIceCandidates(session, request.streamId(), List.of(candidate));
+    }
 
-        JsonElement candidateStr = candidateJson.get("candidate");
-        JsonElement sdpMid = candidateJson.get("sdpMid");
-        JsonElement sdpMLineIndex = candidateJson.get("sdpMLineIndex");
-        if (candidateStr == null || !candidateStr.isJsonPrimitive() || 
-            sdpMid == null || !sdpMid.isJsonPrimitive() || 
-            sdpMLineIndex == null || !sdpMLineIndex.isJsonPrimitive()) {
-            sendError(session, "Invalid 'candidate' object structure");
+    private void addIceCandidateBatch(WebSocketSession session, SignalingMessage request) {
+        List<IceCandidate> candidates = request.candidates();
+        if (candidates == null) {
+            sendError(session, "Missing or invalid 'candidates' field");
             return;
         }
+        iceBuffer(session).receivedBatch(candidates.size());
+        addIceCandidates(session, request.streamId(), candidates);
+    }
 
-        IceCandidate candidate = new IceCandidate(
-            candidateStr.getAsString(),
-            sdpMid.getAsString(),
-            sdpMLineIndex.getAsInt()
-        );
-
-        StreamSession streamSession = streams.get(streamId);
-        if (streamSession == null) {
-            System.out.println("No stream session found for ICE candidate: " + streamId);
-            return;
+    // Candidates without a stream id, or for an endpoint that does not exist yet, wait for the next offer
+    private void addIceCandidates(WebSocketSession session, String streamId, List<IceCandidate> candidates) {
+        StreamSession streamSession = streamId != null ? streams.get(streamId) : null;
+        WebRtcEndpoint endpoint = null;
+        if (streamSession != null) {
+            endpoint = session.equals(streamSession.getBroadcasterSession())
+                ? streamSession.getBroadcasterEndpoint()
+                : streamSession.getViewerEndpoint(session.getId());
         }
 
-        WebRtcEndpoint endpoint = session.equals(streamSession.getBroadcasterSession()) 
-            ? streamSession.getBroadcasterEndpoint() 
-            : streamSession.getViewerEndpoint(session.getId());
-
         if (endpoint != null) {
-            System.out.println("Adding ICE candidate to endpoint for stream " + streamId + ": " + candidate.toString());
-            endpoint.addIceCandidate(candidate);
-            System.out.println("Added ICE candidate to endpoint for stream: " + streamId);
+            logger.debug("Adding {} ICE candidates to endpoint for stream: {}", candidates.size(), streamId);
+            applyIceCandidates(session, streamSession, endpoint, candidates);
+        } else if (!iceBuffer(session).buffer(streamId, candidates)) {
+            logger.debug("ICE buffer full for session {}, dropped {} candidates", session.getId(), candidates.size());
+        }
+    }
+
+    // Several candidates go to Kurento as one transaction instead of one RPC each
+    private void applyIceCandidates(WebSocketSession session, StreamSession streamSession, WebRtcEndpoint endpoint,
+                                    List<IceCandidate> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        if (candidates.size() == 1) {
+            endpoint.addIceCandidate(candidates.get(0));
         } else {
-            System.out.println("No endpoint found for ICE candidate in stream: " + streamId);
+            Transaction transaction = streamSession.getPipelineFor(session.getId()).beginTransaction();
+            for (IceCandidate candidate : candidates) {
+                endpoint.addIceCandidate(transaction, candidate);
+            }
+            transaction.commit();
         }
+        iceBuffer(session).applied(candidates.size());
     }
 
-    private void sendError(WebSocketSession session, String message) throws IOException {
-        JsonObject response = new JsonObject();
-        response.addProperty("type", "error");
-        response.addProperty("message", message);
-        session.sendMessage(new TextMessage(response.toString()));
+    private static void enableIceBatchingIfRequested(OutboundMessageQueue outbound, SignalingMessage request) {
+        if (request.iceBatching()) {
+            outbound.enableIceBatching();
+        }
+    }
+
+    // Present for every open session; a detached buffer keeps late tasks of a closed one harmless
+    private IceCandidateBuffer iceBuffer(WebSocketSession session) {
+        IceCandidateBuffer buffer = iceBuffers.get(session.getId());
+        return buffer != null ? buffer : new IceCandidateBuffer(0);
+    }
+
+    private void sendError(WebSocketSession session, String message) {
+        OutboundMessageQueue outbound = outboundQueues.get(session);
+        outbound.send(outbound.format().error(message));
+    }
+
+    @PostConstruct
+    void start() {
+        // Streams registered under this node id by an earlier run that did not shut down cleanly
+        streamRegistry.unregisterNode(node.getId());
+        // Waiting viewers also need a retry when tokens refill or server capacity frees up elsewhere
+        signalingTimer.scheduleWithFixedDelay(this::retryWaitlists, waitlistRetryMillis, waitlistRetryMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Other instances stop routing viewers here; the streams end with this instance anyway
+    @PreDestroy
+    void shutdown() {
+        signalingTimer.shutdownNow();
+        streamRegistry.unregisterNode(node.getId());
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        recordIceSavings(session);
+        outboundQueues.remove(session);
+        SessionTaskQueue queue = taskQueues.remove(session.getId());
+        if (queue == null) {
+            releaseSession(session);
+            return;
+        }
+        // Runs after anything the session already queued, so cleanup sees the final state
+        queue.offerAlways(() -> releaseSession(session));
+    }
+
+    private void recordIceSavings(WebSocketSession session) {
+        IceCandidateBuffer buffer = iceBuffers.remove(session.getId());
+        OutboundMessageQueue outbound = outboundQueues.find(session.getId());
+        int framesSaved = (outbound != null ? outbound.iceFramesSaved() : 0) + (buffer != null ? buffer.framesSaved() : 0);
+        int rpcsSaved = buffer != null ? buffer.rpcsSaved() : 0;
+        iceFramesSaved.record(framesSaved);
+        iceRpcsSaved.record(rpcsSaved);
+        logger.debug("Session {} closed; ICE batching saved {} frames and {} Kurento RPCs", session.getId(), framesSaved, rpcsSaved);
+    }
+
+    private void releaseSession(WebSocketSession session) {
+        forwarder.close(session);
+        for (String streamId : sessionIndex.removeBroadcasts(session.getId())) {
+            StreamSession stream = streams.get(streamId);
+            if (stream == null || suspend(stream, session)) {
+                continue;
+            }
+            if (stream.endFor(session) && streams.remove(streamId, stream)) {
+                releaseStream(stream);
+                logger.info("Released broadcaster session and removed stream: {}", streamId);
+            }
+        }
+        for (String streamId : sessionIndex.removeViews(session.getId())) {
+            StreamSession stream = streams.get(streamId);
+            if (stream != null) {
+                if (stream.removeViewer(session.getId())) {
+                    admitWaiting(stream);
+                }
+                liveness.untrack(StreamLiveness.viewerKey(streamId, session.getId()));
+                logger.debug("Removed viewer from stream: {}", streamId);
+            }
+        }
+    }
+
+    // Keep the stream for the grace period; false if resume is off or the stream cannot wait
+    private boolean suspend(StreamSession stream, WebSocketSession broadcaster) {
+        if (resumeGracePeriodMillis <= 0) {
+            return false;
+        }
+        int suspension = stream.suspend(broadcaster);
+        if (suspension < 0) {
+            return false;
+        }
+        try {
+            signalingTimer.schedule(() -> signalingExecutor.execute(() -> expireSuspension(stream, suspension)),
+                    resumeGracePeriodMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            return false; // shutting down
+        }
+        return true;
+    }
+
+    private void expireSuspension(StreamSession stream, int suspension) {
+        if (!stream.expire(suspension) || !streams.remove(stream.getStreamId(), stream)) {
+            return;
+        }
+        streamsExpired.increment();
+        for (String viewerSessionId : stream.getViewerSessionIds()) {
+            sendStreamFailed(outboundQueues.find(viewerSessionId), stream.getStreamId(), "Broadcaster did not return");
+        }
+        releaseStream(stream);
+        logger.info("Broadcaster did not resume stream {}, released it", stream.getStreamId());
+    }
+
+    // Only the broadcaster keeps its stream alive; a viewer's messages only count for its own view
+    private void touch(WebSocketSession session, String streamId) {
+        StreamSession stream = streams.get(streamId);
+        if (stream == null) {
+            return;
+        }
+        if (session.equals(stream.getBroadcasterSession())) {
+            liveness.touch(StreamLiveness.streamKey(streamId));
+        } else {
+            liveness.touch(StreamLiveness.viewerKey(streamId, session.getId()));
+        }
+    }
+
+    private void watchBroadcasterLiveness(StreamSession stream, WebRtcEndpoint endpoint) {
+        String key = StreamLiveness.streamKey(stream.getStreamId());
+        liveness.trackStream(stream.getStreamId(),
+                () -> runOnSessionQueue(stream.getBroadcasterSession().getId(), () -> reapStream(stream)));
+        endpoint.addMediaFlowInStateChangedListener(event ->
+                liveness.flowing(key, event.getMediaType(), event.getState() == MediaFlowState.FLOWING));
+    }
+
+    private void watchViewerLiveness(StreamSession stream, String sessionId, WebRtcEndpoint endpoint) {
+        String key = StreamLiveness.viewerKey(stream.getStreamId(), sessionId);
+        liveness.trackViewer(stream.getStreamId(), sessionId,
+                () -> runOnSessionQueue(sessionId, () -> reapViewer(stream, sessionId)));
+        endpoint.addMediaFlowOutStateChangedListener(event ->
+                liveness.flowing(key, event.getMediaType(), event.getState() == MediaFlowState.FLOWING));
+        endpoint.addErrorListener(event -> {
+            logger.warn("Viewer {} endpoint of stream {} failed: {}", sessionId, stream.getStreamId(), event.getDescription());
+            liveness.expire(key);
+        });
+    }
+
+    // Reaps go through the owning session's queue, so they never overlap a message it is handling
+    private void runOnSessionQueue(String sessionId, Runnable task) {
+        SessionTaskQueue queue = taskQueues.get(sessionId);
+        if (queue == null) {
+            // Closed: its cleanup is queued already, and the reap finds whatever that leaves
+            signalingExecutor.execute(task);
+            return;
+        }
+        queue.offerAlways(task);
+    }
+
+    private void reapStream(StreamSession stream) {
+        // A suspended stream is the grace period's to end; it is tracked again if it resumes
+        if (stream.isSuspended() || !streams.remove(stream.getStreamId(), stream)) {
+            return;
+        }
+        sendStreamFailed(stream.getBroadcasterOutbound(), stream.getStreamId(), "Stream idle");
+        for (String viewerSessionId : stream.getViewerSessionIds()) {
+            sendStreamFailed(outboundQueues.find(viewerSessionId), stream.getStreamId(), "Stream idle");
+        }
+        releaseStream(stream);
+        logger.warn("Released idle stream {}", stream.getStreamId());
+    }
+
+    private void reapViewer(StreamSession stream, String sessionId) {
+        if (!stream.removeViewer(sessionId)) {
+            return;
+        }
+        sessionIndex.removeView(sessionId, stream.getStreamId());
+        admitWaiting(stream);
+        OutboundMessageQueue outbound = outboundQueues.find(sessionId);
+        if (outbound != null) {
+            outbound.send(outbound.format().viewerDisconnected(stream.getStreamId()));
+        }
+        logger.warn("Removed idle viewer {} from stream {}", sessionId, stream.getStreamId());
+    }
+
+    // The server's pipelines are gone; tell everyone on them so clients can start or join again
+    private void failStreamsOn(MediaServerNode server) {
         for (StreamSession stream : streams.values()) {
-            if (session.equals(stream.getBroadcasterSession())) {
-                stream.release();
-                streams.remove(stream.getStreamId());
-                System.out.println("Released broadcaster session and removed stream: " + stream.getStreamId());
-            } else {
-                stream.removeViewer(session.getId());
-                System.out.println("Removed viewer from stream: " + stream.getStreamId());
+            if (stream.getMediaServer() != server) {
+                dropRelaysOn(stream, server);
+                continue;
+            }
+            if (!streams.remove(stream.getStreamId(), stream)) {
+                continue;
+            }
+            sendStreamFailed(stream.getBroadcasterOutbound(), stream.getStreamId(), "Media server lost");
+            for (String viewerSessionId : stream.getViewerSessionIds()) {
+                sendStreamFailed(outboundQueues.find(viewerSessionId), stream.getStreamId(), "Media server lost");
+            }
+            try {
+                releaseStream(stream);
+            } catch (RuntimeException e) {
+                logger.debug("Release of stream {} on lost server {} failed: {}", stream.getStreamId(), server.getId(), e.getMessage());
             }
+            logger.warn("Stream {} failed with media server {}", stream.getStreamId(), server.getId());
+        }
+    }
+
+    // Only the viewers on the lost relays are cut off; they can rejoin and get a healthy tier
+    private void dropRelaysOn(StreamSession stream, MediaServerNode server) {
+        List<String> orphaned = stream.dropRelaysOn(server);
+        if (orphaned.isEmpty()) {
+            return;
+        }
+        for (String viewerSessionId : orphaned) {
+            sendStreamFailed(outboundQueues.find(viewerSessionId), stream.getStreamId(), "Relay server lost");
+            try {
+                stream.removeViewer(viewerSessionId);
+            } catch (RuntimeException e) {
+                logger.debug("Release of viewer {} on lost relay failed: {}", viewerSessionId, e.getMessage());
+            }
+            sessionIndex.removeView(viewerSessionId, stream.getStreamId());
+            liveness.untrack(StreamLiveness.viewerKey(stream.getStreamId(), viewerSessionId));
+        }
+        admitWaiting(stream);
+        logger.warn("Dropped {} viewers of stream {} with relay server {}", orphaned.size(), stream.getStreamId(), server.getId());
+    }
+
+    // Encoded per recipient, since each may speak a different format
+    private static void sendStreamFailed(OutboundMessageQueue outbound, String streamId, String reason) {
+        if (outbound != null) {
+            outbound.send(outbound.format().streamFailed(streamId, reason));
+        }
+    }
+
+    // Caller has already removed the stream from the map
+    private void releaseStream(StreamSession stream) {
+        String streamId = stream.getStreamId();
+        for (String viewerSessionId : stream.getViewerSessionIds()) {
+            sessionIndex.removeView(viewerSessionId, streamId);
+            liveness.untrack(StreamLiveness.viewerKey(streamId, viewerSessionId));
         }
+        liveness.untrack(StreamLiveness.streamKey(streamId));
+        sessionIndex.removeBroadcast(stream.getBroadcasterSession().getId(), streamId);
+        streamRegistry.unregister(streamId);
+        failWaitlist(streamId);
+        streamEvents.stopped(stream.getBookingId(), streamId);
+        recorder.stop(stream);
+        stream.release();
     }
 }
@@ -0,0 +1,37 @@
+package com.example.camerabooking.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the state is the single time at
+ * which the bucket would be full again, advanced by one CAS per token.
+ * A rate of zero or less never limits.
+ */
+final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+    TokenBucket(double tokensPerSecond, int burst) {
+        this.nanosPerToken = tokensPerSecond > 0 ? (long) (1_000_000_000L / tokensPerSecond) : 0;
+        this.burstNanos = nanosPerToken * Math.max(1, burst);
+    }
+
+    boolean tryAcquire() {
+        if (nanosPerToken == 0) {
+            return true;
+        }
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.camerabooking.controller;
+
+import com.example.camerabooking.dto.RecordingSummary;
+import com.example.camerabooking.model.Recording;
+import com.example.camerabooking.repository.BookingRepository;
+import com.example.camerabooking.repository.RecordingRepository;
+import com.example.camerabooking.security.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecordingControllerTest {
+
+    private static final long OWNER_ID = 7L;
+
+    private final RecordingRepository recordings = mock(RecordingRepository.class);
+    private final BookingRepository bookings = mock(BookingRepository.class);
+    private final RecordingController controller = new RecordingController(recordings, bookings);
+    private Recording recording;
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws IOException {
+        Path file = Files.writeString(directory.resolve("42_stream_000.webm"), "0123456789");
+        recording = new Recording(1L, "42", "stream", 0, file.toString(), 10, 1000,
+                LocalDateTime.now().minusMinutes(1), LocalDateTime.now());
+        when(recordings.findById(1L)).thenReturn(Optional.of(recording));
+        when(recordings.findByBookingIdOrderByStartedAt("42")).thenReturn(List.of(recording));
+        when(bookings.isOwnedBy(42L, OWNER_ID)).thenReturn(true);
+    }
+
+    private static Authentication user(long userId, String role) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken("user" + userId + "@example.com", null, List.of());
+        authentication.setDetails(new JwtService.VerifiedToken("signed", "token-" + userId, userId,
+                "user" + userId + "@example.com", role, Instant.now().plusSeconds(3600)));
+        return authentication;
+    }
+
+    private MockHttpServletResponse download(long id, Authentication authentication, String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.download(id, authentication, request, response);
+        return response;
+    }
+
+    @Test
+    void servesWholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = download(1L, user(OWNER_ID, "CUSTOMER"), null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertNull(response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void servesSingleRange() throws IOException {
+        MockHttpServletResponse response = download(1L, user(OWNER_ID, "CUSTOMER"), "bytes=2-4");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+        assertEquals(3, response.getContentLengthLong());
+    }
+
+    @Test
+    void servesSuffixAndOpenEndedRanges() throws IOException {
+        MockHttpServletResponse suffix = download(1L, user(OWNER_ID, "CUSTOMER"), "bytes=-3");
+        assertEquals(206, suffix.getStatus());
+        assertEquals("bytes 7-9/10", suffix.getHeader("Content-Range"));
+        assertEquals("789", suffix.getContentAsString());
+
+        MockHttpServletResponse openEnded = download(1L, user(OWNER_ID, "CUSTOMER"), "bytes=8-");
+        assertEquals("bytes 8-9/10", openEnded.getHeader("Content-Range"));
+        assertEquals("89", openEnded.getContentAsString());
+    }
+
+    @Test
+    void rejectsRangePastTheEnd() throws IOException {
+        MockHttpServletResponse response = download(1L, user(OWNER_ID, "CUSTOMER"), "bytes=20-");
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void servesWholeFileForSeveralRangesOrGarbage() throws IOException {
+        MockHttpServletResponse several = download(1L, user(OWNER_ID, "CUSTOMER"), "bytes=1-2,4-5");
+        assertEquals(200, several.getStatus());
+        assertEquals("0123456789", several.getContentAsString());
+
+        MockHttpServletResponse garbage = download(1L, user(OWNER_ID, "CUSTOMER"), "pages=1");
+        assertEquals(200, garbage.getStatus());
+        assertEquals("0123456789", garbage.getContentAsString());
+    }
+
+    @Test
+    void adminMayDownloadAnyRecording() throws IOException {
+        MockHttpServletResponse response = download(1L, user(1L, "ADMIN"), null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void otherCustomerGetsNotFound() throws IOException {
+        MockHttpServletResponse response = download(1L, user(8L, "CUSTOMER"), null);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void anonymousOrUnknownRecordingGetsNotFound() throws IOException {
+        assertEquals(404, download(1L, null, null).getStatus());
+        assertEquals(404, download(2L, user(1L, "ADMIN"), null).getStatus());
+    }
+
+    @Test
+    void missingFileGetsNotFound() throws IOException {
+        recording.setPath(recording.getPath() + ".gone");
+
+        assertEquals(404, download(1L, user(OWNER_ID, "CUSTOMER"), null).getStatus());
+    }
+
+    @Test
+    void listsRecordingsOnlyForOwnerAndAdmin() {
+        ResponseEntity<List<RecordingSummary>> owner = controller.getRecordings("42", user(OWNER_ID, "CUSTOMER"));
+        assertEquals(200, owner.getStatusCode().value());
+        assertEquals(1, owner.getBody().size());
+        assertEquals(1L, owner.getBody().get(0).id());
+
+        assertEquals(200, controller.getRecordings("42", user(1L, "ADMIN")).getStatusCode().value());
+        assertEquals(404, controller.getRecordings("42", user(8L, "CUSTOMER")).getStatusCode().value());
+        assertEquals(404, controller.getRecordings("not-a-number", user(OWNER_ID, "CUSTOMER")).getStatusCode().value());
+    }
+
+    @Test
+    void summaryDoesNotExposeThePath() {
+        assertTrue(List.of(RecordingSummary.class.getRecordComponents()).stream()
+                .noneMatch(component -> component.getName().equals("path")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.camerabooking.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingCursorTest {
+
+    @Test
+    void roundTrips() {
+        BookingCursor cursor = new BookingCursor(new Date(1_700_000_000_123L), 42L);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(cursor, BookingCursor.decode(token));
+    }
+
+    @Test
+    void startsFromTheBeginningWithoutAToken() {
+        assertSame(BookingCursor.START, BookingCursor.decode(null));
+        assertSame(BookingCursor.START, BookingCursor.decode(""));
+        assertSame(BookingCursor.START, BookingCursor.decode("  "));
+    }
+
+    @Test
+    void buildsFromTheLastSummaryOfAPage() {
+        BookingSummary last = new BookingSummary();
+        last.setId(7L);
+        last.setCreatedAt(new Date(1000L));
+
+        assertEquals(new BookingCursor(new Date(1000L), 7L), BookingCursor.of(last));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertMalformed("not base64!");
+        assertMalformed(encode("12345"));
+        assertMalformed(encode("abc:1"));
+        assertMalformed(encode("1:abc"));
+        assertMalformed(encode(":"));
+        assertMalformed(encode("1:2:3"));
+    }
+
+    private static void assertMalformed(String token) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BookingCursor.decode(token));
+        assertTrue(e.getMessage().startsWith("Invalid cursor"), e.getMessage());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.model.EventType;
+import com.example.camerabooking.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityServiceImplTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final AvailabilityServiceImpl service = new AvailabilityServiceImpl();
+    private final LocalDate today = LocalDate.now();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(service, "environment",
+                new MockEnvironment().withProperty("availability.capacity.wedding", "2"));
+        ReflectionTestUtils.setField(service, "defaultCapacity", 1);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{Date.valueOf(today.plusDays(1)), EventType.WEDDING, 2L});
+        rows.add(new Object[]{Date.valueOf(today), EventType.BIRTHDAY, 1L});
+        when(bookingRepository.countActiveByDateAndEventType(any())).thenReturn(rows);
+        service.warmUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Booking booking(EventType eventType, LocalDate date) {
+        return Booking.builder().eventType(eventType).bookingDate(Date.valueOf(date)).build();
+    }
+
+    @Test
+    void warmsFromActiveBookings() {
+        List<LocalDate> wedding = service.getFreeDates(EventType.WEDDING, 3);
+        assertEquals(List.of(today, today.plusDays(2)), wedding);
+
+        List<LocalDate> birthday = service.getFreeDates(EventType.BIRTHDAY, 2);
+        assertEquals(List.of(today.plusDays(1)), birthday);
+    }
+
+    @Test
+    void reservesUpToTheEventTypesCapacity() {
+        Booking first = booking(EventType.WEDDING, today);
+
+        assertTrue(service.tryReserve(first));
+        assertTrue(service.tryReserve(booking(EventType.WEDDING, today)));
+        assertFalse(service.tryReserve(booking(EventType.WEDDING, today)));
+        // Other event types have their own slots
+        assertTrue(service.tryReserve(booking(EventType.ANNIVERSARY, today)));
+
+        service.release(first);
+        assertTrue(service.tryReserve(booking(EventType.WEDDING, today)));
+    }
+
+    @Test
+    void releaseFreesTheDateOnceItsLastSlotIsGiven() {
+        Booking booking = booking(EventType.BIRTHDAY, today);
+
+        service.release(booking);
+        assertEquals(today, service.getFreeDates(EventType.BIRTHDAY, 1).get(0));
+
+        // Releasing an empty slot does not go below zero
+        service.release(booking);
+        assertTrue(service.tryReserve(booking));
+        assertFalse(service.tryReserve(booking));
+    }
+
+    @Test
+    void acceptsPlainDatesFromJson() {
+        java.util.Date plain = java.util.Date.from(today.atStartOfDay(java.time.ZoneId.systemDefault()).toInstant());
+        Booking booking = Booking.builder().eventType(EventType.BIRTHDAY).bookingDate(plain).build();
+
+        // Same slot as the warmed java.sql.Date row, which is already full
+        assertFalse(service.tryReserve(booking));
+    }
+
+    @Test
+    void concurrentReservesNeverOverbook() throws Exception {
+        LocalDate date = today.plusDays(5);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.tryReserve(booking(EventType.WEDDING, date));
+            }));
+        }
+        start.countDown();
+
+        int reserved = 0;
+        for (Future<Boolean> result : results) {
+            reserved += result.get() ? 1 : 0;
+        }
+        assertEquals(2, reserved);
+    }
+
+    @Test
+    void concurrentReleasesAndReservesKeepTheCountExact() throws Exception {
+        LocalDate date = today.plusDays(6);
+        Booking booking = booking(EventType.WEDDING, date);
+        assertTrue(service.tryReserve(booking));
+        assertTrue(service.tryReserve(booking));
+
+        // Each task gives a slot back and takes one again, so the date stays full
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                service.release(booking);
+                return service.tryReserve(booking);
+            }));
+        }
+        start.countDown();
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        assertFalse(service.tryReserve(booking));
+    }
+}
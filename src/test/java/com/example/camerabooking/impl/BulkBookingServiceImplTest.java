@@ -0,0 +1,111 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.dto.BulkBookingReport;
+import com.example.camerabooking.dto.BulkBookingRow;
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.model.EventType;
+import com.example.camerabooking.repository.BookingBatchRepository;
+import com.example.camerabooking.repository.UserRepository;
+import com.example.camerabooking.service.AvailabilityService;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkBookingServiceImplTest {
+
+    private final BookingBatchRepository batchRepository = mock(BookingBatchRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AvailabilityService availabilityService = mock(AvailabilityService.class);
+    private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+    private final BulkBookingServiceImpl service = new BulkBookingServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "bookingBatchRepository", batchRepository);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "availabilityService", availabilityService);
+        ReflectionTestUtils.setField(service, "validator", validatorFactory.getValidator());
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxRows", 100);
+        when(userRepository.findExistingIds(anyList())).thenReturn(List.of(1L));
+        when(availabilityService.tryReserve(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    private static BulkBookingRow row(long userId, String address) {
+        return new BulkBookingRow(userId, EventType.WEDDING, new Date(), address);
+    }
+
+    @Test
+    void reportsNullRowsAsRejected() {
+        when(batchRepository.insertAll(anyList(), any())).thenReturn(List.of(10L));
+
+        BulkBookingReport report = service.createBookings(Arrays.asList(null, row(1L, "a")));
+
+        assertEquals(2, report.getReceived());
+        assertEquals(1, report.getCreated());
+        assertEquals(1, report.getRejected());
+        assertNull(report.getResults().get(0).getBookingId());
+        assertEquals("Row is empty", report.getResults().get(0).getError());
+        assertEquals(10L, report.getResults().get(1).getBookingId());
+    }
+
+    @Test
+    void rejectsInvalidRowsAndUnknownUsersWithoutReservingSlots() {
+        when(batchRepository.insertAll(anyList(), any())).thenReturn(List.of(10L));
+
+        BulkBookingReport report = service.createBookings(List.of(row(1L, " "), row(2L, "b"), row(1L, "c")));
+
+        assertEquals("address is required", report.getResults().get(0).getError());
+        assertEquals("User not found: 2", report.getResults().get(1).getError());
+        assertEquals(10L, report.getResults().get(2).getBookingId());
+        verify(availabilityService, times(1)).tryReserve(any());
+    }
+
+    @Test
+    void rejectsRowsWithoutAFreeSlot() {
+        when(availabilityService.tryReserve(any())).thenReturn(false);
+
+        BulkBookingReport report = service.createBookings(List.of(row(1L, "a")));
+
+        assertTrue(report.getResults().get(0).getError().startsWith("No WEDDING slot"));
+        verify(batchRepository, never()).insertAll(anyList(), any());
+    }
+
+    @Test
+    void failedBatchReleasesItsSlotsAndLeavesOtherBatchesCreated() {
+        when(batchRepository.insertAll(anyList(), any()))
+                .thenReturn(List.of(10L, 11L))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        BulkBookingReport report = service.createBookings(List.of(row(1L, "a"), row(1L, "b"), row(1L, "c")));
+
+        assertEquals(2, report.getCreated());
+        assertEquals(11L, report.getResults().get(1).getBookingId());
+        assertEquals("Insert failed: duplicate", report.getResults().get(2).getError());
+        verify(availabilityService, times(1)).release(any(Booking.class));
+    }
+}
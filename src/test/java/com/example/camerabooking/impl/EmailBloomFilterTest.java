@@ -0,0 +1,109 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailBloomFilterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmailBloomFilter filter = new EmailBloomFilter(userRepository, transactionManager, meterRegistry,
+            0.01, 1000);
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    private void registered(String... emails) {
+        when(userRepository.count()).thenReturn((long) emails.length);
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> Stream.of(emails));
+    }
+
+    @Test
+    void answersMaybeUntilTheFirstBuild() {
+        assertTrue(filter.mightContain("anyone@example.com"));
+        assertEquals(1.0, meterRegistry.get("users.email_filter.false_positive_rate").gauge().value());
+    }
+
+    @Test
+    void knowsRegisteredEmailsIgnoringCaseAndSpaces() {
+        registered("a@example.com", "B@Example.com");
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("a@example.com"));
+        assertTrue(filter.mightContain(" b@example.COM "));
+        assertFalse(filter.mightContain("c@example.com"));
+    }
+
+    @Test
+    void addsNewRegistrations() {
+        registered("a@example.com");
+        filter.rebuild();
+
+        filter.add("New@example.com");
+
+        assertTrue(filter.mightContain("new@example.com"));
+    }
+
+    @Test
+    void keepsRegistrationsMadeDuringARebuild() {
+        registered("a@example.com");
+        filter.rebuild();
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> {
+            // Committed after the scan's snapshot, so only add() reports it
+            filter.add("late@example.com");
+            return Stream.of("a@example.com");
+        });
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("late@example.com"));
+    }
+
+    @Test
+    void rebuildDropsRemovedEmails() {
+        registered("a@example.com", "gone@example.com");
+        filter.rebuild();
+        assertTrue(filter.mightContain("gone@example.com"));
+
+        registered("a@example.com");
+        filter.rebuild();
+
+        assertFalse(filter.mightContain("gone@example.com"));
+    }
+
+    @Test
+    void sizesForTwiceTheUsersInAReadOnlyTransaction() {
+        registered("a@example.com", "b@example.com");
+        filter.rebuild();
+        assertEquals(1000.0, meterRegistry.get("users.email_filter.capacity").gauge().value());
+
+        when(userRepository.count()).thenReturn(800L);
+        filter.rebuild();
+        assertEquals(1600.0, meterRegistry.get("users.email_filter.capacity").gauge().value());
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+    }
+}
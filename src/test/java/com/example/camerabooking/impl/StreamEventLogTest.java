@@ -0,0 +1,87 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.model.StreamEvent;
+import com.example.camerabooking.model.StreamEventType;
+import com.example.camerabooking.repository.StreamEventBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class StreamEventLogTest {
+
+    private final StreamEventBatchRepository repository = mock(StreamEventBatchRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClusterNode node = new ClusterNode("node-a", "ws://node-a/ws", 8080);
+    private final List<List<StreamEvent>> batches = new ArrayList<>();
+
+    private StreamEventLog log(int batchSize, int queueCapacity) {
+        // The log reuses its batch list, so keep copies
+        doAnswer(invocation -> batches.add(List.copyOf(invocation.<List<StreamEvent>>getArgument(0))))
+                .when(repository).insertAll(anyList());
+        return new StreamEventLog(repository, node, meterRegistry, batchSize, queueCapacity);
+    }
+
+    private static List<String> streamIds(List<StreamEvent> events) {
+        return events.stream().map(StreamEvent::getStreamId).toList();
+    }
+
+    @Test
+    void writesQueuedEventsInBatches() {
+        StreamEventLog log = log(2, 10);
+        log.started("1", "s1");
+        log.stopped("1", "s1");
+        log.started("2", "s2");
+
+        log.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(List.of("s1", "s1"), streamIds(batches.get(0)));
+        assertEquals(List.of("s2"), streamIds(batches.get(1)));
+        StreamEvent stop = batches.get(0).get(1);
+        assertEquals(StreamEventType.STOPPED, stop.getEventType());
+        assertEquals("node-a", stop.getNodeId());
+        assertEquals(3.0, meterRegistry.counter("streams.events.written").count());
+        assertEquals(0.0, meterRegistry.get("streams.events.pending").gauge().value());
+    }
+
+    @Test
+    void retriesAFailedBatchInOrder() {
+        StreamEventLog log = log(2, 10);
+        log.started("1", "s1");
+        log.started("2", "s2");
+        log.started("3", "s3");
+        doThrow(new IllegalStateException("database down")).when(repository).insertAll(anyList());
+
+        log.flush();
+        assertEquals(3.0, meterRegistry.get("streams.events.pending").gauge().value());
+
+        doAnswer(invocation -> batches.add(List.copyOf(invocation.<List<StreamEvent>>getArgument(0))))
+                .when(repository).insertAll(anyList());
+        log.flush();
+
+        assertEquals(List.of("s1", "s2"), streamIds(batches.get(0)));
+        assertEquals(List.of("s3"), streamIds(batches.get(1)));
+    }
+
+    @Test
+    void dropsEventsOnceTheQueueIsFull() {
+        StreamEventLog log = log(10, 2);
+
+        log.started("1", "s1");
+        log.started("2", "s2");
+        log.started("3", "s3");
+        log.flush();
+
+        assertEquals(1.0, meterRegistry.counter("streams.events.dropped").count());
+        assertEquals(List.of("s1", "s2"), streamIds(batches.get(0)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.dto.BookingStatusChangedEvent;
+import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.repository.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamableBookingCacheTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StreamableBookingCache cache = new StreamableBookingCache(bookingRepository, meterRegistry);
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void loadsTodaysApprovedBookings() {
+        when(bookingRepository.findIdsByStatusAndDate(BookingStatus.APPROVED, Date.valueOf(today))).thenReturn(List.of(1L, 2L));
+
+        cache.warmUp();
+
+        assertTrue(cache.isStreamable("1"));
+        assertTrue(cache.isStreamable("2"));
+        assertFalse(cache.isStreamable("3"));
+        assertEquals(2.0, meterRegistry.get("streams.bookings.streamable").gauge().value());
+    }
+
+    @Test
+    void rejectsIdsThatAreNotNumbers() {
+        cache.warmUp();
+
+        assertFalse(cache.isStreamable("abc"));
+        assertFalse(cache.isStreamable(null));
+    }
+
+    @Test
+    void reloadsOnceTheSnapshotIsFromAnotherDay() {
+        when(bookingRepository.findIdsByStatusAndDate(any(), any())).thenReturn(List.of(1L));
+
+        // Never loaded, so the snapshot is not today's
+        assertTrue(cache.isStreamable("1"));
+        assertTrue(cache.isStreamable("1"));
+
+        verify(bookingRepository, times(1)).findIdsByStatusAndDate(eq(BookingStatus.APPROVED), eq(Date.valueOf(today)));
+    }
+
+    @Test
+    void appliesStatusChangesAsTheyHappen() {
+        when(bookingRepository.findIdsByStatusAndDate(any(), any())).thenReturn(List.of(1L));
+        cache.warmUp();
+
+        cache.onStatusChanged(new BookingStatusChangedEvent(2L, today, BookingStatus.APPROVED));
+        cache.onStatusChanged(new BookingStatusChangedEvent(1L, today, BookingStatus.REJECTED));
+
+        assertTrue(cache.isStreamable("2"));
+        assertFalse(cache.isStreamable("1"));
+    }
+
+    @Test
+    void onlyTodaysApprovalsMakeABookingStreamable() {
+        when(bookingRepository.findIdsByStatusAndDate(any(), any())).thenReturn(List.of(1L));
+        cache.warmUp();
+
+        cache.onStatusChanged(new BookingStatusChangedEvent(2L, today.plusDays(1), BookingStatus.APPROVED));
+        // Moved to another day while approved
+        cache.onStatusChanged(new BookingStatusChangedEvent(1L, today.minusDays(1), BookingStatus.APPROVED));
+        cache.onStatusChanged(new BookingStatusChangedEvent(3L, today, BookingStatus.PENDING));
+
+        assertFalse(cache.isStreamable("2"));
+        assertFalse(cache.isStreamable("1"));
+        assertFalse(cache.isStreamable("3"));
+    }
+
+    @Test
+    void forgetsDeletedBookings() {
+        when(bookingRepository.findIdsByStatusAndDate(any(), any())).thenReturn(List.of(1L));
+        cache.warmUp();
+
+        cache.onStatusChanged(new BookingStatusChangedEvent(1L, today, null));
+
+        assertFalse(cache.isStreamable("1"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserCacheTest {
+
+    private final UserCache cache = new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    private static User user(String password) {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("a@example.com");
+        user.setPassword(password);
+        return user;
+    }
+
+    @Test
+    void cachesALoadByEmail() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getByEmail("a@example.com", email -> { loads.incrementAndGet(); return Optional.of(user("old")); });
+        cache.getByEmail("A@example.com", email -> { loads.incrementAndGet(); return Optional.of(user("old")); });
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void neverCachesARowReadBeforeAConcurrentWrite() {
+        // The write lands and evicts after the loader has read the old row
+        cache.getByEmail("a@example.com", email -> {
+            Optional<User> stale = Optional.of(user("old"));
+            cache.evict(1L, "a@example.com");
+            return stale;
+        });
+
+        Optional<User> next = cache.getByEmail("a@example.com", email -> Optional.of(user("new")));
+
+        assertEquals("new", next.orElseThrow().getPassword());
+        assertEquals("new", cache.getById(1L, id -> Optional.empty()).orElseThrow().getPassword());
+    }
+
+    @Test
+    void evictionDropsACachedUser() {
+        cache.getByEmail("a@example.com", email -> Optional.of(user("old")));
+
+        cache.evict(1L, "a@example.com");
+
+        assertEquals("new", cache.getById(1L, id -> Optional.of(user("new"))).orElseThrow().getPassword());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.camerabooking.impl;
+
+import com.example.camerabooking.model.User;
+import com.example.camerabooking.repository.UserRepository;
+import com.example.camerabooking.security.PasswordHashingExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceImplTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordHashingExecutor passwordHasher = mock(PasswordHashingExecutor.class);
+    private final UserCache userCache = mock(UserCache.class);
+    private final UserServiceImpl service = new UserServiceImpl();
+    private final User stored = new User();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(service, "userCache", userCache);
+        stored.setId(1L);
+        stored.setEmail("a@example.com");
+        stored.setPassword("old-hash");
+        when(userCache.getByEmail(any(), any())).thenReturn(Optional.of(stored));
+        when(passwordHasher.matches("secret", "old-hash")).thenReturn(true);
+    }
+
+    private static User login(String password) {
+        User user = new User();
+        user.setEmail("a@example.com");
+        user.setPassword(password);
+        return user;
+    }
+
+    @Test
+    void rehashesAnOutdatedHashOnLogin() {
+        when(passwordHasher.upgradeEncoding("old-hash")).thenReturn(true);
+        when(passwordHasher.encodeInBackground("secret")).thenReturn(CompletableFuture.completedFuture("new-hash"));
+        when(userRepository.rehashPassword(1L, "old-hash", "new-hash")).thenReturn(1);
+
+        assertSame(stored, service.authenticateUser(login("secret")));
+
+        verify(userRepository).rehashPassword(1L, "old-hash", "new-hash");
+        verify(userCache).evict(1L, "a@example.com");
+    }
+
+    @Test
+    void keepsAPasswordChangedDuringTheRehash() {
+        when(passwordHasher.upgradeEncoding("old-hash")).thenReturn(true);
+        when(passwordHasher.encodeInBackground("secret")).thenReturn(CompletableFuture.completedFuture("new-hash"));
+        // The compare-and-set finds a different hash and updates nothing
+        when(userRepository.rehashPassword(1L, "old-hash", "new-hash")).thenReturn(0);
+
+        service.authenticateUser(login("secret"));
+
+        verify(userCache, never()).evict(anyLong(), anyString());
+    }
+
+    @Test
+    void skipsTheRehashWhenTheHashingPoolIsFull() {
+        when(passwordHasher.upgradeEncoding("old-hash")).thenReturn(true);
+        when(passwordHasher.encodeInBackground("secret"))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException()));
+
+        assertSame(stored, service.authenticateUser(login("secret")));
+
+        verify(userRepository, never()).rehashPassword(any(), any(), any());
+    }
+
+    @Test
+    void leavesCurrentHashesAlone() {
+        assertSame(stored, service.authenticateUser(login("secret")));
+
+        verify(passwordHasher, never()).encodeInBackground(any());
+    }
+
+    @Test
+    void rejectsAWrongPassword() {
+        assertNull(service.authenticateUser(login("wrong")));
+
+        verify(passwordHasher, never()).encodeInBackground(any());
+    }
+}
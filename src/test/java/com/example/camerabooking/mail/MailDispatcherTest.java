@@ -0,0 +1,81 @@
+package com.example.camerabooking.mail;
+
+import com.example.camerabooking.exception.MailRejectedException;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JavaMailSenderImpl sender;
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(smtp.getSmtp().getPort());
+        dispatcher = new MailDispatcher(sender, meterRegistry, 2, 10, 3, Duration.ofMillis(50), 2, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void deliversQueuedMessagesOverReusedConnection() throws InterruptedException {
+        dispatcher.shutdown();
+        // One worker, so every message must go out over the same connection
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new MailDispatcher(sender, meterRegistry, 1, 10, 3, Duration.ofMillis(50), 2, Duration.ofMinutes(10));
+
+        dispatcher.enqueue(message("a@example.com", "first"));
+        dispatcher.enqueue(message("b@example.com", "second"));
+        dispatcher.enqueue(message("d@example.com", "third"));
+
+        assertTrue(smtp.waitForIncomingEmail(5000, 3));
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertTrue(GreenMailUtil.getBody(received[0]).contains("body"));
+        dispatcher.shutdown();
+        assertEquals(3.0, meterRegistry.counter("mail.dispatch.sent").count());
+        assertEquals(1.0, meterRegistry.counter("mail.dispatch.connections").count());
+    }
+
+    @Test
+    void rejectsRecipientOverLimit() {
+        dispatcher.enqueue(message("c@example.com", "one"));
+        dispatcher.enqueue(message("C@example.com", "two"));
+
+        assertThrows(MailRejectedException.class, () -> dispatcher.enqueue(message("c@example.com", "three")));
+        assertTrue(smtp.waitForIncomingEmail(5000, 2));
+    }
+
+    private static SimpleMailMessage message(String to, String subject) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText("body of " + subject);
+        return message;
+    }
+}
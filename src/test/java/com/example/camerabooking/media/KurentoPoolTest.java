@@ -0,0 +1,159 @@
+package com.example.camerabooking.media;
+
+import com.example.camerabooking.exception.MediaServerUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoConnectionListener;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.ServerManager;
+import org.kurento.commons.exception.KurentoException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KurentoPoolTest {
+
+    private static final String[] URLS = {"ws://kms-a/kurento", "ws://kms-b/kurento", "ws://kms-c/kurento"};
+
+    /** Stands in for real media servers: hands out mock clients and lets a test take servers offline. */
+    private static class FakeServers implements KurentoClientFactory {
+        final Set<String> offline = new HashSet<>();
+        final Map<String, KurentoConnectionListener> listeners = new HashMap<>();
+        final List<String> connections = new ArrayList<>();
+
+        @Override
+        public KurentoClient connect(String url, KurentoConnectionListener listener) {
+            if (offline.contains(url)) {
+                throw new KurentoException("Connection refused: " + url);
+            }
+            connections.add(url);
+            listeners.put(url, listener);
+            KurentoClient client = mock(KurentoClient.class);
+            ServerManager serverManager = mock(ServerManager.class);
+            when(client.getServerManager()).thenReturn(serverManager);
+            when(client.createMediaPipeline()).thenAnswer(invocation -> {
+                if (offline.contains(url)) {
+                    throw new KurentoException("Connection lost: " + url);
+                }
+                return mock(MediaPipeline.class);
+            });
+            when(serverManager.getInfo()).thenAnswer(invocation -> {
+                if (offline.contains(url)) {
+                    throw new KurentoException("Connection lost: " + url);
+                }
+                return null;
+            });
+            return client;
+        }
+    }
+
+    private final FakeServers servers = new FakeServers();
+
+    private KurentoPool pool(String placement) {
+        return pool(placement, 0);
+    }
+
+    private KurentoPool pool(String placement, int maxEndpointsPerServer) {
+        return new KurentoPool(servers, new SimpleMeterRegistry(), URLS, placement, Duration.ofSeconds(10), 100,
+                maxEndpointsPerServer);
+    }
+
+    @Test
+    void connectsLazily() {
+        pool("least-loaded");
+        assertTrue(servers.connections.isEmpty());
+    }
+
+    @Test
+    void leastLoadedSpreadsPipelinesEvenly() {
+        KurentoPool pool = pool("least-loaded");
+        Map<String, Integer> perServer = new HashMap<>();
+        for (int i = 0; i < 9; i++) {
+            KurentoPool.PlacedPipeline placed = pool.createPipeline("booking-" + i);
+            perServer.merge(placed.server().getId(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("kms-0", 3, "kms-1", 3, "kms-2", 3), perServer);
+    }
+
+    @Test
+    void consistentHashKeepsBookingOnSameServer() {
+        KurentoPool pool = pool("consistent-hash");
+        String first = pool.createPipeline("booking-42").server().getId();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(first, pool.createPipeline("booking-42").server().getId());
+        }
+    }
+
+    @Test
+    void drainingServerGetsNoNewPipelines() {
+        KurentoPool pool = pool("least-loaded");
+        pool.drain("kms-0");
+        for (int i = 0; i < 6; i++) {
+            assertFalse(pool.createPipeline("booking-" + i).server().getId().equals("kms-0"));
+        }
+        pool.resume("kms-0");
+        assertEquals("kms-0", pool.createPipeline("booking-next").server().getId());
+    }
+
+    @Test
+    void serverAtEndpointCapGetsNoNewPipelines() {
+        KurentoPool pool = pool("consistent-hash", 2);
+        MediaServerNode full = pool.createPipeline("booking-42").server();
+        full.endpointCreated();
+        full.endpointCreated();
+        for (int i = 0; i < 5; i++) {
+            assertFalse(pool.createPipeline("booking-42").server() == full);
+        }
+        full.endpointReleased();
+        assertEquals(full, pool.createPipeline("booking-42").server());
+    }
+
+    @Test
+    void failsOverToNextServerWhenUnreachable() {
+        servers.offline.add(URLS[0]);
+        KurentoPool pool = pool("consistent-hash");
+        for (int i = 0; i < 20; i++) {
+            assertFalse(pool.createPipeline("booking-" + i).server().getId().equals("kms-0"));
+        }
+        assertFalse(pool.status().get(0).healthy());
+    }
+
+    @Test
+    void disconnectNotifiesListenersAndHealthCheckRecovers() {
+        KurentoPool pool = pool("least-loaded");
+        List<String> lost = new ArrayList<>();
+        pool.addMediaLostListener(server -> lost.add(server.getId()));
+        KurentoPool.PlacedPipeline placed = pool.createPipeline("booking-1");
+        String url = placed.server().getUrl();
+
+        servers.offline.add(url);
+        servers.listeners.get(url).disconnected();
+        assertEquals(List.of(placed.server().getId()), lost);
+        assertFalse(placed.server().isAvailable());
+
+        servers.offline.remove(url);
+        pool.checkHealth();
+        assertTrue(placed.server().isAvailable());
+    }
+
+    @Test
+    void throwsWhenNoServerIsAvailable() {
+        servers.offline.addAll(List.of(URLS));
+        KurentoPool pool = pool("least-loaded");
+        assertThrows(MediaServerUnavailableException.class, () -> pool.createPipeline("booking-1"));
+        assertThrows(MediaServerUnavailableException.class, () -> pool.createPipeline("booking-1"));
+    }
+}
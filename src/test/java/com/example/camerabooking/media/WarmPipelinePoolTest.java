@@ -0,0 +1,203 @@
+package com.example.camerabooking.media;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoConnectionListener;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.mockito.MockedConstruction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WarmPipelinePoolTest {
+
+    private static final String[] URLS = {"ws://kms-a/kurento", "ws://kms-b/kurento"};
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<MediaPipeline> pipelines = new ArrayList<>();
+    private final Map<String, KurentoConnectionListener> listeners = new HashMap<>();
+    private MockedConstruction<WebRtcEndpoint.Builder> endpointBuilders;
+
+    // Media servers that hand out mock pipelines; the endpoint builder is stubbed below
+    private final KurentoClientFactory servers = (url, listener) -> {
+        listeners.put(url, listener);
+        KurentoClient client = mock(KurentoClient.class);
+        when(client.createMediaPipeline()).thenAnswer(invocation -> {
+            MediaPipeline pipeline = mock(MediaPipeline.class);
+            pipelines.add(pipeline);
+            return pipeline;
+        });
+        return client;
+    };
+
+    @BeforeEach
+    void setUp() {
+        endpointBuilders = mockConstruction(WebRtcEndpoint.Builder.class,
+                (builder, context) -> when(builder.build()).thenReturn(mock(WebRtcEndpoint.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpointBuilders.close();
+    }
+
+    private KurentoPool kurentoPool(String placement) {
+        return new KurentoPool(servers, new SimpleMeterRegistry(), URLS, placement, Duration.ofSeconds(10), 100, 0);
+    }
+
+    private WarmPipelinePool warmPool(KurentoPool kurentoPool, int minIdle, int maxIdle, Duration maxIdleTime) {
+        return new WarmPipelinePool(kurentoPool, meterRegistry, minIdle, maxIdle, maxIdleTime, Duration.ofSeconds(10),
+                Duration.ofSeconds(5));
+    }
+
+    private double idle() {
+        return meterRegistry.get("kurento.warm-pool.idle").gauge().value();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("kurento.warm-pool.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    void splitsTheMinimumAcrossServers() {
+        KurentoPool kurentoPool = kurentoPool("least-loaded");
+        WarmPipelinePool pool = warmPool(kurentoPool, 4, 8, Duration.ofMinutes(5));
+
+        pool.maintain();
+
+        assertEquals(4.0, idle());
+        for (MediaServerNode node : kurentoPool.nodes()) {
+            // Two pipelines, each with its endpoint
+            assertEquals(4, node.load());
+        }
+    }
+
+    @Test
+    void handsOutAWarmPipelineAndRefills() {
+        KurentoPool kurentoPool = kurentoPool("least-loaded");
+        WarmPipelinePool pool = warmPool(kurentoPool, 2, 8, Duration.ofMinutes(5));
+        pool.maintain();
+
+        PreparedPipeline prepared = pool.acquire("booking-1");
+
+        assertTrue(prepared.warm());
+        assertTrue(pipelines.contains(prepared.pipeline()));
+        assertEquals(1.0, requests("hit"));
+        assertEquals(1.0, idle());
+        // The adopting stream counts the endpoint; the pool only leaves the pipeline counted
+        assertEquals(1, prepared.server().load());
+
+        pool.maintain();
+        assertEquals(2.0, idle());
+    }
+
+    @Test
+    void sizesToRecentStartsUpToTheMaximum() {
+        WarmPipelinePool pool = warmPool(kurentoPool("least-loaded"), 1, 3, Duration.ofMinutes(5));
+        assertEquals(1, pool.targetSize());
+
+        pool.acquire("booking-1");
+        pool.acquire("booking-2");
+        assertEquals(2, pool.targetSize());
+
+        for (int i = 0; i < 5; i++) {
+            pool.acquire("booking-" + i);
+        }
+        assertEquals(3, pool.targetSize());
+        assertEquals(7.0, requests("miss"));
+    }
+
+    @Test
+    void releasesEntriesThatSatIdleTooLong() {
+        WarmPipelinePool pool = warmPool(kurentoPool("least-loaded"), 2, 2, Duration.ZERO);
+        pool.maintain();
+        List<MediaPipeline> warmed = List.copyOf(pipelines);
+
+        PreparedPipeline prepared = pool.acquire("booking-1");
+
+        assertFalse(prepared.warm());
+        assertEquals(1.0, requests("miss"));
+        for (MediaPipeline pipeline : warmed) {
+            verify(pipeline).release();
+        }
+    }
+
+    @Test
+    void releasesEntriesOfADrainingServer() {
+        KurentoPool kurentoPool = kurentoPool("least-loaded");
+        WarmPipelinePool pool = warmPool(kurentoPool, 2, 2, Duration.ofMinutes(5));
+        pool.maintain();
+
+        kurentoPool.drain("kms-0");
+        pool.maintain();
+
+        // The remaining server now holds the whole target
+        MediaServerNode drained = kurentoPool.nodes().stream().filter(node -> node.getId().equals("kms-0"))
+                .findFirst().orElseThrow();
+        assertEquals(0, drained.load());
+        assertEquals(2.0, idle());
+    }
+
+    @Test
+    void forgetsEntriesOfALostServer() {
+        KurentoPool kurentoPool = kurentoPool("least-loaded");
+        WarmPipelinePool pool = warmPool(kurentoPool, 2, 2, Duration.ofMinutes(5));
+        pool.maintain();
+        MediaServerNode lost = kurentoPool.nodes().iterator().next();
+
+        listeners.get(lost.getUrl()).disconnected();
+
+        assertEquals(1.0, idle());
+        assertEquals(0, lost.load());
+        // Gone with the server, so nothing is released remotely
+        for (MediaPipeline pipeline : pipelines) {
+            verify(pipeline, never()).release();
+        }
+    }
+
+    @Test
+    void keepsConsistentHashPlacement() {
+        KurentoPool kurentoPool = kurentoPool("consistent-hash");
+        WarmPipelinePool pool = warmPool(kurentoPool, 1, 1, Duration.ofMinutes(5));
+        pool.maintain();
+        MediaServerNode owner = kurentoPool.candidates("booking-1").get(0);
+
+        PreparedPipeline first = pool.acquire("booking-1");
+        PreparedPipeline second = pool.acquire("booking-1");
+
+        assertTrue(first.warm());
+        assertSame(owner, first.server());
+        // The other server's entry is not used, even though it is idle
+        assertFalse(second.warm());
+        assertSame(owner, second.server());
+        assertEquals(1.0, idle());
+    }
+
+    @Test
+    void createsOnDemandWhenDisabled() {
+        WarmPipelinePool pool = warmPool(kurentoPool("least-loaded"), 0, 0, Duration.ofMinutes(5));
+
+        PreparedPipeline prepared = pool.acquire("booking-1");
+
+        assertFalse(prepared.warm());
+        assertEquals(0.0, requests("miss"));
+        assertEquals(1, pipelines.size());
+    }
+}
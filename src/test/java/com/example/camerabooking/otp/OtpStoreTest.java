@@ -0,0 +1,227 @@
+package com.example.camerabooking.otp;
+
+import com.example.camerabooking.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OtpStoreTest {
+
+    private static final String EMAIL = "a@example.com";
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OtpStore store = new OtpStore(userRepository, false, 3);
+    private final OtpStore persisted = new OtpStore(userRepository, true, 3);
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        persisted.shutdown();
+    }
+
+    @Test
+    void revertBringsBackThePreviousCode() {
+        store.issue(EMAIL, "111111", TTL);
+        OtpStore.Issued second = store.issue(EMAIL, "222222", TTL);
+        assertFalse(store.verify(EMAIL, "111111"));
+
+        store.revert(second);
+
+        assertTrue(store.verify(EMAIL, "111111"));
+        assertFalse(store.verify(EMAIL, "222222"));
+    }
+
+    @Test
+    void revertKeepsThePreviousCodesFailedAttempts() {
+        store.issue(EMAIL, "111111", TTL);
+        assertFalse(store.verify(EMAIL, "000000"));
+        assertFalse(store.verify(EMAIL, "000000"));
+        // Replacing and reverting must not hand out a fresh set of guesses
+        store.revert(store.issue(EMAIL, "222222", TTL));
+
+        assertFalse(store.verify(EMAIL, "000000"));
+
+        assertFalse(store.verify(EMAIL, "111111"));
+    }
+
+    @Test
+    void revertWithoutAPreviousCodeClearsTheEntry() {
+        store.revert(store.issue(EMAIL, "111111", TTL));
+
+        assertFalse(store.verify(EMAIL, "111111"));
+    }
+
+    @Test
+    void revertWithAnExpiredPreviousCodeClearsTheEntry() {
+        store.issue(EMAIL, "111111", Duration.ofSeconds(-1));
+        OtpStore.Issued second = store.issue(EMAIL, "222222", TTL);
+
+        store.revert(second);
+
+        assertFalse(store.verify(EMAIL, "111111"));
+        assertFalse(store.verify(EMAIL, "222222"));
+    }
+
+    @Test
+    void revertAfterTheCodeWasReplacedDoesNothing() {
+        store.issue(EMAIL, "111111", TTL);
+        OtpStore.Issued second = store.issue(EMAIL, "222222", TTL);
+        store.issue(EMAIL, "333333", TTL);
+
+        store.revert(second);
+
+        assertTrue(store.verify(EMAIL, "333333"));
+        assertFalse(store.verify(EMAIL, "111111"));
+    }
+
+    @Test
+    void revertAfterTheCodeWasInvalidatedDoesNothing() {
+        store.issue(EMAIL, "111111", TTL);
+        OtpStore.Issued second = store.issue(EMAIL, "222222", TTL);
+        store.invalidate(EMAIL);
+
+        store.revert(second);
+
+        assertFalse(store.verify(EMAIL, "111111"));
+    }
+
+    @Test
+    void revertWritesThePreviousCodeBehind() {
+        persisted.issue(EMAIL, "111111", TTL);
+        persisted.flush();
+        ArgumentCaptor<LocalDateTime> firstExpiry = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(userRepository).updateOtp(eq(EMAIL), eq(hash("111111")), firstExpiry.capture());
+        clearInvocations(userRepository);
+
+        persisted.revert(persisted.issue(EMAIL, "222222", TTL));
+        persisted.flush();
+
+        // Only the coalesced final state reaches the database
+        verify(userRepository).updateOtp(EMAIL, hash("111111"), firstExpiry.getValue());
+        verify(userRepository, never()).updateOtp(eq(EMAIL), eq(hash("222222")), any());
+    }
+
+    @Test
+    void revertWithoutAPreviousCodeClearsThePersistedColumns() {
+        persisted.revert(persisted.issue(EMAIL, "111111", TTL));
+        persisted.flush();
+
+        ArgumentCaptor<String> code = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updateOtp(eq(EMAIL), code.capture(), any());
+        assertNull(code.getValue());
+    }
+
+    @Test
+    void revertThatDoesNothingWritesNothing() {
+        persisted.issue(EMAIL, "111111", TTL);
+        OtpStore.Issued second = persisted.issue(EMAIL, "222222", TTL);
+        persisted.issue(EMAIL, "333333", TTL);
+        persisted.flush();
+        clearInvocations(userRepository);
+
+        persisted.revert(second);
+        persisted.flush();
+
+        verify(userRepository, never()).updateOtp(any(), any(), any());
+        assertTrue(persisted.verify(EMAIL, "333333"));
+    }
+
+    @Test
+    void verifiesIgnoringTheEmailsCase() {
+        store.issue(" A@Example.com", "123456", TTL);
+
+        assertTrue(store.verify("a@example.com ", "123456"));
+        // A code stays valid until it expires or is invalidated
+        assertTrue(store.verify("a@example.com", "123456"));
+    }
+
+    @Test
+    void discardsTheCodeAfterTooManyWrongGuesses() {
+        store.issue(EMAIL, "123456", TTL);
+        assertFalse(store.verify(EMAIL, "000000"));
+        assertFalse(store.verify(EMAIL, "000000"));
+        assertTrue(store.verify(EMAIL, "123456"));
+
+        assertFalse(store.verify(EMAIL, "000000"));
+
+        assertFalse(store.verify(EMAIL, "123456"));
+    }
+
+    @Test
+    void aNewCodeStartsWithFreshAttempts() {
+        store.issue(EMAIL, "111111", TTL);
+        assertFalse(store.verify(EMAIL, "000000"));
+        assertFalse(store.verify(EMAIL, "000000"));
+
+        store.issue(EMAIL, "222222", TTL);
+        assertFalse(store.verify(EMAIL, "000000"));
+        assertFalse(store.verify(EMAIL, "000000"));
+
+        assertTrue(store.verify(EMAIL, "222222"));
+    }
+
+    @Test
+    void rejectsAnExpiredCode() {
+        store.issue(EMAIL, "123456", Duration.ofSeconds(-1));
+
+        assertFalse(store.verify(EMAIL, "123456"));
+    }
+
+    @Test
+    void guessingOutAndInvalidatingClearThePersistedColumns() {
+        persisted.issue(EMAIL, "123456", TTL);
+        for (int i = 0; i < 3; i++) {
+            persisted.verify(EMAIL, "000000");
+        }
+        persisted.flush();
+        verify(userRepository).updateOtp(EMAIL, null, null);
+        clearInvocations(userRepository);
+
+        persisted.invalidate(EMAIL);
+        persisted.flush();
+
+        verify(userRepository).updateOtp(EMAIL, null, null);
+    }
+
+    @Test
+    void restoresPendingCodesWrittenAsHashesOrPlainDigits() {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(TTL);
+        when(userRepository.findPendingOtps(any())).thenReturn(List.of(
+                new Object[]{EMAIL, hash("111111"), expiresAt},
+                new Object[]{"b@example.com", "222222", expiresAt}));
+
+        persisted.restore();
+
+        assertTrue(persisted.verify(EMAIL, "111111"));
+        assertTrue(persisted.verify("b@example.com", "222222"));
+    }
+
+    private static String hash(String code) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.dto.BulkBookingRow;
+import com.example.camerabooking.model.EventType;
+import com.example.camerabooking.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Runs outside a test transaction, so each batch commits or rolls back on its own. */
+@DataJpaTest
+@Import(BookingBatchRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {"spring.jpa.database-platform=", "spring.jpa.hibernate.ddl-auto=create-drop"})
+class BookingBatchRepositoryTest {
+
+    @Autowired
+    private BookingBatchRepository batchRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from bookings");
+        userRepository.deleteAll();
+    }
+
+    private Long customer() {
+        User user = new User();
+        user.setName("A");
+        user.setEmail("a@example.com");
+        user.setPassword("x");
+        user.setMobileNumber("1");
+        user.setRole(User.Role.CUSTOMER);
+        return userRepository.save(user).getId();
+    }
+
+    private int bookings() {
+        return jdbcTemplate.queryForObject("select count(*) from bookings", Integer.class);
+    }
+
+    @Test
+    void insertsBatchAndReturnsIdsInOrder() {
+        Long userId = customer();
+
+        List<Long> ids = batchRepository.insertAll(List.of(
+                new BulkBookingRow(userId, EventType.WEDDING, new Date(), "first"),
+                new BulkBookingRow(userId, EventType.BIRTHDAY, new Date(), "second")), new Date());
+
+        assertEquals(2, ids.size());
+        assertEquals("first", jdbcTemplate.queryForObject("select address from bookings where id = ?", String.class, ids.get(0)));
+        assertEquals("second", jdbcTemplate.queryForObject("select address from bookings where id = ?", String.class, ids.get(1)));
+    }
+
+    @Test
+    void failedBatchInsertsNothing() {
+        Long userId = customer();
+
+        // The last row points at a user that does not exist
+        assertThrows(DataAccessException.class, () -> batchRepository.insertAll(List.of(
+                new BulkBookingRow(userId, EventType.WEDDING, new Date(), "first"),
+                new BulkBookingRow(userId, EventType.WEDDING, new Date(), "second"),
+                new BulkBookingRow(userId + 1000, EventType.WEDDING, new Date(), "third")), new Date()));
+
+        assertEquals(0, bookings());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.dto.BookingCursor;
+import com.example.camerabooking.dto.BookingSummary;
+import com.example.camerabooking.model.Booking;
+import com.example.camerabooking.model.BookingStatus;
+import com.example.camerabooking.model.EventType;
+import com.example.camerabooking.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {"spring.jpa.database-platform=", "spring.jpa.hibernate.ddl-auto=create-drop"})
+class BookingRepositoryTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = new User();
+        customer.setName("A");
+        customer.setEmail("a@example.com");
+        customer.setPassword("x");
+        customer.setMobileNumber("1");
+        customer.setRole(User.Role.CUSTOMER);
+        customer = userRepository.save(customer);
+    }
+
+    private Booking booking(BookingStatus status) {
+        return bookingRepository.save(Booking.builder()
+                .user(customer)
+                .eventType(EventType.WEDDING)
+                .bookingDate(new Date())
+                .address("x")
+                .status(status)
+                .build());
+    }
+
+    // Several rows share each timestamp, so pages have to break ties on id
+    private List<Long> seed(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Booking booking = booking(i % 3 == 0 ? BookingStatus.APPROVED : BookingStatus.PENDING);
+            bookingRepository.flush();
+            jdbcTemplate.update("update bookings set created_at = ? where id = ?", new Timestamp(1000L * (i / 2)), booking.getId());
+            ids.add(booking.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void setsCreatedAtOnInsertAndDefaultsToPending() {
+        Booking saved = bookingRepository.saveAndFlush(Booking.builder()
+                .user(customer).eventType(EventType.BIRTHDAY).bookingDate(new Date()).address("x").build());
+
+        assertNotNull(saved.getCreatedAt());
+        assertEquals(BookingStatus.PENDING, saved.getStatus());
+    }
+
+    @Test
+    void ignoresClientSuppliedCreatedAt() throws Exception {
+        Booking fromBody = new ObjectMapper().readValue("""
+                {"eventType": "WEDDING", "bookingDate": 0, "address": "x", "createdAt": 0}""", Booking.class);
+        assertNull(fromBody.getCreatedAt());
+
+        fromBody.setUser(customer);
+        fromBody.setCreatedAt(new Date(0L));
+        Booking saved = bookingRepository.saveAndFlush(fromBody);
+
+        Timestamp stored = jdbcTemplate.queryForObject("select created_at from bookings where id = ?", Timestamp.class, saved.getId());
+        assertTrue(stored.getTime() > 0L);
+    }
+
+    @Test
+    void pagesThroughEveryRowOnceInOrder() {
+        List<Long> ids = seed(7);
+
+        List<Long> seen = new ArrayList<>();
+        BookingCursor cursor = BookingCursor.START;
+        while (true) {
+            List<BookingSummary> page = bookingRepository.findPageAfter(cursor.createdAt(), cursor.id(), PageRequest.of(0, 3));
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(summary -> seen.add(summary.getId()));
+            cursor = BookingCursor.decode(BookingCursor.of(page.get(page.size() - 1)).encode());
+        }
+
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void pagesByUserAndByStatus() {
+        List<Long> ids = seed(7);
+
+        List<BookingSummary> byUser = bookingRepository.findPageByUserAfter(customer.getId(), new Date(0L), ids.get(1),
+                PageRequest.of(0, 2));
+        assertEquals(List.of(ids.get(2), ids.get(3)), byUser.stream().map(BookingSummary::getId).toList());
+
+        List<BookingSummary> approved = bookingRepository.findPageByStatusAfter(BookingStatus.APPROVED, new Date(0L), 0L,
+                PageRequest.of(0, 10));
+        assertEquals(List.of(ids.get(0), ids.get(3), ids.get(6)), approved.stream().map(BookingSummary::getId).toList());
+    }
+
+    @Test
+    void findsIdsByStatusOnOneDay() {
+        Booking approved = booking(BookingStatus.APPROVED);
+        booking(BookingStatus.PENDING);
+        Booking tomorrow = booking(BookingStatus.APPROVED);
+        tomorrow.setBookingDate(java.sql.Date.valueOf(LocalDate.now().plusDays(1)));
+        bookingRepository.saveAndFlush(tomorrow);
+
+        List<Long> ids = bookingRepository.findIdsByStatusAndDate(BookingStatus.APPROVED,
+                java.sql.Date.valueOf(LocalDate.now()));
+
+        assertEquals(List.of(approved.getId()), ids);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.camerabooking.repository;
+
+import com.example.camerabooking.model.StreamEvent;
+import com.example.camerabooking.model.StreamEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(StreamEventBatchRepository.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {"spring.jpa.database-platform=", "spring.jpa.hibernate.ddl-auto=create-drop"})
+class StreamEventBatchRepositoryTest {
+
+    @Autowired
+    private StreamEventBatchRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertsEveryEvent() {
+        LocalDateTime startedAt = LocalDateTime.of(2026, 1, 2, 10, 0);
+        repository.insertAll(List.of(
+                new StreamEvent(null, "1", "s1", StreamEventType.STARTED, "node-a", startedAt),
+                new StreamEvent(null, "1", "s1", StreamEventType.STOPPED, "node-a", startedAt.plusMinutes(30))));
+
+        List<String> rows = jdbcTemplate.queryForList(
+                "select event_type || ' ' || occurred_at from stream_events where booking_id = '1' order by occurred_at",
+                String.class);
+        assertEquals(2, rows.size());
+        assertEquals("STARTED 2026-01-02 10:00:00", rows.get(0));
+        assertEquals("STOPPED 2026-01-02 10:30:00", rows.get(1));
+    }
+}
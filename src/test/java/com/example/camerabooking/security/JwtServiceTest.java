@@ -0,0 +1,99 @@
+package com.example.camerabooking.security;
+
+import com.example.camerabooking.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+    private final JwtService jwtService = service(SECRET, Duration.ofHours(1));
+
+    private JwtService service(String secret, Duration validity) {
+        return new JwtService(secret, validity, 100, revocationList, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void verifiesIssuedToken() {
+        String token = jwtService.issueToken(new User(5L, "a@example.com", "A", "ADMIN"));
+
+        JwtService.VerifiedToken verified = jwtService.verify(token).orElseThrow();
+        assertEquals(5L, verified.userId());
+        assertEquals("a@example.com", verified.email());
+        assertEquals("ADMIN", verified.role());
+        assertTrue(verified.expiresAt().isAfter(Instant.now()));
+        // The second check is served from the verified cache
+        assertSame(verified, jwtService.verify(token).orElseThrow());
+    }
+
+    @Test
+    void rejectsTamperedPayloadEvenWithACachedSignature() {
+        String token = jwtService.issueToken(new User(5L, "a@example.com", "A", "CUSTOMER"));
+        jwtService.verify(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"sub\":\"1\",\"role\":\"ADMIN\"}".getBytes()) + "." + parts[2];
+
+        assertEquals(Optional.empty(), jwtService.verify(forged));
+        assertEquals(Optional.empty(), jwtService.verify("not-a-token"));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        byte[] otherKey = new byte[32];
+        otherKey[0] = 1;
+        String token = service(Base64.getEncoder().encodeToString(otherKey), Duration.ofHours(1))
+                .issueToken(new User(5L, "a@example.com", "A", "CUSTOMER"));
+
+        assertEquals(Optional.empty(), jwtService.verify(token));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        String token = service(SECRET, Duration.ofSeconds(-1)).issueToken(new User(5L, "a@example.com", "A", "CUSTOMER"));
+
+        assertEquals(Optional.empty(), jwtService.verify(token));
+    }
+
+    @Test
+    void rejectsRevokedToken() {
+        String token = jwtService.issueToken(new User(5L, "a@example.com", "A", "CUSTOMER"));
+        jwtService.verify(token);
+
+        jwtService.revoke(token);
+
+        assertEquals(Optional.empty(), jwtService.verify(token));
+    }
+
+    @Test
+    void purgesRevocationsOnceTheirTokensExpired() {
+        revocationList.revoke("expired", Instant.now().minusSeconds(1));
+        revocationList.revoke("live", Instant.now().plusSeconds(60));
+
+        revocationList.purgeExpired();
+
+        assertFalse(revocationList.isRevoked("expired"));
+        assertTrue(revocationList.isRevoked("live"));
+    }
+
+    @Test
+    void refusesMissingOrWeakSecrets() {
+        assertThrows(IllegalStateException.class, () -> service("", Duration.ofHours(1)));
+        assertThrows(IllegalStateException.class, () -> service("not base64!", Duration.ofHours(1)));
+        assertThrows(IllegalStateException.class,
+                () -> service(Base64.getEncoder().encodeToString(new byte[31]), Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.camerabooking.security;
+
+import com.example.camerabooking.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingExecutorTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // One thread and one queued task, so the third concurrent hash is turned away
+    private final PasswordHashingExecutor hasher = new PasswordHashingExecutor(new BlockingEncoder(), meterRegistry,
+            1, 1, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hasher.shutdown();
+    }
+
+    /** Prefixes the password; "slow" holds the hashing thread until released. */
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if ("slow".contentEquals(rawPassword)) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return !encodedPassword.startsWith("hash:");
+        }
+    }
+
+    @Test
+    void hashesOnThePool() {
+        assertEquals("hash:secret", hasher.encode("secret"));
+        assertTrue(hasher.matches("secret", "hash:secret"));
+        assertFalse(hasher.matches("other", "hash:secret"));
+        assertTrue(hasher.upgradeEncoding("{noop}secret"));
+        assertEquals(3, meterRegistry.get("security.password.hash").timer().count());
+    }
+
+    @Test
+    void turnsCallersAwayWhenSaturated() throws Exception {
+        CompletableFuture<String> running = hasher.encodeInBackground("slow");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = hasher.encodeInBackground("queued");
+
+        assertThrows(HashingCapacityExceededException.class, () -> hasher.encode("secret"));
+        assertThrows(HashingCapacityExceededException.class, () -> hasher.matches("secret", "hash:secret"));
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> hasher.encodeInBackground("secret").get());
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+        assertEquals(1.0, meterRegistry.get("security.password.hash.queue.size").gauge().value());
+
+        release.countDown();
+        assertEquals("hash:slow", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:secret", hasher.encode("secret"));
+    }
+
+    @Test
+    void givesUpAfterTheTimeout() throws Exception {
+        PasswordHashingExecutor impatient = new PasswordHashingExecutor(new BlockingEncoder(),
+                new SimpleMeterRegistry(), 1, 1, Duration.ofMillis(50));
+        try {
+            assertThrows(HashingCapacityExceededException.class, () -> impatient.encode("slow"));
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    @Test
+    void saturationMapsToTooManyRequests() {
+        ResponseStatus status = HashingCapacityExceededException.class.getAnnotation(ResponseStatus.class);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, status.value());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.camerabooking.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.kurento.client.IceCandidate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarySignalingFormatTest {
+
+    private final BinarySignalingFormat format = BinarySignalingFormat.INSTANCE;
+
+    @Test
+    void picksFormatFromProtocolAndFrame() {
+        assertSame(format, SignalingFormat.forProtocol(SignalingFormat.BINARY_PROTOCOL));
+        assertSame(JsonSignalingFormat.INSTANCE, SignalingFormat.forProtocol(null));
+        assertSame(format, SignalingFormat.forMessage(new BinaryMessage(new byte[0])));
+        assertSame(JsonSignalingFormat.INSTANCE, SignalingFormat.forMessage(new TextMessage("{}")));
+    }
+
+    @Test
+    void decodesInboundFields() {
+        SignalingMessage message = decode(frame(BinarySignalingFormat.START_STREAM,
+                string(BinarySignalingFormat.BOOKING_ID, "42"),
+                string(BinarySignalingFormat.SDP, "v=0\r\nä"),
+                string(BinarySignalingFormat.RESUME_TOKEN, "token"),
+                field(BinarySignalingFormat.ICE_BATCHING)));
+
+        assertEquals("startStream", message.type());
+        assertEquals("42", message.bookingId());
+        assertEquals("v=0\r\nä", message.sdp());
+        assertEquals("token", message.resumeToken());
+        assertTrue(message.iceBatching());
+        assertNull(message.streamId());
+    }
+
+    @Test
+    void roundTripsCandidates() {
+        List<IceCandidate> sent = List.of(new IceCandidate("candidate:1 udp", "0", 0),
+                new IceCandidate("candidate:2 tcp é", "video", 300));
+
+        SignalingMessage batch = format.decode(format.iceCandidates("s1", sent));
+        assertEquals("iceCandidates", batch.type());
+        assertEquals("s1", batch.streamId());
+        assertEquals(2, batch.candidates().size());
+        assertEquals("candidate:2 tcp é", batch.candidates().get(1).getCandidate());
+        assertEquals("video", batch.candidates().get(1).getSdpMid());
+        assertEquals(300, batch.candidates().get(1).getSdpMLineIndex());
+
+        SignalingMessage single = format.decode(format.iceCandidate("s2", sent.get(0)));
+        assertEquals("iceCandidate", single.type());
+        assertEquals("candidate:1 udp", single.candidate().getCandidate());
+        assertEquals(0, single.candidate().getSdpMLineIndex());
+    }
+
+    @Test
+    void encodesOutboundFrames() {
+        assertArrayEquals(frame(BinarySignalingFormat.WAITLISTED,
+                        string(BinarySignalingFormat.STREAM_ID, "s"),
+                        bytes(BinarySignalingFormat.POSITION, 2, 0xAC, 0x02)),
+                payload(format.waitlisted("s", 300)));
+        assertArrayEquals(frame(BinarySignalingFormat.STREAM_FAILED,
+                        string(BinarySignalingFormat.STREAM_ID, "s"),
+                        string(BinarySignalingFormat.REASON, "Stream idle")),
+                payload(format.streamFailed("s", "Stream idle")));
+        assertArrayEquals(frame(BinarySignalingFormat.ERROR, string(BinarySignalingFormat.MESSAGE, "no")),
+                payload(format.error("no")));
+    }
+
+    @Test
+    void encodesLongValuesWithMultiByteLengths() {
+        String sdp = "a".repeat(20_000);
+        byte[] payload = payload(format.sdpAnswer(sdp));
+
+        // tag, then 20000 as a three-byte varint
+        assertEquals(BinarySignalingFormat.SDP, payload[2]);
+        assertEquals(2 + 1 + 3 + sdp.length(), payload.length);
+        // The per-thread buffer shrinks back and keeps encoding correctly
+        assertArrayEquals(frame(BinarySignalingFormat.SDP_ANSWER, string(BinarySignalingFormat.SDP, "x")),
+                payload(format.sdpAnswer("x")));
+    }
+
+    @Test
+    void skipsUnknownTags() {
+        SignalingMessage message = decode(frame(BinarySignalingFormat.VIEW_STREAM,
+                bytes(99, 3, 7, 7, 7),
+                string(BinarySignalingFormat.STREAM_ID, "s1"),
+                bytes(200, 0)));
+
+        assertEquals("viewStream", message.type());
+        assertEquals("s1", message.streamId());
+    }
+
+    @Test
+    void reportsUnknownTypes() {
+        assertEquals("binary:12", decode(frame(12)).type());
+        assertEquals("binary:200", decode(frame(200)).type());
+        // Outbound types are not accepted inbound
+        assertEquals("binary:" + BinarySignalingFormat.STREAM_STARTED,
+                format.decode(format.streamStarted("s", "v=0", "t")).type());
+    }
+
+    @Test
+    void rejectsOtherVersions() {
+        assertMalformed(2, BinarySignalingFormat.START_STREAM);
+    }
+
+    @Test
+    void rejectsTruncatedFrames() {
+        assertMalformed();
+        assertMalformed(BinarySignalingFormat.VERSION);
+        // A field tag with no length
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.START_STREAM, BinarySignalingFormat.BOOKING_ID);
+        // A length running past the end of the frame
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.START_STREAM,
+                BinarySignalingFormat.BOOKING_ID, 50, 'x');
+        // A candidate cut short after its first string
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.ICE_CANDIDATE,
+                BinarySignalingFormat.CANDIDATE, 2, 1, 'c');
+        // A batch claiming more candidates than it carries
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.ICE_CANDIDATES,
+                BinarySignalingFormat.CANDIDATES, 3, 0xE8, 0x07, 0);
+    }
+
+    @Test
+    void rejectsBadVarints() {
+        // Length varint that never ends
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.START_STREAM,
+                BinarySignalingFormat.SDP, 0x80, 0x80);
+        // Longer than five bytes
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.START_STREAM,
+                BinarySignalingFormat.SDP, 0x80, 0x80, 0x80, 0x80, 0x80, 0x01);
+        // Overflows an int
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.START_STREAM,
+                BinarySignalingFormat.SDP, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        // Negative sdpMLineIndex inside a candidate
+        assertMalformed(BinarySignalingFormat.VERSION, BinarySignalingFormat.ICE_CANDIDATE,
+                BinarySignalingFormat.CANDIDATE, 9, 1, 'c', 1, '0', 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+    }
+
+    private SignalingMessage decode(byte[] frame) {
+        return format.decode(new BinaryMessage(frame));
+    }
+
+    private void assertMalformed(int... frame) {
+        assertThrows(IllegalArgumentException.class, () -> decode(bytes(frame)));
+    }
+
+    private static byte[] payload(WebSocketMessage<?> message) {
+        BinaryMessage binary = (BinaryMessage) message;
+        byte[] bytes = new byte[binary.getPayloadLength()];
+        binary.getPayload().duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] frame(int type, byte[]... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinarySignalingFormat.VERSION);
+        out.write(type);
+        for (byte[] field : fields) {
+            out.writeBytes(field);
+        }
+        return out.toByteArray();
+    }
+
+    // Single-byte lengths only; enough for the short values written here
+    private static byte[] string(int tag, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        out.write(utf8.length);
+        out.writeBytes(utf8);
+        return out.toByteArray();
+    }
+
+    private static byte[] field(int tag) {
+        return new byte[]{(byte) tag, 0};
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.camerabooking.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.kurento.client.IceCandidate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IceCandidateBufferTest {
+
+    private final IceCandidateBuffer buffer = new IceCandidateBuffer(4);
+
+    private static IceCandidate candidate(String name) {
+        return new IceCandidate(name, "0", 0);
+    }
+
+    private static List<String> names(List<IceCandidate> candidates) {
+        return candidates.stream().map(IceCandidate::getCandidate).toList();
+    }
+
+    @Test
+    void flushesHeldCandidatesInArrivalOrder() {
+        buffer.buffer("s1", List.of(candidate("c0"), candidate("c1")));
+        buffer.buffer("s1", List.of(candidate("c2")));
+
+        assertEquals(List.of("c0", "c1", "c2"), names(buffer.take("s1")));
+        assertTrue(buffer.take("s1").isEmpty());
+    }
+
+    @Test
+    void givesCandidatesWithoutAStreamToTheNextEndpoint() {
+        buffer.buffer(null, List.of(candidate("early")));
+        buffer.buffer("s1", List.of(candidate("c0")));
+        buffer.buffer("s2", List.of(candidate("other")));
+
+        assertEquals(List.of("early", "c0"), names(buffer.take("s1")));
+        assertEquals(List.of("other"), names(buffer.take("s2")));
+    }
+
+    @Test
+    void dropsCandidatesOverTheLimitUntilFlushed() {
+        assertTrue(buffer.buffer("s1", List.of(candidate("c0"), candidate("c1"), candidate("c2"))));
+
+        // All or nothing: a frame that does not fit is dropped whole
+        assertFalse(buffer.buffer("s2", List.of(candidate("c3"), candidate("c4"))));
+        assertTrue(buffer.buffer("s2", List.of(candidate("c3"))));
+        assertFalse(buffer.buffer("s2", List.of(candidate("c4"))));
+
+        buffer.take("s1");
+        assertTrue(buffer.buffer("s2", List.of(candidate("c4"), candidate("c5"), candidate("c6"))));
+        assertEquals(List.of("c3", "c4", "c5", "c6"), names(buffer.take("s2")));
+    }
+
+    @Test
+    void countsWhatBatchingSaved() {
+        buffer.applied(1);
+        buffer.applied(5);
+        buffer.receivedBatch(0);
+        buffer.receivedBatch(3);
+        buffer.receivedBatch(1);
+
+        assertEquals(4, buffer.rpcsSaved());
+        assertEquals(2, buffer.framesSaved());
+    }
+}
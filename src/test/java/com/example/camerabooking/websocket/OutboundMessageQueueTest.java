@@ -0,0 +1,229 @@
+package com.example.camerabooking.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.IceCandidate;
+import org.mockito.ArgumentCaptor;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundMessageQueueTest {
+
+    // Flush tasks run only when the test says so
+    private final Queue<Runnable> pendingFlushes = new ArrayDeque<>();
+    private final Executor manual = pendingFlushes::add;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> sent = new ArrayList<>();
+    private final WebSocketSession session = session("a");
+    private OutboundQueues queues = queues(manual, DataSize.ofKilobytes(512), Duration.ofSeconds(10), 32);
+
+    @AfterEach
+    void tearDown() {
+        queues.shutdown();
+    }
+
+    private OutboundQueues queues(Executor executor, DataSize bufferSizeLimit, Duration iceMaxAge, int iceBatchMaxSize) {
+        return new OutboundQueues(executor, meterRegistry, Duration.ofSeconds(10), bufferSizeLimit, iceMaxAge,
+                Duration.ofMillis(20), iceBatchMaxSize);
+    }
+
+    private WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        try {
+            doAnswer(invocation -> sent.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+                    .when(session).sendMessage(any());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return session;
+    }
+
+    private void runFlushes() {
+        Runnable flush;
+        while ((flush = pendingFlushes.poll()) != null) {
+            flush.run();
+        }
+    }
+
+    @Test
+    void flushesInOrderWithOneTaskAtATime() {
+        OutboundMessageQueue queue = queues.register(session);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.send(new TextMessage(String.valueOf(i))));
+        }
+
+        assertEquals(1, pendingFlushes.size());
+        assertEquals(100, queue.depth());
+        runFlushes();
+        assertEquals(100, sent.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(String.valueOf(i), sent.get(i));
+        }
+        assertEquals(0, queue.depth());
+        assertEquals(100, meterRegistry.get("signaling.outbound.send").timer().count());
+    }
+
+    @Test
+    void shedsQueuedIceCandidatesBeforeClosing() throws Exception {
+        queues = queues(manual, DataSize.ofBytes(100), Duration.ofSeconds(10), 32);
+        OutboundMessageQueue queue = queues.register(session);
+
+        assertTrue(queue.sendIceCandidate(new TextMessage("i".repeat(40))));
+        assertTrue(queue.sendIceCandidate(new TextMessage("i".repeat(40))));
+        assertTrue(queue.send(new TextMessage("c".repeat(40))));
+        // Over the limit: both candidates go, the control messages stay
+        assertTrue(queue.send(new TextMessage("c".repeat(40))));
+        assertEquals(2, queue.depth());
+        assertEquals(2.0, meterRegistry.get("signaling.outbound.ice.dropped").tag("reason", "overflow").counter().count());
+        verify(session, never()).close(any());
+
+        // Nothing left to shed
+        assertFalse(queue.send(new TextMessage("c".repeat(40))));
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, queue.depth());
+        assertEquals(1.0, meterRegistry.get("signaling.outbound.closed").tag("reason", "buffer-size-limit").counter().count());
+        assertFalse(queue.send(new TextMessage("c")));
+        runFlushes();
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    void skipsStaleIceCandidatesWhenFlushing() {
+        queues = queues(manual, DataSize.ofKilobytes(512), Duration.ZERO, 32);
+        OutboundMessageQueue queue = queues.register(session);
+
+        queue.sendIceCandidate(new TextMessage("candidate"));
+        queue.send(new TextMessage("answer"));
+        runFlushes();
+
+        assertEquals(List.of("answer"), sent);
+        assertEquals(1.0, meterRegistry.get("signaling.outbound.ice.dropped").tag("reason", "stale").counter().count());
+    }
+
+    @Test
+    void closesASessionStuckInASend() throws Exception {
+        queues = new OutboundQueues(manual, meterRegistry, Duration.ofMillis(1), DataSize.ofKilobytes(512),
+                Duration.ofSeconds(10), Duration.ofMillis(20), 32);
+        OutboundMessageQueue queue = queues.register(session);
+        List<Boolean> accepted = new ArrayList<>();
+        doAnswer(invocation -> {
+            // Still inside this send when the next message arrives
+            Thread.sleep(20);
+            accepted.add(queue.send(new TextMessage("late")));
+            return null;
+        }).when(session).sendMessage(any());
+
+        queue.send(new TextMessage("slow"));
+        runFlushes();
+
+        assertEquals(List.of(false), accepted);
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1.0, meterRegistry.get("signaling.outbound.closed").tag("reason", "send-time-limit").counter().count());
+    }
+
+    @Test
+    void dropsEverythingOnceTheSessionIsRemoved() {
+        OutboundMessageQueue queue = queues.register(session);
+        queue.send(new TextMessage("queued"));
+
+        queues.remove(session);
+        runFlushes();
+
+        assertTrue(sent.isEmpty());
+        assertFalse(queue.send(new TextMessage("after")));
+        // An unregistered session gets a queue that drops everything
+        assertFalse(queues.get(session).send(new TextMessage("detached")));
+    }
+
+    @Test
+    void sumsDepthAcrossSessions() {
+        queues.register(session).send(new TextMessage("1"));
+        OutboundMessageQueue other = queues.register(session("b"));
+        other.send(new TextMessage("2"));
+        other.send(new TextMessage("3"));
+
+        assertEquals(3.0, meterRegistry.get("signaling.outbound.queue.depth").gauge().value());
+        assertEquals(2.0, meterRegistry.get("signaling.outbound.queue.max.depth").gauge().value());
+    }
+
+    @Test
+    void sendsSingleCandidatesUnlessBatchingIsEnabled() {
+        OutboundMessageQueue queue = queues.register(session);
+
+        queue.sendIceCandidate("s1", new IceCandidate("c0", "0", 0));
+        queue.sendIceCandidate("s1", new IceCandidate("c1", "0", 0));
+        runFlushes();
+
+        assertEquals(2, sent.size());
+        assertEquals("iceCandidate", decode(sent.get(0)).type());
+        assertEquals(0, queue.iceFramesSaved());
+    }
+
+    @Test
+    void sendsAFullBatchAtOnce() {
+        queues = queues(manual, DataSize.ofKilobytes(512), Duration.ofSeconds(10), 3);
+        OutboundMessageQueue queue = queues.register(session);
+        queue.enableIceBatching();
+
+        for (int i = 0; i < 3; i++) {
+            queue.sendIceCandidate("s1", new IceCandidate("c" + i, "0", 0));
+        }
+        runFlushes();
+
+        assertEquals(1, sent.size());
+        SignalingMessage batch = decode(sent.get(0));
+        assertEquals("iceCandidates", batch.type());
+        assertEquals("s1", batch.streamId());
+        assertEquals(3, batch.candidates().size());
+        assertEquals(2, queue.iceFramesSaved());
+    }
+
+    @Test
+    void sendsAPartialBatchPerStreamAfterTheWindow() throws Exception {
+        queues = queues(Runnable::run, DataSize.ofKilobytes(512), Duration.ofSeconds(10), 32);
+        OutboundMessageQueue queue = queues.register(session);
+        queue.enableIceBatching();
+
+        queue.sendIceCandidate("s1", new IceCandidate("c0", "0", 0));
+        queue.sendIceCandidate("s2", new IceCandidate("c1", "0", 0));
+        queue.sendIceCandidate("s1", new IceCandidate("c2", "0", 0));
+
+        ArgumentCaptor<WebSocketMessage<?>> frames = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, timeout(1000).times(2)).sendMessage(frames.capture());
+        List<String> types = frames.getAllValues().stream()
+                .map(frame -> JsonSignalingFormat.INSTANCE.decode(frame).type())
+                .sorted()
+                .toList();
+        assertEquals(List.of("iceCandidate", "iceCandidates"), types);
+        assertEquals(1, queue.iceFramesSaved());
+    }
+
+    private static SignalingMessage decode(String payload) {
+        return JsonSignalingFormat.INSTANCE.decode(new TextMessage(payload));
+    }
+}
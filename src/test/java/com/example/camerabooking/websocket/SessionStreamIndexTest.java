@@ -0,0 +1,97 @@
+package com.example.camerabooking.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStreamIndexTest {
+
+    private final SessionStreamIndex index = new SessionStreamIndex();
+
+    @Test
+    void returnsOnlyTheSessionsOwnStreams() {
+        index.addBroadcast("a", "s1");
+        index.addBroadcast("b", "s2");
+        index.addView("a", "s2");
+        index.addView("a", "s3");
+
+        assertEquals(Set.of("s1"), index.removeBroadcasts("a"));
+        assertEquals(Set.of("s2", "s3"), index.removeViews("a"));
+        assertEquals(Set.of("s2"), index.removeBroadcasts("b"));
+    }
+
+    @Test
+    void forgetsTheSessionOnceRemoved() {
+        index.addBroadcast("a", "s1");
+        index.addView("a", "s2");
+
+        index.removeBroadcasts("a");
+        index.removeViews("a");
+
+        assertTrue(index.removeBroadcasts("a").isEmpty());
+        assertTrue(index.removeViews("a").isEmpty());
+    }
+
+    @Test
+    void keepsBroadcastsAndViewsApart() {
+        index.addBroadcast("a", "s1");
+        index.addView("a", "s1");
+
+        index.removeView("a", "s1");
+
+        assertTrue(index.removeViews("a").isEmpty());
+        assertEquals(Set.of("s1"), index.removeBroadcasts("a"));
+    }
+
+    @Test
+    void removingTheLastStreamDropsTheSession() {
+        index.addView("a", "s1");
+        index.removeView("a", "s1");
+        // Unknown sessions and streams are ignored
+        index.removeView("a", "s1");
+        index.removeBroadcast("b", "s1");
+
+        index.addView("a", "s2");
+
+        assertEquals(Set.of("s2"), index.removeViews("a"));
+    }
+
+    @Test
+    void concurrentAddsAndRemovesLoseNothing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            // Each thread adds its own stream many times, churning the session's set through empty
+            for (int t = 0; t < 4; t++) {
+                String streamId = "s" + t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        index.addView("a", streamId);
+                        index.removeView("a", streamId);
+                    }
+                    index.addView("a", streamId);
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Set.of("s0", "s1", "s2", "s3"), index.removeViews("a"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.camerabooking.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.IceCandidate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalingCodecTest {
+
+    @Test
+    void decodesInboundFields() {
+        SignalingMessage message = SignalingCodec.decode("""
+                {"type": "startStream", "bookingId": 42, "sdp": "v=0\\r\\nä", "resumeToken": "token",
+                 "iceBatching": true, "extra": {"nested": [1, {"a": null}]}}""");
+
+        assertEquals("startStream", message.type());
+        assertEquals("42", message.bookingId());
+        assertEquals("v=0\r\nä", message.sdp());
+        assertEquals("token", message.resumeToken());
+        assertTrue(message.iceBatching());
+        assertNull(message.streamId());
+    }
+
+    @Test
+    void roundTripsCandidates() {
+        List<IceCandidate> sent = List.of(new IceCandidate("candidate:1 udp", "0", 0),
+                new IceCandidate("candidate:2 \"quoted\" é", "video", 300));
+
+        SignalingMessage batch = SignalingCodec.decode(SignalingCodec.iceCandidates("s1", sent));
+        assertEquals("iceCandidates", batch.type());
+        assertEquals("s1", batch.streamId());
+        assertEquals(2, batch.candidates().size());
+        assertEquals("candidate:2 \"quoted\" é", batch.candidates().get(1).getCandidate());
+        assertEquals("video", batch.candidates().get(1).getSdpMid());
+        assertEquals(300, batch.candidates().get(1).getSdpMLineIndex());
+
+        SignalingMessage single = SignalingCodec.decode(SignalingCodec.iceCandidate("s2", sent.get(0)));
+        assertEquals("iceCandidate", single.type());
+        assertEquals("candidate:1 udp", single.candidate().getCandidate());
+        assertEquals(0, single.candidate().getSdpMLineIndex());
+    }
+
+    @Test
+    void encodesOutboundFrames() {
+        JsonObject started = JsonParser.parseString(SignalingCodec.streamStarted("s", "v=0\r\na=x", "t")).getAsJsonObject();
+        assertEquals("streamStarted", started.get("type").getAsString());
+        assertEquals("v=0\r\na=x", started.get("sdp").getAsString());
+        assertEquals("t", started.get("resumeToken").getAsString());
+
+        JsonObject waitlisted = JsonParser.parseString(SignalingCodec.waitlisted("s", 300)).getAsJsonObject();
+        assertEquals(300, waitlisted.get("position").getAsInt());
+
+        JsonObject failed = JsonParser.parseString(SignalingCodec.streamFailed("s", "Stream idle")).getAsJsonObject();
+        assertEquals("streamFailed", failed.get("type").getAsString());
+        assertEquals("Stream idle", failed.get("reason").getAsString());
+    }
+
+    @Test
+    void encodesLongFramesAfterDroppingTheBuffer() {
+        String message = "x".repeat(20_000);
+        assertEquals(message, JsonParser.parseString(SignalingCodec.error(message)).getAsJsonObject()
+                .get("message").getAsString());
+        assertEquals("{\"type\":\"error\",\"message\":\"ok\"}", SignalingCodec.error("ok"));
+    }
+
+    @Test
+    void leavesWronglyTypedFieldsNull() {
+        assertNull(SignalingCodec.decode("{\"type\": 5}").type());
+        assertFalse(SignalingCodec.decode("{\"type\": \"x\", \"iceBatching\": \"yes\"}").iceBatching());
+        assertNull(SignalingCodec.decode("{\"type\": \"x\", \"streamId\": {\"id\": 1}}").streamId());
+        assertNull(SignalingCodec.decode("{\"type\": \"x\", \"candidate\": {\"candidate\": \"c\"}}").candidate());
+        // One bad entry invalidates the whole batch
+        assertNull(SignalingCodec.decode("""
+                {"type": "x", "candidates": [{"candidate": "c", "sdpMid": "0", "sdpMLineIndex": 0}, {"candidate": "c"}]}
+                """).candidates());
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        assertThrows(IllegalArgumentException.class, () -> SignalingCodec.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> SignalingCodec.decode("[1]"));
+        assertThrows(IllegalArgumentException.class, () -> SignalingCodec.decode("{\"type\": \"startStream\""));
+        assertThrows(IllegalArgumentException.class, () -> SignalingCodec.decode("{bad"));
+        assertThrows(IllegalArgumentException.class, () -> SignalingCodec.decode("""
+                {"type": "x", "candidate": {"candidate": "c", "sdpMid": "0", "sdpMLineIndex": "zero"}}"""));
+    }
+}
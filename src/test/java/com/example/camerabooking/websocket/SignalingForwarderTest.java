@@ -0,0 +1,156 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.cluster.ClusterNode;
+import com.example.camerabooking.cluster.InMemoryStreamRegistry;
+import com.example.camerabooking.cluster.StreamLocation;
+import com.example.camerabooking.cluster.StreamRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Two instances sharing one registry: node B forwards its viewer to node A, which owns the stream. */
+class SignalingForwarderTest {
+
+    private final StreamRegistry registry = new InMemoryStreamRegistry();
+    private final ClusterNode nodeB = new ClusterNode("node-b", "ws://node-b/ws", 8080);
+    private final WebSocketClient client = mock(WebSocketClient.class);
+    private final WebSocketSession remote = mock(WebSocketSession.class);
+    private final WebSocketSession viewer = session("ws://node-b/ws");
+    private final ArgumentCaptor<WebSocketHandler> linkHandler = ArgumentCaptor.forClass(WebSocketHandler.class);
+    private final ArgumentCaptor<WebSocketHttpHeaders> linkHeaders = ArgumentCaptor.forClass(WebSocketHttpHeaders.class);
+    private final ArgumentCaptor<URI> linkUri = ArgumentCaptor.forClass(URI.class);
+    private SignalingForwarder forwarder;
+
+    @BeforeEach
+    void setUp() {
+        OutboundQueues outboundQueues = new OutboundQueues(Runnable::run, new SimpleMeterRegistry(),
+                Duration.ofSeconds(10), DataSize.ofKilobytes(512), Duration.ofSeconds(10), Duration.ofMillis(25), 32);
+        outboundQueues.register(viewer);
+        forwarder = new SignalingForwarder(registry, nodeB, outboundQueues, client, Duration.ofSeconds(1),
+                new SimpleMeterRegistry());
+        when(remote.isOpen()).thenReturn(true);
+        when(client.execute(linkHandler.capture(), linkHeaders.capture(), linkUri.capture()))
+                .thenReturn(CompletableFuture.completedFuture(remote));
+    }
+
+    private static WebSocketSession session(String uri) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("viewer");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create(uri));
+        when(session.getHandshakeHeaders()).thenReturn(new HttpHeaders());
+        return session;
+    }
+
+    private void ownedBy(String streamId, String nodeId) {
+        registry.register(new StreamLocation(streamId, "booking-1", nodeId, "ws://" + nodeId + "/ws", "kms-0"));
+    }
+
+    @Test
+    void forwardsToOwnerAndRelaysReplies() throws Exception {
+        ownedBy("s1", "node-a");
+        TextMessage viewStream = new TextMessage("{\"type\":\"viewStream\",\"streamId\":\"s1\"}");
+
+        assertTrue(forwarder.forward(viewer, "s1", viewStream));
+        verify(remote).sendMessage(viewStream);
+        assertEquals("ws://node-a/ws?forwardedBy=node-b", linkUri.getValue().toString());
+
+        TextMessage answer = new TextMessage("{\"type\":\"sdpAnswer\",\"sdp\":\"v=0\"}");
+        linkHandler.getValue().handleMessage(remote, answer);
+        verify(viewer).sendMessage(answer);
+    }
+
+    @Test
+    void carriesTheClientsBearerToken() {
+        ownedBy("s1", "node-a");
+        viewer.getHandshakeHeaders().setBearerAuth("token");
+
+        forwarder.forward(viewer, "s1", new TextMessage("{}"));
+
+        assertEquals("Bearer token", linkHeaders.getValue().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test
+    void reusesOneLinkPerOwner() {
+        ownedBy("s1", "node-a");
+        ownedBy("s2", "node-a");
+
+        forwarder.forward(viewer, "s1", new TextMessage("{}"));
+        forwarder.forward(viewer, "s2", new TextMessage("{}"));
+        forwarder.forward(viewer, "s1", new TextMessage("{}"));
+
+        verify(client).execute(any(), any(WebSocketHttpHeaders.class), any(URI.class));
+    }
+
+    @Test
+    void leavesLocalAndUnknownStreamsToTheCaller() {
+        ownedBy("s1", "node-b");
+
+        assertFalse(forwarder.forward(viewer, "s1", new TextMessage("{}")));
+        assertFalse(forwarder.forward(viewer, "unknown", new TextMessage("{}")));
+        verify(client, never()).execute(any(), any(WebSocketHttpHeaders.class), any(URI.class));
+    }
+
+    @Test
+    void neverForwardsAForwardedSession() {
+        ownedBy("s1", "node-a");
+        WebSocketSession forwardedViewer = session("ws://node-b/ws?forwardedBy=node-c");
+
+        assertFalse(forwarder.forward(forwardedViewer, "s1", new TextMessage("{}")));
+    }
+
+    @Test
+    void failsTheStreamWhenTheOwnerIsUnreachable() throws IOException {
+        ownedBy("s1", "node-a");
+        when(client.execute(any(), any(WebSocketHttpHeaders.class), any(URI.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection refused")));
+
+        assertTrue(forwarder.forward(viewer, "s1", new TextMessage("{}")));
+        verify(viewer).sendMessage(new TextMessage(SignalingCodec.streamFailed("s1", "Stream owner unreachable")));
+    }
+
+    @Test
+    void tellsTheViewerWhenTheOwnerGoesAway() throws Exception {
+        ownedBy("s1", "node-a");
+        forwarder.forward(viewer, "s1", new TextMessage("{}"));
+
+        linkHandler.getValue().afterConnectionClosed(remote, CloseStatus.GOING_AWAY);
+
+        verify(viewer).sendMessage(new TextMessage(SignalingCodec.streamFailed("s1", "Stream owner unreachable")));
+    }
+
+    @Test
+    void closesLinksQuietlyWhenTheViewerLeaves() throws Exception {
+        ownedBy("s1", "node-a");
+        forwarder.forward(viewer, "s1", new TextMessage("{}"));
+
+        forwarder.close(viewer);
+        linkHandler.getValue().afterConnectionClosed(remote, CloseStatus.NORMAL);
+
+        verify(remote).close(CloseStatus.NORMAL);
+        verify(viewer, never()).sendMessage(any());
+    }
+}
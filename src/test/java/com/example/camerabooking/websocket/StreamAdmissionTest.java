@@ -0,0 +1,147 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.media.MediaServerNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StreamSession stream = stream("s1");
+
+    // Two viewers per stream, a waitlist of three, bursts of one; a rate of 0 never limits
+    private StreamAdmission admission(double startsPerSecond, double viewsPerSecond) {
+        return new StreamAdmission(meterRegistry, startsPerSecond, 1, viewsPerSecond, 1, 2, 3);
+    }
+
+    private static StreamSession stream(String streamId) {
+        WebSocketSession broadcasterSession = session("broadcaster");
+        OutboundMessageQueue broadcaster = mock(OutboundMessageQueue.class);
+        when(broadcaster.getSession()).thenReturn(broadcasterSession);
+        return new StreamSession(streamId, "b1", mock(MediaServerNode.class), mock(MediaPipeline.class),
+                mock(WebRtcEndpoint.class), broadcaster, "token");
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("signaling.admission.rejected").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void limitsTheStartRate() {
+        StreamAdmission admission = admission(0.001, 0);
+
+        assertTrue(admission.tryStartStream());
+        assertFalse(admission.tryStartStream());
+        assertEquals(1.0, rejected("start-rate"));
+    }
+
+    @Test
+    void capsViewersPerStream() {
+        StreamAdmission admission = admission(0, 0);
+
+        assertTrue(admission.tryAdmitViewer(stream));
+        assertTrue(admission.tryAdmitViewer(stream));
+        assertFalse(admission.tryAdmitViewer(stream));
+        assertEquals(1.0, rejected("stream-full"));
+        // Other streams have their own slots
+        assertTrue(admission.tryAdmitViewer(stream("s2")));
+    }
+
+    @Test
+    void givesTheSlotBackWhenTheViewRateRejects() {
+        StreamAdmission admission = admission(0, 0.001);
+
+        assertTrue(admission.tryAdmitViewer(stream));
+        assertFalse(admission.tryAdmitViewer(stream));
+
+        assertEquals(1.0, rejected("view-rate"));
+        // Only the admitted viewer holds a slot
+        assertTrue(stream.tryReserveViewerSlot(2));
+        assertFalse(stream.tryReserveViewerSlot(2));
+    }
+
+    @Test
+    void nobodySkipsAheadOfAWaitingViewer() {
+        StreamAdmission admission = admission(0, 0);
+        WebSocketSession waiting = session("waiting");
+
+        assertEquals(1, admission.waitlist("s1", waiting, false));
+
+        assertFalse(admission.tryAdmitViewer(stream));
+        assertEquals(List.of(waiting), admission.admitWaiting(stream));
+        assertTrue(admission.tryAdmitViewer(stream));
+    }
+
+    @Test
+    void admitsWaitingViewersInArrivalOrder() {
+        StreamAdmission admission = admission(0, 0);
+        WebSocketSession first = session("first");
+        WebSocketSession closed = session("closed");
+        WebSocketSession second = session("second");
+        WebSocketSession third = session("third");
+        when(closed.isOpen()).thenReturn(false);
+        admission.waitlist("s1", first, false);
+        admission.waitlist("s1", closed, false);
+        admission.waitlist("s1", second, false);
+
+        assertEquals(List.of(first, second), admission.admitWaiting(stream));
+        assertTrue(admission.waitingStreamIds().isEmpty());
+
+        // No slots left until one is given back
+        assertEquals(1, admission.waitlist("s1", third, false));
+        assertTrue(admission.admitWaiting(stream).isEmpty());
+        stream.releaseViewerSlot();
+        assertEquals(List.of(third), admission.admitWaiting(stream));
+    }
+
+    @Test
+    void keepsPlacesOnTheWaitlist() {
+        StreamAdmission admission = admission(0, 0);
+        WebSocketSession a = session("a");
+        WebSocketSession b = session("b");
+        WebSocketSession c = session("c");
+
+        assertEquals(1, admission.waitlist("s1", a, false));
+        assertEquals(2, admission.waitlist("s1", b, false));
+        // Asking again keeps the place
+        assertEquals(1, admission.waitlist("s1", a, false));
+        // A viewer that was admitted but could not be placed goes first
+        assertEquals(1, admission.waitlist("s1", c, true));
+        assertEquals(3.0, meterRegistry.get("signaling.admission.waitlisted").gauge().value());
+
+        assertEquals(-1, admission.waitlist("s1", session("d"), false));
+        assertEquals(1.0, rejected("waitlist-full"));
+        assertEquals(List.of(c, a, b), admission.dropWaitlist("s1"));
+        assertTrue(admission.dropWaitlist("s1").isEmpty());
+    }
+
+    @Test
+    void leavingTheLastPlaceClearsTheWaitlist() {
+        StreamAdmission admission = admission(0, 0);
+        WebSocketSession a = session("a");
+        admission.waitlist("s1", a, false);
+
+        admission.leaveWaitlist("s1", a);
+
+        assertTrue(admission.waitingStreamIds().isEmpty());
+        assertTrue(admission.tryAdmitViewer(stream));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.camerabooking.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.MediaType;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** The wheel ticks once a second, so timeouts here are short and waits end on a latch. */
+class StreamLivenessTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StreamLiveness liveness = new StreamLiveness(Duration.ofMillis(1), Duration.ofMillis(500),
+            meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        liveness.shutdown();
+    }
+
+    private double reaped(String kind) {
+        return meterRegistry.get("signaling.liveness.reaped").tag("kind", kind).counter().count();
+    }
+
+    @Test
+    void reapsAnIdleStreamButNotAnUntrackedOne() throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        AtomicInteger untracked = new AtomicInteger();
+        liveness.trackStream("idle", idle::countDown);
+        liveness.trackStream("gone", untracked::incrementAndGet);
+
+        liveness.untrack(StreamLiveness.streamKey("gone"));
+
+        assertTrue(idle.await(5, TimeUnit.SECONDS));
+        assertEquals(0, untracked.get());
+        assertEquals(1.0, reaped("stream"));
+        assertEquals(0.0, meterRegistry.get("signaling.liveness.tracked").gauge().value());
+    }
+
+    @Test
+    void keepsAStreamWhileMediaFlows() throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        liveness.trackStream("idle", idle::countDown);
+        liveness.trackStream("live", stopped::countDown);
+        liveness.flowing("live", MediaType.VIDEO, true);
+        liveness.flowing("live", MediaType.AUDIO, true);
+
+        // Both were due on the same tick
+        assertTrue(idle.await(5, TimeUnit.SECONDS));
+        assertEquals(1, stopped.getCount());
+
+        liveness.flowing("live", MediaType.VIDEO, false);
+        liveness.flowing("live", MediaType.AUDIO, false);
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void keepsAViewerThatStaysActive() throws InterruptedException {
+        CountDownLatch quiet = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        liveness.trackViewer("s1", "quiet", quiet::countDown);
+        liveness.trackViewer("s1", "active", active::incrementAndGet);
+
+        while (!quiet.await(100, TimeUnit.MILLISECONDS)) {
+            liveness.touch(StreamLiveness.viewerKey("s1", "active"));
+        }
+
+        assertEquals(0, active.get());
+        assertEquals(1.0, reaped("viewer"));
+        liveness.untrack(StreamLiveness.viewerKey("s1", "active"));
+    }
+
+    @Test
+    void expiresAtOnceAndOnlyOnce() {
+        AtomicInteger reaped = new AtomicInteger();
+        liveness.trackViewer("s1", "v1", reaped::incrementAndGet);
+
+        liveness.expire(StreamLiveness.viewerKey("s1", "v1"));
+        liveness.expire(StreamLiveness.viewerKey("s1", "v1"));
+
+        assertEquals(1, reaped.get());
+        assertEquals(1.0, reaped("viewer"));
+    }
+
+    @Test
+    void trackingAgainReplacesTheEntry() {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        liveness.trackStream("s1", first::incrementAndGet);
+        liveness.trackStream("s1", second::incrementAndGet);
+
+        liveness.expire(StreamLiveness.streamKey("s1"));
+
+        assertEquals(0, first.get());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    void aZeroTimeoutTracksNothing() {
+        StreamLiveness disabled = new StreamLiveness(Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry());
+        AtomicInteger reaped = new AtomicInteger();
+        try {
+            disabled.trackStream("s1", reaped::incrementAndGet);
+            disabled.expire(StreamLiveness.streamKey("s1"));
+        } finally {
+            disabled.shutdown();
+        }
+
+        assertEquals(0, reaped.get());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.camerabooking.websocket;
+
+import com.example.camerabooking.media.MediaServerNode;
+import org.junit.jupiter.api.Test;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamSessionTest {
+
+    private final WebRtcEndpoint firstEndpoint = mock(WebRtcEndpoint.class);
+    private final WebSocketSession broadcaster = session("broadcaster");
+    private final StreamSession stream = new StreamSession("s1", "b1", mock(MediaServerNode.class),
+            mock(MediaPipeline.class), firstEndpoint, outbound(broadcaster), "token-1");
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    private static OutboundMessageQueue outbound(WebSocketSession session) {
+        OutboundMessageQueue outbound = mock(OutboundMessageQueue.class);
+        when(outbound.getSession()).thenReturn(session);
+        return outbound;
+    }
+
+    @Test
+    void matchesOnlyTheCurrentResumeToken() {
+        assertTrue(stream.matchesResumeToken("token-1"));
+        assertFalse(stream.matchesResumeToken("token-2"));
+        assertFalse(stream.matchesResumeToken("token-10"));
+        assertFalse(stream.matchesResumeToken(null));
+    }
+
+    @Test
+    void onlyTheBroadcasterSuspendsTheStream() {
+        assertEquals(-1, stream.suspend(session("viewer")));
+        assertFalse(stream.isSuspended());
+
+        assertTrue(stream.suspend(broadcaster) > 0);
+        assertTrue(stream.isSuspended());
+    }
+
+    @Test
+    void expiresWhenTheBroadcasterNeverComesBack() {
+        int suspension = stream.suspend(broadcaster);
+
+        assertTrue(stream.expire(suspension));
+
+        assertFalse(stream.isSuspended());
+        // The token is worthless once the stream ended
+        assertFalse(stream.resume(mock(WebRtcEndpoint.class), outbound(session("late")), "token-2"));
+        assertFalse(stream.expire(suspension));
+    }
+
+    @Test
+    void resumingRotatesTheTokenAndCancelsTheExpiry() {
+        int suspension = stream.suspend(broadcaster);
+        WebSocketSession reconnected = session("reconnected");
+        WebRtcEndpoint secondEndpoint = mock(WebRtcEndpoint.class);
+
+        assertTrue(stream.resume(secondEndpoint, outbound(reconnected), "token-2"));
+
+        assertFalse(stream.isSuspended());
+        assertFalse(stream.matchesResumeToken("token-1"));
+        assertTrue(stream.matchesResumeToken("token-2"));
+        assertSame(secondEndpoint, stream.getBroadcasterEndpoint());
+        assertSame(reconnected, stream.getBroadcasterSession());
+        verify(firstEndpoint).release();
+        // The grace period that was running no longer ends the stream
+        assertFalse(stream.expire(suspension));
+    }
+
+    @Test
+    void aLaterSuspensionGetsItsOwnExpiry() {
+        int first = stream.suspend(broadcaster);
+        WebSocketSession reconnected = session("reconnected");
+        stream.resume(mock(WebRtcEndpoint.class), outbound(reconnected), "token-2");
+
+        int second = stream.suspend(reconnected);
+
+        assertNotEquals(first, second);
+        assertFalse(stream.expire(first));
+        assertTrue(stream.isSuspended());
+        assertTrue(stream.expire(second));
+    }
+
+    @Test
+    void theOldConnectionClosingDoesNotEndAResumedStream() {
+        stream.suspend(broadcaster);
+        stream.resume(mock(WebRtcEndpoint.class), outbound(session("reconnected")), "token-2");
+
+        assertEquals(-1, stream.suspend(broadcaster));
+        assertFalse(stream.endFor(broadcaster));
+    }
+}
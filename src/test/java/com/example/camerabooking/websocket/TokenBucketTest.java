@@ -0,0 +1,78 @@
+package com.example.camerabooking.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsABurstThenLimits() {
+        TokenBucket bucket = new TokenBucket(0.001, 3);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void refillsAtTheRate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        Thread.sleep(30);
+
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void neverLimitsWithoutARate() {
+        TokenBucket bucket = new TokenBucket(0, 1);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0.001, 50);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire()) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(50, acquired.get());
+    }
+}